@@ -1,6 +1,7 @@
 plugins {
     java
     eclipse  // Add this for better Eclipse integration
+    alias(libs.plugins.jmh)
 }
 
 repositories {
@@ -13,6 +14,25 @@ repositories {
 
 dependencies {
   compileOnly("io.papermc.paper:paper-api:1.21.10-R0.1-SNAPSHOT")
+
+  testImplementation(libs.junit.jupiter)
+  // The join-storm harness fakes the Paper connection types
+  testImplementation("io.papermc.paper:paper-api:1.21.10-R0.1-SNAPSHOT")
+  testImplementation(libs.sqlite.jdbc)
+  // Stands in for a database server in the storage conformance tests
+  testImplementation(libs.h2)
+  testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+
+  // Benchmarks in src/jmh run outside the server, so the API has to be on their classpath
+  jmh("io.papermc.paper:paper-api:1.21.10-R0.1-SNAPSHOT")
+  jmh(libs.sqlite.jdbc)
+}
+
+// ./gradlew :lib:jmh  (narrow with -PjmhIncludes=authorizeValid)
+jmh {
+    jmhVersion.set(libs.versions.jmh.get())
+    (findProperty("jmhIncludes") as String?)?.let { includes.add(it) }
+    resultFormat.set("JSON")
 }
 
 java {
@@ -24,6 +44,12 @@ java {
 }
 
 tasks {
+    test {
+        useJUnitPlatform()
+        // -Pstorm.players=2000 etc. tune the join-storm scenario
+        systemProperties(project.properties.filterKeys { it.startsWith("storm.") })
+    }
+
     jar {
         archiveBaseName.set("ExamplePlugin")
         archiveVersion.set("1.0.5")
@@ -0,0 +1,125 @@
+package com.example.loginplugin;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import com.example.loginplugin.database.SchemaMigrator;
+
+/**
+ * Generates a throwaway SQLite database shaped like the one the Discord bot maintains: every
+ * account has one link code, about a tenth of which are already expired.
+ */
+final class BenchmarkDatabase {
+
+	/** Codes are six digits, so a database can hold at most this many. */
+	static final int MAX_CODES = 1_000_000;
+
+	static final long LIVE_FOR_MILLIS = 24L * 60 * 60 * 1000;
+
+	final Path dir;
+	final Path file;
+	final int rows;
+	final String[] usernames;
+	final String[] codes;
+	final boolean[] expired;
+
+	private BenchmarkDatabase(Path dir, int rows) {
+		this.dir = dir;
+		this.file = dir.resolve("bench.db");
+		this.rows = rows;
+		this.usernames = new String[rows];
+		this.codes = new String[rows];
+		this.expired = new boolean[rows];
+	}
+
+	static BenchmarkDatabase create(int rows, long seed) throws IOException, SQLException {
+		if (rows > MAX_CODES) {
+			throw new IllegalArgumentException("At most " + MAX_CODES + " distinct codes exist");
+		}
+		BenchmarkDatabase db = new BenchmarkDatabase(Files.createTempDirectory("loginplugin-bench"), rows);
+		db.populate(new Random(seed));
+		return db;
+	}
+
+	private void populate(Random random) throws SQLException {
+		// Partial Fisher-Yates over all six digit values gives distinct random codes
+		int[] values = new int[MAX_CODES];
+		for (int i = 0; i < MAX_CODES; i++) {
+			values[i] = i;
+		}
+		for (int i = 0; i < rows; i++) {
+			int j = i + random.nextInt(MAX_CODES - i);
+			int v = values[j];
+			values[j] = values[i];
+			values[i] = v;
+			codes[i] = String.format("%06d", v);
+			usernames[i] = "Player" + i;
+			expired[i] = random.nextInt(10) == 0;
+		}
+
+		long now = System.currentTimeMillis();
+		try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + file)) {
+			new SchemaMigrator(Logger.getLogger("BenchmarkDatabase")).migrate(c);
+			c.setAutoCommit(false);
+			try (PreparedStatement codeStmt = c.prepareStatement(
+					"INSERT INTO link_codes (code, mc_username, mc_uuid, discord_id, expires_at) VALUES (?, ?, NULL, ?, ?)");
+					PreparedStatement accountStmt = c.prepareStatement(
+							"INSERT INTO accounts (mc_username, discord_id) VALUES (?, ?)")) {
+				for (int i = 0; i < rows; i++) {
+					String discordId = Long.toString(100_000_000_000_000_000L + i);
+					codeStmt.setString(1, codes[i]);
+					codeStmt.setString(2, usernames[i]);
+					codeStmt.setString(3, discordId);
+					codeStmt.setLong(4, expired[i] ? now - LIVE_FOR_MILLIS : now + LIVE_FOR_MILLIS);
+					codeStmt.addBatch();
+
+					accountStmt.setString(1, usernames[i]);
+					accountStmt.setString(2, discordId);
+					accountStmt.addBatch();
+
+					if (i % 10_000 == 9_999) {
+						codeStmt.executeBatch();
+						accountStmt.executeBatch();
+					}
+				}
+				codeStmt.executeBatch();
+				accountStmt.executeBatch();
+			}
+			c.commit();
+		}
+	}
+
+	/** Index of the next live row at or after {@code from}, wrapping around. */
+	int live(int from) {
+		int i = Math.floorMod(from, rows);
+		while (expired[i]) {
+			i = (i + 1) % rows;
+		}
+		return i;
+	}
+
+	/** Index of the next expired row at or after {@code from}, wrapping around. */
+	int expired(int from) {
+		int i = Math.floorMod(from, rows);
+		while (!expired[i]) {
+			i = (i + 1) % rows;
+		}
+		return i;
+	}
+
+	void delete() throws IOException {
+		try (var files = Files.list(dir)) {
+			for (Path p : (Iterable<Path>) files::iterator) {
+				Files.deleteIfExists(p);
+			}
+		}
+		Files.deleteIfExists(dir);
+	}
+}
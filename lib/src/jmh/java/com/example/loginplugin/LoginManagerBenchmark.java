@@ -0,0 +1,194 @@
+package com.example.loginplugin;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.loginplugin.codes.CodeIndex;
+import com.example.loginplugin.codes.CodeRow;
+import com.example.loginplugin.database.DatabaseSettings;
+import com.example.loginplugin.metrics.LoginMetrics;
+
+/**
+ * Baseline for the code redemption and registration lookups, run single threaded. See
+ * {@link Contended} for the same benchmarks under contention.
+ * <p>
+ * Run with {@code ./gradlew :lib:jmh}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+public class LoginManagerBenchmark {
+
+	private static final UUID PLAYER_UUID = new UUID(0L, 0L);
+
+	@State(Scope.Benchmark)
+	public static class Plugin {
+
+		@Param({ "10000", "100000", "1000000" })
+		int rows;
+
+		@Param({ "true", "false" })
+		boolean codeIndex;
+
+		BenchmarkDatabase db;
+		LoginManager manager;
+		final AtomicInteger nextClaimRow = new AtomicInteger();
+
+		@Setup
+		public void open() throws IOException, SQLException, InterruptedException {
+			db = BenchmarkDatabase.create(rows, 42L);
+
+			Logger logger = Logger.getLogger("LoginManagerBenchmark");
+			// Invalid codes log a warning each, which would be most of what gets measured
+			logger.setLevel(Level.SEVERE);
+			manager = new LoginManager(logger, new DatabaseSettings(db.file.toString(), 4, 5000), new LoginMetrics(),
+					false);
+			if (codeIndex) {
+				manager.startCodeIndex(1000);
+				while (manager.codeIndex() == null) {
+					Thread.sleep(10);
+				}
+			}
+		}
+
+		@TearDown
+		public void close() throws IOException {
+			manager.closeDatabase();
+			db.delete();
+		}
+	}
+
+	/**
+	 * Per-thread walk over the generated rows, so threads don't all hit the same keys.
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+
+		private static final AtomicInteger THREADS = new AtomicInteger();
+
+		int next;
+
+		@Setup
+		public void start(Plugin plugin) {
+			next = THREADS.getAndIncrement() * 7919;
+		}
+
+		int advance() {
+			return next++;
+		}
+	}
+
+	/**
+	 * One live code per thread that every invocation redeems and that is put back, outside the
+	 * measurement, after each call.
+	 */
+	@State(Scope.Thread)
+	public static class Claim {
+
+		Plugin plugin;
+		int row;
+
+		@Setup
+		public void pick(Plugin plugin) {
+			this.plugin = plugin;
+			this.row = plugin.db.live(plugin.nextClaimRow.getAndIncrement() * 104_729);
+		}
+
+		@TearDown(org.openjdk.jmh.annotations.Level.Invocation)
+		public void restore() {
+			String code = plugin.db.codes[row];
+			String username = plugin.db.usernames[row];
+			long expiresAt = System.currentTimeMillis() + BenchmarkDatabase.LIVE_FOR_MILLIS;
+			// Through the plugin's own writer, so the restore never waits on a file lock
+			long rowid = plugin.manager.database().write(c -> {
+				PreparedStatement stmt = c.prepare(
+						"INSERT OR REPLACE INTO link_codes (code, mc_username, expires_at) VALUES (?, ?, ?) RETURNING rowid");
+				stmt.setString(1, code);
+				stmt.setString(2, username);
+				stmt.setLong(3, expiresAt);
+				try (ResultSet rs = stmt.executeQuery()) {
+					rs.next();
+					return rs.getLong(1);
+				}
+			}).join();
+
+			CodeIndex index = plugin.manager.codeIndex();
+			if (index != null) {
+				index.apply(List.of(new CodeRow(rowid, code, username, expiresAt)));
+			}
+		}
+	}
+
+	// ---------------- authorizeWithCode ----------------
+
+	@Benchmark
+	public boolean authorizeValid(Plugin plugin, Claim claim) {
+		return plugin.manager.authorizeWithCode(plugin.db.usernames[claim.row], PLAYER_UUID,
+				plugin.db.codes[claim.row]);
+	}
+
+	@Benchmark
+	public boolean authorizeInvalidFormat(Plugin plugin, Cursor cursor) {
+		return plugin.manager.authorizeWithCode(plugin.db.usernames[cursor.advance() % plugin.rows], PLAYER_UUID,
+				"12a45b");
+	}
+
+	/** A live code that belongs to someone else. */
+	@Benchmark
+	public boolean authorizeWrongCode(Plugin plugin, Cursor cursor) {
+		int owner = plugin.db.live(cursor.advance());
+		int other = (owner + 1) % plugin.rows;
+		return plugin.manager.authorizeWithCode(plugin.db.usernames[other], PLAYER_UUID, plugin.db.codes[owner]);
+	}
+
+	@Benchmark
+	public boolean authorizeExpired(Plugin plugin, Cursor cursor) {
+		int row = plugin.db.expired(cursor.advance());
+		return plugin.manager.authorizeWithCode(plugin.db.usernames[row], PLAYER_UUID, plugin.db.codes[row]);
+	}
+
+	// ---------------- isRegistered ----------------
+
+	@Benchmark
+	public boolean isRegisteredHit(Plugin plugin, Cursor cursor) {
+		return plugin.manager.isRegistered(plugin.db.usernames[cursor.advance() % plugin.rows]);
+	}
+
+	@Benchmark
+	public boolean isRegisteredMiss(Plugin plugin, Cursor cursor) {
+		return plugin.manager.isRegistered("Unknown" + cursor.advance());
+	}
+
+	/**
+	 * The same benchmarks with as many threads as a join wave keeps busy: writes queue on the
+	 * single writer, reads spread over the reader pool.
+	 */
+	@Threads(8)
+	public static class Contended extends LoginManagerBenchmark {
+	}
+}
@@ -1,38 +1,136 @@
 package com.example.loginplugin;
 
-import java.io.File;
-import java.sql.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Logger;
 
+import com.example.loginplugin.accounts.AccountBatch;
+import com.example.loginplugin.accounts.AccountLink;
+import com.example.loginplugin.accounts.AccountLinkWriter;
+import com.example.loginplugin.accounts.AccountSnapshot;
+import com.example.loginplugin.codes.ClaimCoalescer;
+import com.example.loginplugin.codes.CodeFormat;
+import com.example.loginplugin.codes.CodeIndex;
+import com.example.loginplugin.codes.CodeIndex.Verdict;
+import com.example.loginplugin.codes.CodeRow;
+import com.example.loginplugin.database.ClaimedCode;
+import com.example.loginplugin.database.DatabasePool;
+import com.example.loginplugin.database.DatabaseSettings;
+import com.example.loginplugin.database.MaintenanceSettings;
+import com.example.loginplugin.database.PoolStats;
+import com.example.loginplugin.database.SqliteMaintenance;
+import com.example.loginplugin.ingest.CodeIngestServer;
+import com.example.loginplugin.ingest.IngestSettings;
+import com.example.loginplugin.metrics.LoginMetrics;
+import com.example.loginplugin.metrics.LoginMetrics.Query;
+import com.example.loginplugin.security.ReconnectToken;
+import com.example.loginplugin.skin.SkinTexture;
+import com.example.loginplugin.storage.ChangeFeed;
+import com.example.loginplugin.storage.CircuitBreaker;
+import com.example.loginplugin.storage.HealthSettings;
+import com.example.loginplugin.storage.LoginStorage;
+import com.example.loginplugin.storage.SqliteStorage;
+import com.example.loginplugin.storage.StorageSettings;
+
 public class LoginManager {
 
+	private static final int INDEX_POLL_BATCH = 5000;
+	/**
+	 * How long a catch-up read of the code index answers for later misses. A code reaches its
+	 * player through Discord and is typed in by hand, so it was committed well before the submit.
+	 */
+	private static final long CATCH_UP_REUSE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
 	private final Logger logger;
+	private final StorageSettings settings;
+	private final LoginMetrics metrics;
+	private final boolean debug;
 
-	private Connection connection;
+	private volatile LoginStorage storage;
+	private volatile CodeIndex codeIndex;
+	private final Object catchUpLock = new Object();
+	// Guarded by catchUpLock: the latest catch-up read of the code index and when it started
+	private CompletableFuture<Boolean> catchUp;
+	private long catchUpStartedAt;
+	private volatile ClaimCoalescer claims;
+	private volatile AccountSnapshot accountSnapshot;
+	private volatile AccountLinkWriter accountLinks;
+	private ScheduledExecutorService syncScheduler;
+	private volatile CodeIngestServer ingestServer;
+	private ScheduledExecutorService maintenanceScheduler;
+	private volatile SqliteMaintenance maintenance;
 
-	public LoginManager(Logger logger) {
-		this.logger = logger;
-		initializeDatabase();
+	private volatile CircuitBreaker breaker;
+	private HealthSettings health;
+	private ScheduledExecutorService healthScheduler;
+	private Runnable onUnavailable;
+	// Guarded by this
+	private long retryMillis;
+	private final List<Runnable> deferred = new ArrayList<>();
+	private final LongAdder reconnectAttempts = new LongAdder();
+
+	private final long createdAt = System.nanoTime();
+	// Completes with the milliseconds from construction until logins could be served
+	private final CompletableFuture<Long> ready = new CompletableFuture<>();
+	// First loads of the in-memory mirrors, awaited by the startup phase
+	private final List<CompletableFuture<Void>> cacheLoads = new CopyOnWriteArrayList<>();
+	// Guarded by this; set while the storage is left for the startup phase to open
+	private boolean starting;
+	private ExecutorService startupThread;
+
+	public LoginManager(Logger logger, StorageSettings settings, LoginMetrics metrics, boolean debug) {
+		this(logger, settings, metrics, debug, true);
 	}
 
-	// ---------------- SQLITE DATABASE ----------------
+	public LoginManager(Logger logger, DatabaseSettings settings, LoginMetrics metrics, boolean debug) {
+		this(logger, StorageSettings.sqlite(settings), metrics, debug);
+	}
 
-	private void initializeDatabase() {
-		try {
-			File dbFile = new File("./database/superdb.db");
+	private LoginManager(Logger logger, StorageSettings settings, LoginMetrics metrics, boolean debug, boolean openNow) {
+		this.logger = logger;
+		this.settings = settings;
+		this.metrics = metrics;
+		this.debug = debug;
+		if (openNow) {
+			initializeStorage();
+			ready.complete(millisSince(createdAt));
+		} else {
+			starting = true;
+		}
+	}
 
-			// Check if database file exists
-			if (!dbFile.exists()) {
-				logger.severe("Database file not found at: " + dbFile.getAbsolutePath());
-				logger.severe("Please initialize the database schema before starting the plugin!");
-				return;
-			}
+	/**
+	 * Creates a manager whose storage is opened later by {@link #startup(long)}, off the calling
+	 * thread. Features started before then are deferred until it is open.
+	 */
+	public static LoginManager unopened(Logger logger, StorageSettings settings, LoginMetrics metrics, boolean debug) {
+		return new LoginManager(logger, settings, metrics, debug, false);
+	}
+
+	// ---------------- STORAGE ----------------
 
-			connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getAbsolutePath());
-			logger.info("SQLite database connected at: " + dbFile.getAbsolutePath());
+	private void initializeStorage() {
+		LoginStorage created = settings.create(logger);
+		try {
+			created.open();
+			storage = created;
 		} catch (Exception e) {
-			logger.severe("Failed to initialize database: " + e.getMessage());
+			created.close();
+			logger.severe("Failed to initialize " + created.describe() + " storage: " + e.getMessage());
 			e.printStackTrace();
 		}
 	}
@@ -41,108 +139,900 @@ public class LoginManager {
 	 * Close database connection - call this on plugin disable
 	 */
 	public void closeDatabase() {
-		if (connection != null) {
+		ExecutorService startup;
+		synchronized (this) {
+			startup = startupThread;
+			startupThread = null;
+		}
+		if (startup != null) {
+			// Like a reconnect, a startup still opening the storage must finish before it is closed
+			startup.shutdownNow();
 			try {
-				connection.close();
-				logger.info("Database connection closed.");
-			} catch (SQLException e) {
-				logger.severe("Error closing database connection: " + e.getMessage());
-				e.printStackTrace();
+				startup.awaitTermination(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
 			}
 		}
+
+		ScheduledExecutorService healthThread;
+		synchronized (this) {
+			healthThread = healthScheduler;
+			healthScheduler = null;
+		}
+		if (healthThread != null) {
+			// A reconnect in progress must not hand over a storage after it was closed
+			healthThread.shutdownNow();
+			try {
+				healthThread.awaitTermination(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		CodeIngestServer ingest = ingestServer;
+		if (ingest != null) {
+			ingestServer = null;
+			ingest.stop();
+		}
+		if (maintenanceScheduler != null) {
+			maintenanceScheduler.shutdownNow();
+			maintenanceScheduler = null;
+			maintenance = null;
+		}
+		if (syncScheduler != null) {
+			syncScheduler.shutdownNow();
+			syncScheduler = null;
+			codeIndex = null;
+			accountSnapshot = null;
+		}
+		AccountLinkWriter links = accountLinks;
+		if (links != null) {
+			// Written out while the storage is still open
+			accountLinks = null;
+			links.stop(5000);
+		}
+
+		LoginStorage s = storage;
+		if (s != null) {
+			storage = null;
+			s.close();
+			logger.info("Database connection closed.");
+		}
 	}
 
 	/**
-	 * Check if database connection is valid and available
+	 * Check if database connection is valid and available. A refusal by the circuit breaker is
+	 * counted.
 	 */
-	private boolean isDatabaseAvailable() {
+	private boolean isDatabaseAvailable(LoginStorage s) {
+		CircuitBreaker b = breaker;
+		return s != null && (b == null || b.allows());
+	}
+
+	/**
+	 * Whether logins can currently succeed: the backend is open and the circuit breaker is
+	 * closed.
+	 */
+	public boolean isAvailable() {
+		CircuitBreaker b = breaker;
+		return storage != null && (b == null || b.state() == CircuitBreaker.State.CLOSED);
+	}
+
+	/**
+	 * The backend in use, or null while it is unavailable.
+	 */
+	public LoginStorage storage() {
+		return storage;
+	}
+
+	/**
+	 * The SQLite connection pool, or null on other backends or while the database is unavailable.
+	 * Package-private for the benchmarks, which have to put redeemed codes back through the same
+	 * writer.
+	 */
+	DatabasePool database() {
+		return storage instanceof SqliteStorage sqlite ? sqlite.pool() : null;
+	}
+
+	/**
+	 * Reader pool counters, or null while the database is unavailable.
+	 */
+	public PoolStats readStats() {
+		LoginStorage s = storage;
+		return s == null ? null : s.readStats();
+	}
+
+	/**
+	 * Writer counters, or null while the database is unavailable.
+	 */
+	public PoolStats writeStats() {
+		LoginStorage s = storage;
+		return s == null ? null : s.writeStats();
+	}
+
+	// ---------------- STARTUP ----------------
+
+	/**
+	 * Opens the storage of a manager created by {@link #unopened} on a background thread. The pool
+	 * threads then open their connections and prepare the login statements while the code index
+	 * and account snapshot load, all in parallel. Readiness waits for the caches
+	 * {@code maxCacheWaitMillis} at most; past that logins are served from the database until
+	 * they have loaded.
+	 *
+	 * @return completes with the milliseconds from construction until ready
+	 */
+	public synchronized CompletableFuture<Long> startup(long maxCacheWaitMillis) {
+		if (!starting || startupThread != null) {
+			return ready.copy();
+		}
+		startupThread = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "LoginPlugin-Startup");
+			t.setDaemon(true);
+			return t;
+		});
+		startupThread.execute(() -> runStartup(maxCacheWaitMillis));
+		return ready.copy();
+	}
+
+	private void runStartup(long maxCacheWaitMillis) {
+		initializeStorage();
+		long opened = millisSince(createdAt);
+		LoginStorage s;
+		synchronized (this) {
+			starting = false;
+			s = storage;
+			if (s == null && healthScheduler != null) {
+				breaker.trip();
+				scheduleProbe();
+			}
+		}
+		if (s == null) {
+			// Nothing to wait for: logins are refused as unavailable until the supervisor reconnects
+			ready.complete(opened);
+			return;
+		}
+
+		CompletableFuture<Void> warmUp = s.warmUp();
+		startDeferred();
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxCacheWaitMillis);
+		try {
+			warmUp.get(maxCacheWaitMillis, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException e) {
+			logger.warning("Failed to prepare " + s.describe() + " statements ahead of time: " + e.getCause().getMessage());
+		} catch (TimeoutException e) {
+			logger.warning("Preparing " + s.describe() + " statements is taking too long, carrying on without.");
+		} catch (InterruptedException e) {
+			// Shutting down
+			Thread.currentThread().interrupt();
+			return;
+		}
+		try {
+			long left = Math.max(0L, deadline - System.nanoTime());
+			CompletableFuture.allOf(cacheLoads.toArray(CompletableFuture[]::new)).get(left, TimeUnit.NANOSECONDS);
+		} catch (ExecutionException e) {
+			// The loads never fail, they retry on the next poll
+		} catch (TimeoutException e) {
+			logger.warning("In-memory caches are still loading; accepting logins from the database meanwhile.");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+
+		long total = millisSince(createdAt);
+		ready.complete(total);
+		logger.info("Ready for logins in " + total + " ms (storage opened after " + opened + " ms, statements and caches "
+				+ (total - opened) + " ms).");
+	}
+
+	/**
+	 * Waits for the startup phase; returns at once on a manager that opened its storage in the
+	 * constructor.
+	 *
+	 * @return false if it did not finish within {@code timeoutMillis}
+	 */
+	public boolean awaitReady(long timeoutMillis) {
+		if (ready.isDone()) {
+			return true;
+		}
 		try {
-			return connection != null && !connection.isClosed();
-		} catch (SQLException e) {
-			logger.severe("Error checking database connection: " + e.getMessage());
+			ready.get(timeoutMillis, TimeUnit.MILLISECONDS);
+			return true;
+		} catch (TimeoutException | ExecutionException e) {
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 			return false;
 		}
 	}
 
+	/**
+	 * Completes with the milliseconds from construction until logins could be served.
+	 */
+	public CompletableFuture<Long> whenReady() {
+		return ready.copy();
+	}
+
+	/**
+	 * Milliseconds from construction until logins could be served, or -1 while starting up.
+	 */
+	public long readyMillis() {
+		return ready.getNow(-1L);
+	}
+
+	private static long millisSince(long startNanos) {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+	}
+
+	// ---------------- HEALTH ----------------
+
+	/**
+	 * Watches the backend from now on. Failed requests in a row open a circuit breaker, so logins
+	 * are refused at once instead of waiting on a dead database; a background thread then probes
+	 * it, or opens it again if it never came up at startup, backing off exponentially until it
+	 * answers.
+	 *
+	 * @param onUnavailable run whenever the breaker opens, e.g. to release waiting players
+	 */
+	public synchronized void superviseStorage(HealthSettings settings, Runnable onUnavailable) {
+		if (healthScheduler != null) {
+			return;
+		}
+
+		this.health = settings;
+		this.onUnavailable = onUnavailable;
+		this.retryMillis = settings.retryMillis();
+		this.breaker = new CircuitBreaker(settings.failureThreshold());
+		healthScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "LoginPlugin-DB-Health");
+			t.setDaemon(true);
+			return t;
+		});
+		// While starting up, the startup phase hands over to the supervisor if the storage fails to open
+		if (storage == null && !starting) {
+			breaker.trip();
+			scheduleProbe();
+		}
+	}
+
+	/**
+	 * Feeds the outcome of a storage request to the circuit breaker.
+	 */
+	private <T> CompletableFuture<T> guard(CompletableFuture<T> request) {
+		CircuitBreaker b = breaker;
+		if (b == null) {
+			return request;
+		}
+		return request.whenComplete((result, error) -> {
+			if (error == null) {
+				b.recordSuccess();
+			} else if (b.recordFailure()) {
+				logger.warning(storageName() + " storage keeps failing - refusing logins until it answers again.");
+				onUnavailable.run();
+				scheduleProbe();
+			}
+		});
+	}
+
+	/**
+	 * @return the delay before the next attempt
+	 */
+	private synchronized long scheduleProbe() {
+		if (healthScheduler == null) {
+			return -1;
+		}
+		long delay = retryMillis;
+		retryMillis = Math.min(retryMillis * 2, health.maxRetryMillis());
+		// Servers sharing a database should not all retry in the same instant
+		delay += ThreadLocalRandom.current().nextLong(delay / 5 + 1);
+		healthScheduler.schedule(this::probe, delay, TimeUnit.MILLISECONDS);
+		return delay;
+	}
+
+	private void probe() {
+		CircuitBreaker b = breaker;
+		if (!b.probing()) {
+			return;
+		}
+
+		reconnectAttempts.increment();
+		try {
+			LoginStorage s = storage;
+			if (s == null) {
+				reopenStorage();
+			} else {
+				s.ping().get(health.probeTimeoutMillis(), TimeUnit.MILLISECONDS);
+			}
+		} catch (InterruptedException e) {
+			// Shutting down
+			Thread.currentThread().interrupt();
+			b.probeFailed();
+			return;
+		} catch (Exception e) {
+			b.probeFailed();
+			long next = scheduleProbe();
+			logger.warning(storageName() + " storage is still unavailable (" + e.getMessage() + "), next attempt in "
+					+ next / 1000 + " s.");
+			return;
+		}
+
+		synchronized (this) {
+			retryMillis = health.retryMillis();
+		}
+		b.probeSucceeded();
+		logger.info(storageName() + " storage is available again.");
+		startDeferred();
+	}
+
+	private void reopenStorage() throws Exception {
+		LoginStorage created = settings.create(logger);
+		try {
+			created.open();
+		} catch (Exception e) {
+			created.close();
+			throw e;
+		}
+		storage = created;
+	}
+
+	private String storageName() {
+		LoginStorage s = storage;
+		return s != null ? s.describe() : settings.type().name();
+	}
+
+	/**
+	 * Remembers a feature that needs the backend while it could not be opened; it is started once
+	 * the storage supervisor has reconnected.
+	 *
+	 * @return true if it was deferred
+	 */
+	private synchronized boolean deferUntilOpen(Runnable start) {
+		if (storage != null) {
+			return false;
+		}
+		deferred.add(start);
+		return true;
+	}
+
+	private void startDeferred() {
+		List<Runnable> pending;
+		synchronized (this) {
+			pending = new ArrayList<>(deferred);
+			deferred.clear();
+		}
+		for (Runnable start : pending) {
+			start.run();
+		}
+	}
+
+	/**
+	 * The circuit breaker, or null when the storage is not supervised.
+	 */
+	public CircuitBreaker breaker() {
+		return breaker;
+	}
+
+	/** Reconnect attempts and probes made by the storage supervisor. */
+	public long reconnectAttempts() {
+		return reconnectAttempts.sum();
+	}
+
+	// ---------------- IN-MEMORY MIRRORS ----------------
+
+	/**
+	 * Background threads that keep the in-memory mirrors in step with the database. Two, so the
+	 * code index and the account snapshot load side by side at startup.
+	 */
+	private synchronized ScheduledExecutorService syncScheduler() {
+		if (syncScheduler == null) {
+			AtomicInteger counter = new AtomicInteger();
+			syncScheduler = Executors.newScheduledThreadPool(2, r -> {
+				Thread t = new Thread(r, "LoginPlugin-DB-Sync-" + counter.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		return syncScheduler;
+	}
+
+	/**
+	 * Starts mirroring {@code link_codes} in memory so that wrong codes are rejected without a
+	 * query. The table is polled for new rows every {@code pollIntervalMillis}.
+	 */
+	public void startCodeIndex(long pollIntervalMillis) {
+		if (deferUntilOpen(() -> startCodeIndex(pollIntervalMillis)) || codeIndex != null) {
+			return;
+		}
+		if (!(storage instanceof ChangeFeed)) {
+			logger.info("Link code index is not available on " + storage.describe() + " storage; every code is checked there.");
+			return;
+		}
+
+		CodeIndex index = new CodeIndex();
+		codeIndex = index;
+		CompletableFuture<Void> loaded = new CompletableFuture<>();
+		cacheLoads.add(loaded);
+		syncScheduler().scheduleWithFixedDelay(() -> {
+			// Nothing to gain from polling while the storage supervisor waits for the database
+			if (!isAvailable()) {
+				return;
+			}
+			try {
+				pollCodes(index);
+				index.expire(System.currentTimeMillis());
+				if (!index.isReady()) {
+					index.markReady();
+					loaded.complete(null);
+					logger.info("Link code index loaded with " + index.size() + " live codes.");
+				}
+			} catch (Exception e) {
+				logger.severe("Failed to refresh link code index: " + e.getMessage());
+			}
+		}, 0L, pollIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Reads rows added since the last poll. New rows normally have a rowid above the cursor, but
+	 * SQLite hands the rowid of a deleted last row out again, so rows at or below the cursor that
+	 * expire later than anything seen before are picked up as well.
+	 */
+	private void pollCodes(CodeIndex index) {
+		if (!(storage instanceof ChangeFeed feed)) {
+			return;
+		}
+
+		long fromRowid = index.cursorRowid();
+		long fromExpires = index.cursorExpiresAt();
+		if (fromRowid > 0) {
+			index.apply(feed.codesReused(fromRowid, fromExpires, System.currentTimeMillis(), INDEX_POLL_BATCH).join());
+		}
+
+		List<CodeRow> rows;
+		do {
+			rows = feed.codesAfter(fromRowid, System.currentTimeMillis(), INDEX_POLL_BATCH).join();
+			index.apply(rows);
+			fromRowid = index.cursorRowid();
+		} while (rows.size() == INDEX_POLL_BATCH);
+	}
+
+	/**
+	 * The live code index, or null when it is disabled or still loading.
+	 */
+	public CodeIndex codeIndex() {
+		CodeIndex index = codeIndex;
+		return index != null && index.isReady() ? index : null;
+	}
+
+	/**
+	 * Lets the Discord bot push issued and revoked codes into the code index. From then on codes
+	 * are redeemed from memory and deleted from the database afterwards, which is only safe while
+	 * this is the one server redeeming codes from that database.
+	 */
+	public void startCodeIngest(IngestSettings settings) {
+		if (deferUntilOpen(() -> startCodeIngest(settings))) {
+			return;
+		}
+		CodeIndex index = codeIndex;
+		if (index == null) {
+			logger.warning("Code ingestion needs the link code index (codes.index.enabled, SQLite storage); not started.");
+			return;
+		}
+		if (ingestServer != null) {
+			return;
+		}
+
+		try {
+			ingestServer = CodeIngestServer.start(logger, settings, index);
+			logger.info("Accepting pushed link codes on " + ingestServer.address() + ".");
+		} catch (IOException e) {
+			logger.severe("Failed to start code ingestion: " + e.getMessage());
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * The ingestion endpoint, or null when it is disabled.
+	 */
+	public CodeIngestServer ingestServer() {
+		return ingestServer;
+	}
+
+	/**
+	 * Starts mirroring the usernames in {@code accounts} so unregistered players can be turned
+	 * away before the configuration phase. New rows are picked up every
+	 * {@code pollIntervalMillis}; the whole table is reloaded every {@code fullReloadMillis} to
+	 * forget removed accounts.
+	 */
+	public void startAccountSnapshot(long pollIntervalMillis, long fullReloadMillis) {
+		if (deferUntilOpen(() -> startAccountSnapshot(pollIntervalMillis, fullReloadMillis)) || accountSnapshot != null) {
+			return;
+		}
+		if (!(storage instanceof ChangeFeed)) {
+			logger.info("Registered account snapshot is not available on " + storage.describe() + " storage.");
+			return;
+		}
+
+		AccountSnapshot snapshot = new AccountSnapshot();
+		long[] lastFullReload = { 0L };
+		CompletableFuture<Void> loaded = new CompletableFuture<>();
+		cacheLoads.add(loaded);
+		syncScheduler().scheduleWithFixedDelay(() -> {
+			if (!isAvailable()) {
+				return;
+			}
+			try {
+				long now = System.currentTimeMillis();
+				if (now - lastFullReload[0] >= fullReloadMillis) {
+					snapshot.replace(readAccounts(0L));
+					lastFullReload[0] = now;
+					if (accountSnapshot == null) {
+						accountSnapshot = snapshot;
+						loaded.complete(null);
+						logger.info("Registered account snapshot loaded with " + snapshot.size() + " accounts.");
+					}
+				} else {
+					snapshot.add(readAccounts(snapshot.cursorRowid()));
+				}
+			} catch (Exception e) {
+				logger.severe("Failed to refresh registered account snapshot: " + e.getMessage());
+			}
+		}, 0L, pollIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private AccountBatch readAccounts(long afterRowid) {
+		AccountBatch batch = new AccountBatch();
+		if (!(storage instanceof ChangeFeed feed)) {
+			return batch;
+		}
+
+		long from = afterRowid;
+		int read;
+		do {
+			read = feed.accountsAfter(from, INDEX_POLL_BATCH, batch).join();
+			from = batch.lastRowid();
+		} while (read == INDEX_POLL_BATCH);
+		return batch;
+	}
+
+	/**
+	 * The registered account snapshot, or null when it is disabled or still loading.
+	 */
+	public AccountSnapshot accountSnapshot() {
+		return accountSnapshot;
+	}
+
+	/**
+	 * From now on records the UUID, Discord id and login time of everyone who redeems a code on
+	 * their {@code accounts} row, so accounts can be looked up by UUID. The writes are queued
+	 * behind the login and go out {@code batchSize} at a time, at least every
+	 * {@code flushIntervalMillis}.
+	 */
+	public synchronized void startAccountLinkage(int batchSize, long flushIntervalMillis) {
+		if (accountLinks != null) {
+			return;
+		}
+		accountLinks = new AccountLinkWriter(logger, this::saveAccountLinks, this::isAvailable, batchSize,
+				flushIntervalMillis);
+	}
+
+	private CompletableFuture<Integer> saveAccountLinks(List<AccountLink> links) {
+		LoginStorage db = storage;
+		if (!isDatabaseAvailable(db)) {
+			return CompletableFuture.failedFuture(new IllegalStateException("Database is not available"));
+		}
+
+		return guard(metrics.time(Query.SAVE_ACCOUNT_LINKS, db.saveAccountLinks(links)));
+	}
+
+	/**
+	 * The account link queue, or null when linkage is disabled.
+	 */
+	public AccountLinkWriter accountLinks() {
+		return accountLinks;
+	}
+
+	// ---------------- MAINTENANCE ----------------
+
+	/**
+	 * Purges expired codes, vacuums and checkpoints the SQLite file every
+	 * {@code intervalSeconds}, on its own thread so a long run never delays the mirrors.
+	 */
+	public synchronized void startMaintenance(MaintenanceSettings settings) {
+		if (deferUntilOpen(() -> startMaintenance(settings))) {
+			return;
+		}
+		if (!(storage instanceof SqliteStorage sqlite)) {
+			logger.info("Database maintenance is only done on SQLite storage; skipped.");
+			return;
+		}
+		if (maintenanceScheduler != null) {
+			return;
+		}
+
+		SqliteMaintenance created = new SqliteMaintenance(logger, sqlite.pool(), settings);
+		maintenance = created;
+		maintenanceScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "LoginPlugin-DB-Maintenance");
+			t.setDaemon(true);
+			return t;
+		});
+		maintenanceScheduler.scheduleWithFixedDelay(() -> {
+			if (!isAvailable()) {
+				return;
+			}
+			try {
+				created.run(System.currentTimeMillis());
+			} catch (RuntimeException e) {
+				logger.severe("Database maintenance failed: " + e.getMessage());
+				e.printStackTrace();
+			}
+		}, settings.intervalSeconds(), settings.intervalSeconds(), TimeUnit.SECONDS);
+	}
+
+	/**
+	 * The maintenance task, or null when it is not running.
+	 */
+	public SqliteMaintenance maintenance() {
+		return maintenance;
+	}
+
 	// ---------------- CODE MANAGEMENT ----------------
 
 	/**
 	 * Authorize player using the code
 	 */
 	public boolean authorizeWithCode(String username, UUID uuid, String code) {
+		return authorizeWithCodeAsync(username, uuid, code).join();
+	}
+
+	/**
+	 * Authorize player using the code without blocking the caller.
+	 */
+	public CompletableFuture<Boolean> authorizeWithCodeAsync(String username, UUID uuid, String code) {
+		return claimCodeAsync(username, code).thenApply(claimed -> {
+			if (claimed.isPresent()) {
+				// Valid code found
+				if (debug) {
+					logger.info("Player " + username + " (" + uuid + ") authorized successfully with code");
+				}
+				AccountLinkWriter links = accountLinks;
+				if (links != null && uuid != null) {
+					links.offer(new AccountLink(uuid, username, claimed.get().discordId(), System.currentTimeMillis()));
+				}
+				return true;
+			}
+			if (debug) {
+				logger.info("Invalid or expired code for player " + username);
+			}
+			return false;
+		});
+	}
+
+	/**
+	 * Lets concurrent submits of the same username and code share one claim on the storage, and
+	 * answers a pair the storage rejected in the last {@code negativeTtlMillis} without asking it
+	 * again. Rejections by the code index are never remembered.
+	 */
+	public synchronized void startClaimCoalescing(long negativeTtlMillis) {
+		if (claims == null) {
+			claims = new ClaimCoalescer(negativeTtlMillis);
+		}
+	}
+
+	/**
+	 * The single-flight layer in front of code redemption, or null when it is disabled.
+	 */
+	public ClaimCoalescer claimCoalescer() {
+		return claims;
+	}
+
+	/**
+	 * Redeems a code through the storage backend, which guarantees a code can only ever be claimed
+	 * once, even by concurrent submits. Completes with an empty result for a wrong, expired or
+	 * already used code.
+	 */
+	public CompletableFuture<Optional<ClaimedCode>> claimCodeAsync(String username, String code) {
 		// Error boundary: Check database availability
-		if (!isDatabaseAvailable()) {
+		LoginStorage db = storage;
+		if (!isDatabaseAvailable(db)) {
 			logger.severe("Database is not available for authorization!");
-			return false;
+			return CompletableFuture.completedFuture(Optional.empty());
 		}
 
 		// Validate code format: exactly 6 digits
-		if (code == null || !code.matches("^[0-9]{6}$")) {
+		if (CodeFormat.parse(code) == CodeFormat.INVALID) {
 			logger.warning("Invalid code format from player " + username + ": " + (code == null ? "null" : code));
-			return false;
+			return CompletableFuture.completedFuture(Optional.empty());
 		}
 
-		String sql = "SELECT * FROM link_codes WHERE LOWER(mc_username) = LOWER(?) AND code = ? AND expires_at > ?";
+		return redeem(db, username, code).exceptionally(e -> {
+			logger.severe("Database error during authorization: " + e.getMessage());
+			e.printStackTrace();
+			return Optional.empty();
+		});
+	}
 
-		try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-			stmt.setString(1, username);
-			stmt.setString(2, code);
-			stmt.setLong(3, System.currentTimeMillis());
+	/**
+	 * Redeems a well-formed code; fails if the storage does.
+	 */
+	private CompletableFuture<Optional<ClaimedCode>> redeem(LoginStorage db, String username, String code) {
+		// With pushed codes the index is up to date, so it can redeem on its own
+		CodeIndex index = codeIndex();
+		if (index != null && ingestServer != null) {
+			Optional<ClaimedCode> claimed = claimFromMemory(db, index, username, code);
+			// A code given to several players is left to the database
+			if (claimed.isPresent() || !index.isShared(code)) {
+				return CompletableFuture.completedFuture(claimed);
+			}
+		}
 
-			ResultSet rs = stmt.executeQuery();
-			if (rs.next()) {
-				// Valid code found
-				logger.info("Player " + username + " authorized successfully with code");
-
-				// Update mc_uuid in database
-				try (PreparedStatement update = connection
-						.prepareStatement("UPDATE link_codes SET mc_uuid = ? WHERE code = ?")) {
-					update.setString(1, uuid.toString());
-					update.setString(2, code);
-					update.executeUpdate();
+		// Wrong codes are turned away by the in-memory index without a claim. The index trails the
+		// table by up to a poll, so a miss first reads the rows added since then
+		if (index != null && index.check(username, code, System.currentTimeMillis()) == Verdict.NO_MATCH) {
+			return catchUp(index).thenCompose(caughtUp -> {
+				if (caughtUp && !index.contains(username, code, System.currentTimeMillis())) {
+					return CompletableFuture.completedFuture(Optional.<ClaimedCode>empty());
 				}
+				return claimFromDatabase(db, index, username, code);
+			});
+		}
+		return claimFromDatabase(db, index, username, code);
+	}
 
-				// Delete the code after usage
-				try (PreparedStatement delete = connection.prepareStatement("DELETE FROM link_codes WHERE code = ?")) {
-					delete.setString(1, code);
-					delete.executeUpdate();
-				}
+	/**
+	 * Claims through the storage. Only these lookups are shared and their rejections remembered:
+	 * the index answers for itself, and may not know a code yet.
+	 */
+	private CompletableFuture<Optional<ClaimedCode>> claimFromDatabase(LoginStorage db, CodeIndex index, String username,
+			String code) {
+		ClaimCoalescer coalescer = claims;
+		if (coalescer != null) {
+			return coalescer.claim(username, code, () -> claimFromStorage(db, index, username, code));
+		}
+		return claimFromStorage(db, index, username, code);
+	}
 
-				return true;
-			} else {
-				logger.info("Invalid or expired code for player " + username);
-				return false;
+	private CompletableFuture<Optional<ClaimedCode>> claimFromStorage(LoginStorage db, CodeIndex index, String username,
+			String code) {
+		return guard(metrics.time(Query.CLAIM_CODE, db.claimCode(username, code, System.currentTimeMillis()))).thenApply(claimed -> {
+			if (index != null && claimed.isPresent()) {
+				index.remove(claimed.get().code());
 			}
-		} catch (SQLException e) {
-			logger.severe("Database error during authorization: " + e.getMessage());
-			e.printStackTrace();
-			return false;
+			return claimed;
+		});
+	}
+
+	/**
+	 * Reads the rows added since the last poll into the code index. Every miss while a read is in
+	 * flight, or within {@link #CATCH_UP_REUSE_NANOS} of one that succeeded, shares it, so a flood
+	 * of wrong codes costs one read at a time.
+	 *
+	 * @return completes with false if the index could not be brought up to date
+	 */
+	private CompletableFuture<Boolean> catchUp(CodeIndex index) {
+		long missedAt = System.nanoTime();
+		synchronized (catchUpLock) {
+			if (catchUp != null && (!catchUp.isDone()
+					|| missedAt - catchUpStartedAt < CATCH_UP_REUSE_NANOS && catchUp.getNow(false))) {
+				return catchUp;
+			}
+			catchUpStartedAt = missedAt;
+			catchUp = readNewCodes(index);
+			return catchUp;
+		}
+	}
+
+	/** Like {@link #pollCodes}, but a single batch and without blocking. */
+	private CompletableFuture<Boolean> readNewCodes(CodeIndex index) {
+		if (!(storage instanceof ChangeFeed feed)) {
+			return CompletableFuture.completedFuture(false);
 		}
+		long now = System.currentTimeMillis();
+		long fromRowid = index.cursorRowid();
+		CompletableFuture<List<CodeRow>> reused = fromRowid > 0
+				? feed.codesReused(fromRowid, index.cursorExpiresAt(), now, INDEX_POLL_BATCH)
+				: CompletableFuture.completedFuture(List.of());
+		return reused.thenCombine(feed.codesAfter(fromRowid, now, INDEX_POLL_BATCH), (old, added) -> {
+			index.apply(old);
+			index.apply(added);
+			// A full batch may have left rows unread
+			return old.size() < INDEX_POLL_BATCH && added.size() < INDEX_POLL_BATCH;
+		}).exceptionally(e -> false);
 	}
 
+	/**
+	 * Redeems a code from the index and deletes the row in the background. A failed delete is only
+	 * logged: the index already remembers the code as used.
+	 */
+	private Optional<ClaimedCode> claimFromMemory(LoginStorage db, CodeIndex index, String username, String code) {
+		long now = System.currentTimeMillis();
+		ClaimedCode claimed = index.claim(username, code, now);
+		if (claimed == null) {
+			return Optional.empty();
+		}
+
+		guard(metrics.time(Query.CLAIM_CODE, db.claimCode(username, code, now))).exceptionally(e -> {
+			logger.severe("Failed to delete redeemed code of " + username + " from the database: " + e.getMessage());
+			return Optional.empty();
+		});
+		return Optional.of(claimed);
+	}
+
+	// ---------------- SKINS ----------------
+
+	/**
+	 * Reads the stored skin of an account. Fails when the database is unavailable, so callers can
+	 * tell "no skin" apart from "could not look it up".
+	 */
+	public CompletableFuture<Optional<SkinTexture>> loadSkinAsync(String username) {
+		LoginStorage db = storage;
+		if (!isDatabaseAvailable(db)) {
+			return CompletableFuture.failedFuture(new IllegalStateException("Database is not available"));
+		}
+
+		return guard(metrics.time(Query.LOAD_SKIN, db.loadSkin(username)));
+	}
+
+	// ---------------- RECONNECT TOKENS ----------------
+
+	public CompletableFuture<Void> saveReconnectTokenAsync(ReconnectToken token) {
+		LoginStorage db = storage;
+		if (!isDatabaseAvailable(db)) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		return guard(db.saveReconnectToken(token)).exceptionally(e -> {
+			logger.severe("Failed to save reconnect token: " + e.getMessage());
+			return null;
+		});
+	}
+
+	/**
+	 * Reads the tokens that have not expired yet, e.g. to carry them over a restart.
+	 */
+	public CompletableFuture<List<ReconnectToken>> loadReconnectTokensAsync() {
+		LoginStorage db = storage;
+		if (!isDatabaseAvailable(db)) {
+			return CompletableFuture.completedFuture(List.of());
+		}
+
+		return guard(db.liveReconnectTokens(System.currentTimeMillis())).exceptionally(e -> {
+			logger.severe("Failed to load reconnect tokens: " + e.getMessage());
+			return List.of();
+		});
+	}
+
+	public CompletableFuture<Integer> purgeReconnectTokensAsync() {
+		LoginStorage db = storage;
+		if (!isDatabaseAvailable(db)) {
+			return CompletableFuture.completedFuture(0);
+		}
+
+		return guard(db.purgeReconnectTokens(System.currentTimeMillis()));
+	}
+
+	// ---------------- ACCOUNTS ----------------
+
 	/**
 	 * Check if a Minecraft username is registered in the accounts table.
 	 */
 	public boolean isRegistered(String username) {
+		return isRegisteredAsync(username).join();
+	}
+
+	/**
+	 * Non-blocking variant of {@link #isRegistered(String)}.
+	 */
+	public CompletableFuture<Boolean> isRegisteredAsync(String username) {
 		// Error boundary: Check database availability
-		if (!isDatabaseAvailable()) {
+		LoginStorage db = storage;
+		if (!isDatabaseAvailable(db)) {
 			logger.severe("Database is not available for registration check!");
-			return false;
+			return CompletableFuture.completedFuture(false);
 		}
 
-		String sql = "SELECT 1 FROM accounts WHERE LOWER(mc_username) = LOWER(?) LIMIT 1";
-
-		try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-			stmt.setString(1, username);
-
-			try (ResultSet rs = stmt.executeQuery()) {
-				return rs.next(); // true if record exists
-			}
-
-		} catch (SQLException e) {
+		return guard(metrics.time(Query.IS_REGISTERED, db.isRegistered(username))).exceptionally(e -> {
 			logger.severe("Database error in isRegistered(): " + e.getMessage());
 			e.printStackTrace();
 			return false;
-		}
+		});
 	}
 }
@@ -1,12 +1,56 @@
 package com.example.loginplugin;
 
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import io.papermc.paper.command.brigadier.BasicCommand;
+import io.papermc.paper.command.brigadier.CommandSourceStack;
+import io.papermc.paper.plugin.lifecycle.event.types.LifecycleEvents;
+import io.papermc.paper.registry.RegistryAccess;
+import io.papermc.paper.registry.RegistryKey;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+
+import com.example.loginplugin.accounts.AccountLinkWriter;
+import com.example.loginplugin.audit.AuditLog;
+import com.example.loginplugin.audit.AuditSettings;
+import com.example.loginplugin.codes.ClaimCoalescer;
+import com.example.loginplugin.database.MaintenanceSettings;
+import com.example.loginplugin.database.SqliteMaintenance;
+import com.example.loginplugin.dialogs.LoginCodeDialog;
+import com.example.loginplugin.dialogs.LoginDialogs;
+import com.example.loginplugin.ingest.CodeIngestServer;
+import com.example.loginplugin.ingest.IngestSettings;
+import com.example.loginplugin.metrics.LoginMetrics;
+import com.example.loginplugin.metrics.MetricsServer;
+import com.example.loginplugin.security.LoginRateLimiter;
+import com.example.loginplugin.security.ReconnectTokens;
+import com.example.loginplugin.session.AdmissionQueue;
+import com.example.loginplugin.session.LoginSessionEngine;
+import com.example.loginplugin.session.SubmitPipeline;
+import com.example.loginplugin.skin.SkinStore;
+import com.example.loginplugin.skin.VisibilityRefresher;
+import com.example.loginplugin.storage.CircuitBreaker;
+import com.example.loginplugin.storage.HealthSettings;
+import com.example.loginplugin.storage.StorageSettings;
+
 public class LoginPlugin extends JavaPlugin {
 
 	private static LoginPlugin instance;
 	private LoginManager loginManager;
+	private LoginSessionEngine sessionEngine;
+	private AdmissionQueue admissionQueue;
+	private SubmitPipeline submitPipeline;
+	private LoginRateLimiter rateLimiter;
+	private ReconnectTokens reconnectTokens;
+	private SkinStore skinStore;
+	private VisibilityRefresher visibilityRefresher;
+	private LoginDialogs dialogs;
+	private LoginMetrics metrics;
+	private AuditLog auditLog;
+	private MetricsServer metricsServer;
 	private Logger logger;
 
 	@Override
@@ -18,7 +62,137 @@ public class LoginPlugin extends JavaPlugin {
 	public void onEnable() {
 		instance = this;
 		this.logger = getLogger();
-		this.loginManager = new LoginManager(logger);
+		this.metrics = new LoginMetrics();
+		// Opened by the startup phase below, off the main thread
+		this.loginManager = LoginManager.unopened(logger, StorageSettings.from(getConfig().getConfigurationSection("storage"),
+				getConfig().getConfigurationSection("database")), metrics, getConfig().getBoolean("debug", false));
+		// Refuse logins at once while the database is down, and reconnect in the background
+		loginManager.superviseStorage(HealthSettings.from(getConfig().getConfigurationSection("storage.health")), () -> {
+			if (sessionEngine != null) {
+				sessionEngine.failAll();
+			}
+		});
+		if (getConfig().getBoolean("codes.index.enabled", true)) {
+			loginManager.startCodeIndex(getConfig().getLong("codes.index.poll_interval_ms", 1000));
+		}
+		if (getConfig().getBoolean("codes.coalesce.enabled", true)) {
+			loginManager.startClaimCoalescing(getConfig().getLong("codes.coalesce.negative_ttl_ms", 2000));
+			ClaimCoalescer claims = loginManager.claimCoalescer();
+			metrics.gauge("code_claims_coalesced", "Code submits that shared a lookup already in flight.",
+					claims::coalesced);
+			metrics.gauge("code_claims_negative_hits", "Code submits rejected from recently rejected pairs.",
+					claims::negativeHits);
+		}
+		if (getConfig().getBoolean("codes.ingest.enabled", false)) {
+			loginManager.startCodeIngest(IngestSettings.from(getConfig().getConfigurationSection("codes.ingest")));
+		}
+		if (getConfig().getBoolean("maintenance.enabled", true)) {
+			loginManager.startMaintenance(MaintenanceSettings.from(getConfig().getConfigurationSection("maintenance")));
+		}
+		if (getConfig().getBoolean("accounts.prefilter.enabled", true)) {
+			loginManager.startAccountSnapshot(getConfig().getLong("accounts.prefilter.poll_interval_ms", 5000),
+					getConfig().getLong("accounts.prefilter.full_reload_seconds", 300) * 1000L);
+		}
+		if (getConfig().getBoolean("accounts.linkage.enabled", true)) {
+			loginManager.startAccountLinkage(getConfig().getInt("accounts.linkage.batch_size", 100),
+					getConfig().getLong("accounts.linkage.flush_interval_ms", 2000));
+			metrics.gauge("account_links_pending", "Account links waiting to be written.", () -> {
+				AccountLinkWriter links = loginManager.accountLinks();
+				return links == null ? 0 : links.pendingCount();
+			});
+			metrics.gauge("account_links_written", "Account links written to the accounts table.", () -> {
+				AccountLinkWriter links = loginManager.accountLinks();
+				return links == null ? 0 : links.written();
+			});
+		}
+		loginManager.startup(getConfig().getLong("storage.startup.max_wait_seconds", 20) * 1000L);
+		metrics.gauge("startup_ready_ms", "Time from enabling until logins could be served; -1 while starting.",
+				loginManager::readyMillis);
+
+		this.skinStore = new SkinStore(loginManager::loadSkinAsync, getConfig().getInt("skins.cache_size", 1000),
+				getConfig().getLong("skins.cache_ttl_seconds", 600), TimeUnit.SECONDS);
+		this.visibilityRefresher = new VisibilityRefresher(this, getConfig().getInt("skins.refresh.pairs_per_tick", 2000),
+				getConfig().getLong("skins.refresh.delay_ticks", 20));
+		visibilityRefresher.start();
+		this.sessionEngine = new LoginSessionEngine(getConfig().getLong("login.timeout_seconds", 60),
+				getConfig().getLong("login.sweep_interval_seconds", 30), TimeUnit.SECONDS);
+
+		if (getConfig().getBoolean("login.admission.enabled", true)) {
+			this.admissionQueue = AdmissionQueue.from(getConfig().getConfigurationSection("login.admission"));
+			metrics.gauge("admission_active", "Players admitted to the login dialog.", admissionQueue::activeCount);
+			metrics.gauge("admission_waiting", "Players waiting for a login slot.", admissionQueue::waitingCount);
+			metrics.gauge("admission_turned_away", "Players disconnected because the login queue was full.",
+					admissionQueue::turnedAwayCount);
+		}
+
+		if (getConfig().getBoolean("audit.enabled", true)) {
+			startAuditLog(AuditSettings.from(getConfig().getConfigurationSection("audit")));
+		}
+
+		this.submitPipeline = SubmitPipeline.from(getConfig().getConfigurationSection("login.submit"));
+		metrics.gauge("submits_queued", "Submitted codes waiting to be checked.", submitPipeline::queuedCount);
+		metrics.gauge("submits_refused", "Submits refused because too many codes were waiting to be checked.",
+				submitPipeline::refusedCount);
+
+		if (getConfig().getBoolean("rate_limit.enabled", true)) {
+			this.rateLimiter = LoginRateLimiter.from(getConfig().getConfigurationSection("rate_limit"));
+			// Forget idle buckets once a minute
+			getServer().getScheduler().runTaskTimerAsynchronously(this, rateLimiter::evictIdle, 1200L, 1200L);
+		}
+
+		if (getConfig().getBoolean("reconnect.enabled", false)) {
+			startReconnectTokens(getConfig().getLong("reconnect.ttl_seconds", 300),
+					getConfig().getBoolean("reconnect.persist", false));
+		}
+
+		metrics.gauge("sessions_awaiting", "Players waiting on the login dialog.", sessionEngine::parkedCount);
+		metrics.gauge("sessions_swept", "Stale login sessions reclaimed by the sweep.", sessionEngine::sweptCount);
+		metrics.gauge("db_read_queue_depth", "Read tasks waiting for a reader thread.",
+				() -> loginManager.readStats() == null ? 0 : loginManager.readStats().queueDepth());
+		metrics.gauge("db_write_queue_depth", "Write tasks waiting for the writer thread.",
+				() -> loginManager.writeStats() == null ? 0 : loginManager.writeStats().queueDepth());
+		// Registered up front: both may only start once the storage supervisor has reconnected
+		if (getConfig().getBoolean("codes.ingest.enabled", false)) {
+			metrics.gauge("ingest_codes_issued", "Codes pushed by the Discord bot.", () -> {
+				CodeIngestServer ingest = loginManager.ingestServer();
+				return ingest == null ? 0 : ingest.issued();
+			});
+			metrics.gauge("ingest_bad_frames", "Ingestion connections dropped for a bad frame.", () -> {
+				CodeIngestServer ingest = loginManager.ingestServer();
+				return ingest == null ? 0 : ingest.badFrames();
+			});
+		}
+		if (getConfig().getBoolean("maintenance.enabled", true)) {
+			metrics.gauge("maintenance_codes_purged", "Expired codes deleted by database maintenance.", () -> {
+				SqliteMaintenance maintenance = loginManager.maintenance();
+				return maintenance == null ? 0 : maintenance.purged();
+			});
+			metrics.gauge("maintenance_last_run_ms", "Duration of the latest maintenance run.", () -> {
+				SqliteMaintenance maintenance = loginManager.maintenance();
+				return maintenance == null || maintenance.last() == null ? 0 : maintenance.last().millis();
+			});
+		}
+		CircuitBreaker breaker = loginManager.breaker();
+		metrics.gauge("storage_available", "1 while logins can reach the database.",
+				() -> loginManager.isAvailable() ? 1 : 0);
+		metrics.gauge("storage_breaker_state", "Circuit breaker: 0 closed, 1 open, 2 half-open.",
+				() -> breaker.state().ordinal());
+		metrics.gauge("storage_breaker_opened", "Times the circuit breaker opened.", breaker::openedCount);
+		metrics.gauge("storage_breaker_closed", "Times the circuit breaker closed after a successful probe.",
+				breaker::closedCount);
+		metrics.gauge("storage_requests_rejected", "Requests refused while the circuit breaker was open.",
+				breaker::rejectedCount);
+		metrics.gauge("storage_reconnect_attempts", "Reconnect attempts and probes by the storage supervisor.",
+				loginManager::reconnectAttempts);
+		if (getConfig().getBoolean("metrics.http.enabled", false)) {
+			startMetricsServer(getConfig().getString("metrics.http.bind", "127.0.0.1"),
+					getConfig().getInt("metrics.http.port", 9464));
+		}
+
+		// Dialogs registered at bootstrap, looked up once
+		this.dialogs = new LoginDialogs(key -> RegistryAccess.registryAccess().getRegistry(RegistryKey.DIALOG).get(key),
+				LoginCodeDialog.locales(getConfig()), getConfig());
+		registerReloadCommand();
 
 		// Register listener
 		getServer().getPluginManager().registerEvents(new ServerJoinListener(instance), this);
@@ -28,6 +202,29 @@ public class LoginPlugin extends JavaPlugin {
 
 	@Override
 	public void onDisable() {
+		// Release anyone still waiting in the configuration phase
+		if (admissionQueue != null) {
+			admissionQueue.shutdown();
+		}
+		if (sessionEngine != null) {
+			sessionEngine.shutdown();
+		}
+		// Checks still running need the database, which is closed below
+		if (submitPipeline != null) {
+			submitPipeline.shutdown();
+		}
+		// After the sessions, so the players released above are still recorded
+		if (auditLog != null) {
+			auditLog.stop();
+		}
+
+		if (metricsServer != null) {
+			metricsServer.stop();
+		}
+		if (visibilityRefresher != null) {
+			visibilityRefresher.stop();
+		}
+
 		// Close database connection properly
 		if (loginManager != null) {
 			loginManager.closeDatabase();
@@ -35,10 +232,138 @@ public class LoginPlugin extends JavaPlugin {
 		logger.info("LoginPlugin disabled!");
 	}
 
+	private void startReconnectTokens(long ttlSeconds, boolean persist) {
+		if (persist) {
+			this.reconnectTokens = new ReconnectTokens(ttlSeconds, TimeUnit.SECONDS, loginManager::saveReconnectTokenAsync);
+			// Tokens issued meanwhile are kept; restore() only adds
+			loginManager.whenReady().thenCompose(readyMillis -> loginManager.loadReconnectTokensAsync()).thenAccept(tokens -> {
+				reconnectTokens.restore(tokens);
+				logger.info("Restored " + reconnectTokens.size() + " reconnect tokens.");
+			});
+		} else {
+			this.reconnectTokens = new ReconnectTokens(ttlSeconds, TimeUnit.SECONDS, token -> {
+			});
+		}
+
+		// Forget expired tokens once a minute
+		getServer().getScheduler().runTaskTimerAsynchronously(this, () -> {
+			reconnectTokens.evictExpired();
+			if (persist) {
+				loginManager.purgeReconnectTokensAsync();
+			}
+		}, 1200L, 1200L);
+		metrics.gauge("reconnect_tokens", "Live reconnect tokens.", reconnectTokens::size);
+	}
+
+	/**
+	 * {@code /loginreload} re-reads config.yml and rebuilds the dialog text. Turning
+	 * {@code reconnect.enabled} off revokes every remembered session; turning it on needs a restart.
+	 */
+	private void registerReloadCommand() {
+		BasicCommand reload = new BasicCommand() {
+			@Override
+			public void execute(CommandSourceStack source, String[] args) {
+				reloadConfig();
+				int locales = dialogs.reload(getConfig());
+				source.getSender().sendMessage(Component.text(
+						"LoginPlugin dialogs reloaded (" + locales + " extra locale(s)).", NamedTextColor.GREEN));
+				logger.info("Dialog text reloaded by " + source.getSender().getName() + ".");
+				// Switching remembered sessions off takes effect for everyone already holding one
+				if (reconnectTokens != null) {
+					int revoked = reconnectTokens.setEnabled(getConfig().getBoolean("reconnect.enabled", false));
+					if (revoked > 0) {
+						logger.info("Remembered sessions are disabled - revoked " + revoked + " reconnect tokens.");
+					}
+				}
+			}
+
+			@Override
+			public String permission() {
+				return "loginplugin.reload";
+			}
+		};
+		getLifecycleManager().registerEventHandler(LifecycleEvents.COMMANDS,
+				event -> event.registrar().register("loginreload", "Reloads the login dialog text", reload));
+	}
+
+	private void startAuditLog(AuditSettings settings) {
+		try {
+			this.auditLog = AuditLog.start(logger, settings);
+		} catch (IOException e) {
+			logger.severe("Failed to open audit log in " + settings.directory() + ": " + e.getMessage());
+			e.printStackTrace();
+			return;
+		}
+		metrics.gauge("audit_records_written", "Login attempts written to the audit log.", auditLog::written);
+		metrics.gauge("audit_records_dropped", "Audit records lost because the writer fell behind.", auditLog::dropped);
+		metrics.gauge("audit_commits", "Batches written to the audit log together.", auditLog::commits);
+	}
+
+	private void startMetricsServer(String bind, int port) {
+		try {
+			this.metricsServer = MetricsServer.start(metrics, bind, port);
+			logger.info("Metrics available at http://" + bind + ":" + port + "/metrics");
+		} catch (IOException e) {
+			logger.severe("Failed to start metrics endpoint on " + bind + ":" + port + ": " + e.getMessage());
+		}
+	}
+
 	public LoginManager getLoginManager() {
 		return loginManager;
 	}
 
+	public LoginSessionEngine getSessionEngine() {
+		return sessionEngine;
+	}
+
+	/**
+	 * Login slot cap, or null when admission control is disabled.
+	 */
+	public AdmissionQueue getAdmissionQueue() {
+		return admissionQueue;
+	}
+
+	/**
+	 * Record of login attempts, or null when auditing is disabled.
+	 */
+	public AuditLog getAuditLog() {
+		return auditLog;
+	}
+
+	public SubmitPipeline getSubmitPipeline() {
+		return submitPipeline;
+	}
+
+	public SkinStore getSkinStore() {
+		return skinStore;
+	}
+
+	public LoginDialogs getDialogs() {
+		return dialogs;
+	}
+
+	public VisibilityRefresher getVisibilityRefresher() {
+		return visibilityRefresher;
+	}
+
+	/**
+	 * Remembered sessions, or null when the feature is disabled.
+	 */
+	public ReconnectTokens getReconnectTokens() {
+		return reconnectTokens;
+	}
+
+	/**
+	 * Login attempt throttle, or null when rate limiting is disabled.
+	 */
+	public LoginRateLimiter getRateLimiter() {
+		return rateLimiter;
+	}
+
+	public LoginMetrics getMetrics() {
+		return metrics;
+	}
+
 	public Logger getPluginLogger() {
 		return logger;
 	}
@@ -1,28 +1,53 @@
 package com.example.loginplugin;
 
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.plugin.Plugin;
 
+import com.destroystokyo.paper.ClientOption;
 import com.destroystokyo.paper.event.player.PlayerConnectionCloseEvent;
 import com.destroystokyo.paper.profile.PlayerProfile;
 import com.destroystokyo.paper.profile.ProfileProperty;
+import com.example.loginplugin.accounts.AccountSnapshot;
+import com.example.loginplugin.audit.AuditEvent;
+import com.example.loginplugin.audit.AuditLog;
+import com.example.loginplugin.dialogs.LoginCodeDialog.Kind;
+import com.example.loginplugin.dialogs.LoginDialogs;
+import com.example.loginplugin.metrics.LoginMetrics;
+import com.example.loginplugin.metrics.LoginMetrics.Outcome;
+import com.example.loginplugin.security.LoginRateLimiter;
+import com.example.loginplugin.security.ReconnectTokens;
+import com.example.loginplugin.session.AdmissionQueue;
+import com.example.loginplugin.session.AdmissionQueue.Ticket;
+import com.example.loginplugin.session.LoginSessionEngine;
+import com.example.loginplugin.session.LoginSession;
+import com.example.loginplugin.session.LoginSession.State;
+import com.example.loginplugin.session.SubmitPipeline;
+import com.example.loginplugin.skin.SkinStore;
+import com.example.loginplugin.skin.SkinTexture;
+import com.example.loginplugin.skin.VisibilityRefresher;
 
 import io.papermc.paper.connection.PlayerConfigurationConnection;
+import io.papermc.paper.connection.PlayerConnection;
 import io.papermc.paper.dialog.DialogResponseView;
 import io.papermc.paper.event.connection.configuration.AsyncPlayerConnectionConfigureEvent;
 import io.papermc.paper.event.player.PlayerCustomClickEvent;
-import io.papermc.paper.registry.RegistryAccess;
-import io.papermc.paper.registry.RegistryKey;
 import net.kyori.adventure.dialog.DialogLike;
 import net.kyori.adventure.key.Key;
 import net.kyori.adventure.text.Component;
@@ -30,31 +55,238 @@ import net.kyori.adventure.text.format.NamedTextColor;
 
 public class ServerJoinListener implements Listener {
 
-    private final LoginPlugin plugin;
+    private final Plugin plugin;
     private final LoginManager loginManager;
+    private final LoginSessionEngine sessions;
+    private final AdmissionQueue admission;
+    private final SubmitPipeline submits;
+    private final LoginRateLimiter rateLimiter;
+    private final ReconnectTokens reconnectTokens;
+    private final SkinStore skins;
+    private final VisibilityRefresher refresher;
+    private final LoginDialogs dialogs;
+    private final long skinLookupTimeoutMillis;
+    private final LoginMetrics metrics;
+    private final AuditLog audit;
+    private final boolean debug;
     private final Logger logger;
 
-    private final Map<UUID, CompletableFuture<Boolean>> awaiting = new ConcurrentHashMap<>();
-    private final Map<UUID, Integer> attemptCounts = new ConcurrentHashMap<>();
-    private final Map<UUID, Boolean> successfulLogins = new ConcurrentHashMap<>();
+    // Skins that were not resolved in time at pre-login, applied on join instead
+    private final Map<UUID, CompletableFuture<SkinTexture>> pendingSkins = new ConcurrentHashMap<>();
 
     // Maximum failed attempts before disconnect
     private static final int MAX_ATTEMPTS = 3;
 
-    // Mocked skin texture data
-    private static final String SKIN_TEXTURE_VALUE = "ewogICJ0aW1lc3RhbXAiIDogMTYyMzg1ODYzMDY2NCwKICAicHJvZmlsZUlkIiA6ICIyYzEwNjRmY2Q5MTc0MjgyODRlM2JmN2ZhYTdlM2UxYSIsCiAgInByb2ZpbGVOYW1lIiA6ICJOYWVtZSIsCiAgInNpZ25hdHVyZVJlcXVpcmVkIiA6IHRydWUsCiAgInRleHR1cmVzIiA6IHsKICAgICJTS0lOIiA6IHsKICAgICAgInVybCIgOiAiaHR0cDovL3RleHR1cmVzLm1pbmVjcmFmdC5uZXQvdGV4dHVyZS8zOTI3ZTZkZWZjZjNlZTgwMzRkYjBmMTI2YTRjN2M0ZGQ2ODhlYTkwZmVkMzkzMWUyZjE5NDM3M2YzYjRmMjdhIgogICAgfQogIH0KfQ==";
-    private static final String SKIN_TEXTURE_SIGNATURE = "HEqglaa6nzRkcipQYG8k/HZq+5fhJcE2kGZM9uuG3Tr+PsUZvMco5KaDjItgUPw/Meq9oeQ53oAqEsUiZ2piQ7gnX6jbrPgwsHuW13ZWS4dw0z0XaQo2S8X2k079jU8D5x+oPVOFkpKuijXzA9p9keHjSMR7oK+yK+BuEnc45FsQw+D0Zp+cWsYfxGuytYHQWqc0B0Q/MDpqKL+DEUJ4nsI/VVtJm0jcyf/l5TZil6YuO4bOQo6lSOOD73mMb+pj5Xq/acRRbYsSqfeRad69fByE37MUZQyAH/JUiGDHoK5iSwGOa5NwZRUwx61T10X7us6PxGwq30jFivdJ62YUtgHU/twwbUu6S2+GyPdPxeFf+leU9iNfEVghARDkKHZbIaURMqkPsfy6aGvxodyu80goqE8cbYCCZqaQYB+89dl5/ANP7sNoSVcCWHO30Gd823IHVqACf97IpUhV7ob+vHIu6P3q3FXShnKApRC2wMyFB6W8xBqdex0z7lqWO48JaokXqPEyC66cnhkjJEESokahLzIIk4JFzMwFJFZM6h8i5I9lja7q5LzsiRc9k1ZG4l+PqJjTTgOXabkZXp1xfrrXZY2MheZUyIjkoNP6BeqHqbPZ4an1l7WpRinsvl/ggF7FA0EAc8XLm6z/31kIdsVpSbfWjxeL0RT8UqOrGQw=";
+    // How long a join waits for the plugin to finish opening the database
+    private static final long STARTUP_WAIT_MILLIS = 30_000;
+
+    private static final Component STARTING_MESSAGE = Component.text(
+            "The server is still starting. Please try again in a moment.", NamedTextColor.YELLOW);
+
+    private static final Component UNAVAILABLE_MESSAGE = Component.text(
+            "Logging in is not possible right now because the database is unreachable. Please try again in a minute.",
+            NamedTextColor.RED);
 
     public ServerJoinListener(LoginPlugin plugin) {
-        this.plugin = plugin;
-        this.loginManager = plugin.getLoginManager();
-        this.logger = plugin.getLogger();
+        this(new Builder()
+                .plugin(plugin)
+                .loginManager(plugin.getLoginManager())
+                .sessions(plugin.getSessionEngine())
+                .admission(plugin.getAdmissionQueue())
+                .submits(plugin.getSubmitPipeline())
+                .rateLimiter(plugin.getRateLimiter())
+                .reconnectTokens(plugin.getReconnectTokens())
+                .skins(plugin.getSkinStore(), plugin.getVisibilityRefresher(),
+                        plugin.getConfig().getLong("skins.lookup_timeout_ms", 500))
+                .metrics(plugin.getMetrics())
+                .audit(plugin.getAuditLog())
+                .dialogs(plugin.getDialogs())
+                .debug(plugin.getConfig().getBoolean("debug", false))
+                .logger(plugin.getLogger()));
+    }
+
+    private ServerJoinListener(Builder builder) {
+        this.plugin = builder.plugin;
+        this.loginManager = builder.loginManager;
+        this.sessions = builder.sessions;
+        this.admission = builder.admission;
+        this.submits = builder.submits;
+        this.rateLimiter = builder.rateLimiter;
+        this.reconnectTokens = builder.reconnectTokens;
+        this.skins = builder.skins;
+        this.refresher = builder.refresher;
+        this.metrics = builder.metrics;
+        this.audit = builder.audit;
+        this.dialogs = builder.dialogs;
+        this.skinLookupTimeoutMillis = builder.skinLookupTimeoutMillis;
+        this.debug = builder.debug;
+        this.logger = builder.logger;
+    }
+
+    /**
+     * Wires the listener to explicit collaborators, so it can be driven without a running server.
+     * The login manager, session engine, metrics, dialogs and logger are always required, the skins
+     * from pre-login on. Features marked optional are off while left unset.
+     */
+    static final class Builder {
+
+        private Plugin plugin;
+        private LoginManager loginManager;
+        private LoginSessionEngine sessions;
+        private AdmissionQueue admission;
+        private SubmitPipeline submits;
+        private LoginRateLimiter rateLimiter;
+        private ReconnectTokens reconnectTokens;
+        private SkinStore skins;
+        private VisibilityRefresher refresher;
+        private long skinLookupTimeoutMillis;
+        private LoginMetrics metrics;
+        private AuditLog audit;
+        private LoginDialogs dialogs;
+        private boolean debug;
+        private Logger logger;
+
+        Builder plugin(Plugin plugin) {
+            this.plugin = plugin;
+            return this;
+        }
+
+        Builder loginManager(LoginManager loginManager) {
+            this.loginManager = loginManager;
+            return this;
+        }
+
+        Builder sessions(LoginSessionEngine sessions) {
+            this.sessions = sessions;
+            return this;
+        }
+
+        /** Optional: caps the players on the login dialog at once. */
+        Builder admission(AdmissionQueue admission) {
+            this.admission = admission;
+            return this;
+        }
+
+        /** Optional: checks submitted codes off the event thread instead of on it. */
+        Builder submits(SubmitPipeline submits) {
+            this.submits = submits;
+            return this;
+        }
+
+        /** Optional. */
+        Builder rateLimiter(LoginRateLimiter rateLimiter) {
+            this.rateLimiter = rateLimiter;
+            return this;
+        }
+
+        /** Optional. */
+        Builder reconnectTokens(ReconnectTokens reconnectTokens) {
+            this.reconnectTokens = reconnectTokens;
+            return this;
+        }
+
+        Builder skins(SkinStore skins, VisibilityRefresher refresher, long lookupTimeoutMillis) {
+            this.skins = skins;
+            this.refresher = refresher;
+            this.skinLookupTimeoutMillis = lookupTimeoutMillis;
+            return this;
+        }
+
+        Builder metrics(LoginMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /** Optional: records every login attempt. */
+        Builder audit(AuditLog audit) {
+            this.audit = audit;
+            return this;
+        }
+
+        /** The login dialogs by client locale. */
+        Builder dialogs(LoginDialogs dialogs) {
+            this.dialogs = dialogs;
+            return this;
+        }
+
+        Builder debug(boolean debug) {
+            this.debug = debug;
+            return this;
+        }
+
+        Builder logger(Logger logger) {
+            this.logger = logger;
+            return this;
+        }
+
+        ServerJoinListener build() {
+            return new ServerJoinListener(this);
+        }
+    }
+
+    @EventHandler
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+
+        // Held here, off the main thread, until the database is open and the caches are loaded
+        if (!loginManager.awaitReady(STARTUP_WAIT_MILLIS)) {
+            logger.warning("Still starting up - turning " + event.getName() + " away");
+            audit(AuditEvent.STARTING, event.getUniqueId(), event.getName(), event.getAddress(), 0);
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, STARTING_MESSAGE);
+            return;
+        }
+
+        // Unregistered names can never receive a code, so don't let them reach the dialog
+        AccountSnapshot accounts = loginManager.accountSnapshot();
+        if (accounts != null && !accounts.mightBeRegistered(event.getName())) {
+            if (debug) {
+                logger.info("Player " + event.getName() + " is not registered - rejected before configuration");
+            }
+            audit(AuditEvent.NOT_REGISTERED, event.getUniqueId(), event.getName(), event.getAddress(), 0);
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_WHITELIST,
+                    Component.text("This account is not registered. Link it through our Discord first.",
+                            NamedTextColor.RED));
+            return;
+        }
+
+        // Put the account's skin on the login profile, so the client spawns with it and nobody
+        // has to be re-sent the player afterwards
+        CompletableFuture<SkinTexture> skin = skins.lookup(event.getName());
+        try {
+            PlayerProfile profile = event.getPlayerProfile();
+            applyTexture(profile, skin.get(skinLookupTimeoutMillis, TimeUnit.MILLISECONDS));
+            event.setPlayerProfile(profile);
+        } catch (TimeoutException e) {
+            logger.warning("Skin lookup for " + event.getName() + " is slow - applying it after join instead");
+            pendingSkins.put(event.getUniqueId(), skin);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.severe("Failed to resolve skin for player " + event.getName() + ": " + e.getCause().getMessage());
+        }
+    }
+
+    private static void applyTexture(PlayerProfile profile, SkinTexture skin) {
+        // Remove existing textures
+        profile.removeProperty("textures");
+
+        // Add new skin texture with value and signature
+        profile.setProperty(new ProfileProperty("textures", skin.value(), skin.signature()));
     }
 
     @EventHandler
     void onPlayerConfigure(AsyncPlayerConnectionConfigureEvent event) {
-        PlayerConfigurationConnection connection = event.getConnection();
+        configure(event.getConnection());
+    }
 
+    /**
+     * Holds the connection in the configuration phase until a code is accepted, the player gives
+     * up or the session times out.
+     */
+    void configure(PlayerConfigurationConnection connection) {
+        long startedAt = System.nanoTime();
         UUID uuid = connection.getProfile().getId();
         String playerName = connection.getProfile().getName();
 
@@ -62,86 +294,229 @@ public class ServerJoinListener implements Listener {
             return;
         }
 
-        logger.info("========================================");
-        logger.info("Player " + playerName + " entered configuration phase");
-        logger.info("This is when 'Connecting to world...' screen is shown");
-        logger.info("========================================");
+        // Normally already waited for at pre-login
+        if (!loginManager.awaitReady(STARTUP_WAIT_MILLIS)) {
+            logger.warning("Still starting up - disconnecting " + playerName);
+            audit(AuditEvent.STARTING, uuid, playerName, remoteAddress(connection), 0);
+            connection.disconnect(STARTING_MESSAGE);
+            return;
+        }
+
+        // Don't even show the dialog to an address or name that is still throttled
+        if (rateLimiter != null && rateLimiter.isLimited(remoteAddress(connection), playerName)) {
+            logger.warning("Player " + playerName + " is rate limited - disconnecting before showing the dialog");
+            audit(AuditEvent.THROTTLED, uuid, playerName, remoteAddress(connection), 0);
+            connection.disconnect(Component.text("Too many login attempts. Please try again later.", NamedTextColor.RED));
+            return;
+        }
+
+        // Logged in with a code from this address moments ago: let them straight through
+        if (reconnectTokens != null && reconnectTokens.redeem(uuid, remoteAddress(connection))) {
+            metrics.configurationFinished(playerName, startedAt, Outcome.RESUMED);
+            audit(AuditEvent.RESUMED, uuid, playerName, remoteAddress(connection), 0);
+            if (debug) {
+                logger.info("Player " + playerName + " rejoined on a reconnect token - skipping the login dialog");
+            }
+            return;
+        }
+
+        if (debug) {
+            logger.info("========================================");
+            logger.info("Player " + playerName + " entered configuration phase");
+            logger.info("This is when 'Connecting to world...' screen is shown");
+            logger.info("========================================");
+        }
+
+        if (turnAwayIfUnavailable(connection, playerName, startedAt)) {
+            return;
+        }
+
+        if (admission == null) {
+            awaitLogin(connection, uuid, playerName, startedAt);
+            return;
+        }
+
+        Ticket ticket = admit(connection, uuid, playerName);
+        if (ticket == null) {
+            return;
+        }
+        try {
+            awaitLogin(connection, uuid, playerName, startedAt);
+        } finally {
+            admission.release(ticket);
+        }
+    }
+
+    /**
+     * Waits for a free login slot, showing the player their place in line meanwhile.
+     *
+     * @return the admitted ticket, or null if the player was turned away or left
+     */
+    private Ticket admit(PlayerConfigurationConnection connection, UUID uuid, String playerName) {
+        // With the prefilter on, everyone who got this far is registered
+        AccountSnapshot accounts = loginManager.accountSnapshot();
+        boolean known = accounts != null && accounts.isReady();
+        Ticket ticket = admission.enter(uuid, known && accounts.mightBeRegistered(playerName));
+        if (ticket == null) {
+            logger.warning("Login queue is full - disconnecting " + playerName);
+            audit(AuditEvent.QUEUE_FULL, uuid, playerName, remoteAddress(connection), 0);
+            connection.disconnect(Component.text("The server is busy. Please try again in a minute.", NamedTextColor.RED));
+            return null;
+        }
+        if (ticket.isAdmitted()) {
+            return ticket;
+        }
+
+        if (!known) {
+            // Moves up once the lookup shows the account exists; only players who have to wait pay for it
+            loginManager.isRegisteredAsync(playerName).thenAccept(registered -> {
+                if (registered) {
+                    admission.promote(ticket);
+                }
+            });
+        }
+
+        String locale = connection.getClientOption(ClientOption.LOCALE);
+        int shown = 0;
+        try {
+            while (true) {
+                int position = admission.position(ticket);
+                if (position == 0) {
+                    break;
+                }
+                if (position != shown) {
+                    connection.getAudience().showDialog(dialogs.queue(locale, position));
+                    shown = position;
+                }
+                ticket.await(admission.updateIntervalMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!ticket.isAdmitted()) {
+            admission.release(ticket);
+            if (debug) {
+                logger.info("Player " + playerName + " left the login queue");
+            }
+            return null;
+        }
+        if (debug) {
+            logger.info("Player " + playerName + " admitted after waiting in the login queue");
+        }
+        return ticket;
+    }
 
-        // Initialize attempt counter for this player
-        attemptCounts.put(uuid, 0);
+    /**
+     * Disconnects the player right away while no code can be checked, rather than leaving them
+     * on a dialog that can only time out.
+     *
+     * @return true if the player was disconnected
+     */
+    private boolean turnAwayIfUnavailable(PlayerConfigurationConnection connection, String playerName, long startedAt) {
+        if (loginManager.isAvailable()) {
+            return false;
+        }
+        logger.warning("Database is unavailable - disconnecting " + playerName);
+        metrics.configurationFinished(playerName, startedAt, Outcome.UNAVAILABLE);
+        audit(AuditEvent.UNAVAILABLE, connection.getProfile().getId(), playerName, remoteAddress(connection), 0);
+        connection.disconnect(UNAVAILABLE_MESSAGE);
+        return true;
+    }
+
+    /**
+     * Shows the login dialog and blocks until the session is over.
+     */
+    private void awaitLogin(PlayerConfigurationConnection connection, UUID uuid, String playerName, long startedAt) {
+        // Checked again for players admitted from the queue
+        if (turnAwayIfUnavailable(connection, playerName, startedAt)) {
+            return;
+        }
 
         // show initial dialog and block until validation completes
-        CompletableFuture<Boolean> future = new CompletableFuture<>();
-        future.completeOnTimeout(false, 60, TimeUnit.SECONDS);
-        awaiting.put(uuid, future);
+        LoginSession session = sessions.park(uuid, playerName);
 
-        logger.info("Player " + playerName + " - Showing login dialog now...");
+        if (debug) {
+            logger.info("Player " + playerName + " - Showing login dialog now...");
+        }
 
-        DialogLike dialog = RegistryAccess.registryAccess().getRegistry(RegistryKey.DIALOG)
-                .get(Key.key("myplugin:login_code"));
+        DialogLike dialog = dialogs.get(Kind.LOGIN, connection.getClientOption(ClientOption.LOCALE));
+        session.dialogShown();
         connection.getAudience().showDialog(dialog);
 
-        logger.info("Player " + playerName + " - Waiting for code submission (FROZEN on 'Connecting to world...')");
-
-        boolean ok = future.join(); // freeze until correct code
+        if (debug) {
+            logger.info("Player " + playerName + " - Waiting for code submission (FROZEN on 'Connecting to world...')");
+        }
 
-        logger.info("Player " + playerName + " - Code validation completed. Result: " + (ok ? "SUCCESS" : "FAILED"));
+        boolean ok = sessions.await(session); // freeze until correct code
+        boolean unavailable = !ok && !loginManager.isAvailable();
+
+        metrics.configurationFinished(playerName, session.createdAt(),
+                ok ? Outcome.SUCCESS : unavailable ? Outcome.UNAVAILABLE
+                        : session.state() == State.TIMED_OUT ? Outcome.TIMEOUT : Outcome.FAILED);
+        // Accepted and rejected codes were recorded as they were submitted
+        if (unavailable) {
+            audit(AuditEvent.UNAVAILABLE, uuid, playerName, remoteAddress(connection), 0);
+        } else if (session.state() == State.TIMED_OUT) {
+            audit(AuditEvent.TIMED_OUT, uuid, playerName, remoteAddress(connection), 0);
+        } else if (session.state() == State.ABANDONED) {
+            audit(AuditEvent.LEFT, uuid, playerName, remoteAddress(connection), 0);
+        }
+        if (debug) {
+            logger.info("Player " + playerName + " - Code validation completed. Result: " + (ok ? "SUCCESS" : "FAILED"));
+        }
 
         connection.getAudience().closeDialog();
-        awaiting.remove(uuid);
-        attemptCounts.remove(uuid);
 
         if (!ok) {
-            logger.info("Player " + playerName + " - Disconnecting due to failed/timed out login");
-            connection.disconnect(Component.text("Login failed or timed out.", NamedTextColor.RED));
-        } else {
+            if (debug) {
+                logger.info("Player " + playerName + " - Disconnecting due to failed/timed out login");
+            }
+            connection.disconnect(unavailable ? UNAVAILABLE_MESSAGE
+                    : Component.text("Login failed or timed out.", NamedTextColor.RED));
+        } else if (debug) {
             logger.info("Player " + playerName + " - Configuration phase complete, allowing join to server");
             logger.info("========================================");
-            // Mark player as successfully logged in so we can set their skin on join
-            successfulLogins.put(uuid, true);
         }
     }
 
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
-        UUID uuid = player.getUniqueId();
 
-        // Check if player successfully logged in
-        if (successfulLogins.remove(uuid)) {
-            logger.info("Player " + player.getName() + " joined - applying skin texture...");
+        // Only players whose skin lookup timed out at pre-login still need it
+        CompletableFuture<SkinTexture> pending = pendingSkins.remove(player.getUniqueId());
+        if (pending == null) {
+            return;
+        }
+
+        pending.thenAccept(skin -> Bukkit.getScheduler().runTask(plugin, () -> {
+            if (!player.isOnline()) {
+                return;
+            }
+            if (debug) {
+                logger.info("Player " + player.getName() + " joined - applying skin texture...");
+            }
 
             try {
                 // Get player profile
                 PlayerProfile profile = player.getPlayerProfile();
-
-                // Remove existing textures
-                profile.removeProperty("textures");
-
-                // Add new skin texture with value and signature
-                profile.setProperty(new ProfileProperty("textures", SKIN_TEXTURE_VALUE, SKIN_TEXTURE_SIGNATURE));
+                applyTexture(profile, skin);
 
                 // Apply the profile to the player
                 player.setPlayerProfile(profile);
 
-                logger.info("Player " + player.getName() + " - Skin texture applied successfully!");
-
-                // Refresh the player's appearance for other players
-                Bukkit.getScheduler().runTaskLater(plugin, () -> {
-                    for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-                        if (!onlinePlayer.equals(player)) {
-                            onlinePlayer.hidePlayer(plugin, player);
-                            onlinePlayer.showPlayer(plugin, player);
-                        }
-                    }
-                    logger.info("Player " + player.getName() + " - Skin refreshed for other players");
-                }, 20L); // Wait 1 second (20 ticks) before refreshing
+                if (debug) {
+                    logger.info("Player " + player.getName() + " - Skin texture applied successfully!");
+                }
 
+                // Refresh the player's appearance for other players, batched with the rest of the wave
+                refresher.request(player);
             } catch (Exception e) {
                 logger.severe("Failed to apply skin texture for player " + player.getName() + ": " + e.getMessage());
                 e.printStackTrace();
             }
-        }
+        }));
     }
 
     @EventHandler
@@ -150,17 +525,22 @@ public class ServerJoinListener implements Listener {
         if (!(event.getCommonConnection() instanceof PlayerConfigurationConnection connection)) {
             return;
         }
+        dialogClicked(connection, event.getIdentifier(), event.getDialogResponseView());
+    }
 
-        Key id = event.getIdentifier();
-
-        logger.info(id.asString());
+    /**
+     * Handles a dialog button press from a player in the configuration phase.
+     */
+    void dialogClicked(PlayerConfigurationConnection connection, Key id, DialogResponseView view) {
+        if (debug) {
+            logger.info(id.asString());
+        }
 
         // Handle submit button
         if (!id.equals(Key.key("myplugin:submit_code"))) {
             return;
         }
 
-        DialogResponseView view = event.getDialogResponseView();
         if (view == null) {
             return;
         }
@@ -173,50 +553,136 @@ public class ServerJoinListener implements Listener {
             return;
         }
 
-        logger.info("Player " + playerName + " attempting login.");
+        // Only a player still on the dialog can submit, and only one code at a time
+        LoginSession session = sessions.session(playerUuid);
+        if (session == null || !session.beginSubmit()) {
+            return;
+        }
+        long roundTrip = metrics.dialogSubmitted(session.dialogShownAt());
+
+        if (debug) {
+            logger.info("Player " + playerName + " attempting login.");
+        }
+
+        // The database went away while the player was on the dialog; awaitLogin explains it
+        if (!loginManager.isAvailable()) {
+            connection.getAudience().closeDialog();
+            session.fail();
+            return;
+        }
+
+        // The event thread also carries other players' packets, so it never waits on the database
+        Runnable check = () -> {
+            try {
+                checkCode(connection, session, playerUuid, playerName, code, roundTrip);
+            } catch (RuntimeException e) {
+                logger.severe("Failed to check login code of " + playerName + ": " + e.getMessage());
+                e.printStackTrace();
+                // Otherwise no further submit would be accepted until the session times out
+                session.cancelSubmit();
+            }
+        };
+        if (submits == null) {
+            check.run();
+        } else if (!submits.submit(check)) {
+            // Not the player's fault: let them submit again without counting an attempt
+            logger.warning("Too many codes waiting to be checked - asking " + playerName + " to submit again");
+            session.cancelSubmit();
+            DialogLike dialog = dialogs.get(Kind.LOGIN, connection.getClientOption(ClientOption.LOCALE));
+            session.dialogShown();
+            connection.getAudience().showDialog(dialog);
+        }
+    }
 
-        Boolean authorized = loginManager.authorizeWithCode(playerName, playerUuid, code);
+    /**
+     * Checks one submitted code and shows the outcome: the session completes, the retry dialog is
+     * shown or the player is disconnected after too many wrong codes.
+     */
+    private void checkCode(PlayerConfigurationConnection connection, LoginSession session, UUID playerUuid,
+            String playerName, String code, long roundTrip) {
+        InetAddress address = remoteAddress(connection);
+        boolean authorized;
+        boolean throttled = false;
+        if (rateLimiter != null && !rateLimiter.tryAcquire(address, playerName)) {
+            // Counts as a failed attempt, but never reaches the database
+            logger.warning("Player " + playerName + " is submitting codes too quickly - attempt refused");
+            authorized = false;
+            throttled = true;
+        } else {
+            authorized = loginManager.authorizeWithCode(playerName, playerUuid, code);
+        }
+        metrics.codeChecked(playerName, roundTrip, authorized);
 
         if (authorized) {
+            audit(AuditEvent.CODE_ACCEPTED, playerUuid, playerName, address, 0);
             // correct — complete and allow join
-            complete(playerUuid, true);
+            if (reconnectTokens != null) {
+                reconnectTokens.issue(playerUuid, address);
+            }
+            session.succeed();
             return;
         } else {
             // wrong code — increment attempt counter
-            int attempts = attemptCounts.getOrDefault(playerUuid, 0) + 1;
-            attemptCounts.put(playerUuid, attempts);
+            int attempts = session.rejectSubmit();
+            audit(throttled ? AuditEvent.SUBMIT_THROTTLED : AuditEvent.CODE_REJECTED, playerUuid, playerName, address,
+                    attempts);
 
             logger.warning("Player " + playerName + " failed login attempt " + attempts + "/" + MAX_ATTEMPTS);
 
             // Check if max attempts exceeded
             if (attempts >= MAX_ATTEMPTS) {
                 logger.warning("Player " + playerName + " exceeded max login attempts. Disconnecting.");
+                metrics.maxAttemptsDisconnect();
+                audit(AuditEvent.MAX_ATTEMPTS, playerUuid, playerName, address, attempts);
+                // Someone else may be guessing this account's codes; its owner logs in with a code next time
+                if (reconnectTokens != null) {
+                    reconnectTokens.revoke(playerUuid);
+                }
                 connection.getAudience().closeDialog();
-                complete(playerUuid, false);
+                session.fail();
                 connection.disconnect(Component.text("Too many failed login attempts.", NamedTextColor.RED));
                 return;
             }
 
             // Show retry dialog (do NOT complete the future)
-            var retry = RegistryAccess.registryAccess().getRegistry(RegistryKey.DIALOG)
-                    .get(Key.key("myplugin:login_code_wrong"));
+            DialogLike retry = dialogs.get(Kind.WRONG_CODE, connection.getClientOption(ClientOption.LOCALE));
+            session.dialogShown();
             connection.getAudience().showDialog(retry);
             return;
         }
     }
 
-    private void complete(UUID uuid, boolean val) {
-        CompletableFuture<Boolean> f = awaiting.get(uuid);
-        if (f != null && !f.isDone()) {
-            f.complete(val);
+    private void audit(AuditEvent event, UUID uuid, String playerName, InetAddress address, int attempt) {
+        if (audit != null) {
+            audit.record(event, uuid, playerName, address, attempt);
         }
     }
 
+    private static InetAddress remoteAddress(PlayerConnection connection) {
+        return connection.getAddress() instanceof InetSocketAddress inet ? inet.getAddress() : null;
+    }
+
     @EventHandler
     public void onConnectionClose(PlayerConnectionCloseEvent event) {
-        UUID uuid = event.getPlayerUniqueId();
-        awaiting.remove(uuid);
-        attemptCounts.remove(uuid);
-        successfulLogins.remove(uuid);
+        connectionClosed(event.getPlayerUniqueId());
+    }
+
+    void connectionClosed(UUID uuid) {
+        // Release the configuration thread now rather than when the timeout fires
+        sessions.discard(uuid);
+        if (admission != null) {
+            admission.cancel(uuid);
+        }
+        pendingSkins.remove(uuid);
+    }
+
+    /**
+     * Sizes of the per-player maps, which should all drain back to zero once nobody is logging in.
+     */
+    Map<String, Integer> trackedEntries() {
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        sizes.put("sessions", sessions.parkedCount());
+        sizes.put("pendingSkins", pendingSkins.size());
+        return sizes;
     }
 }
@@ -0,0 +1,36 @@
+package com.example.loginplugin.accounts;
+
+import java.util.Arrays;
+
+/**
+ * Username fingerprints read from the {@code accounts} table, in rowid order.
+ */
+public final class AccountBatch {
+
+	private long[] fingerprints = new long[256];
+	private int count;
+	private long lastRowid;
+
+	public void add(long rowid, String username) {
+		lastRowid = Math.max(lastRowid, rowid);
+		if (username == null) {
+			return;
+		}
+		if (count == fingerprints.length) {
+			fingerprints = Arrays.copyOf(fingerprints, count << 1);
+		}
+		fingerprints[count++] = AccountSnapshot.fingerprint(username);
+	}
+
+	long[] fingerprints() {
+		return fingerprints;
+	}
+
+	public int count() {
+		return count;
+	}
+
+	public long lastRowid() {
+		return lastRowid;
+	}
+}
@@ -0,0 +1,12 @@
+package com.example.loginplugin.accounts;
+
+import java.util.UUID;
+
+/**
+ * A redeemed code, as recorded on the player's {@code accounts} row: which Minecraft account it
+ * was and when they last logged in.
+ *
+ * @param discordId null if unknown; the row then keeps the one it has
+ */
+public record AccountLink(UUID uuid, String username, String discordId, long lastLoginAt) {
+}
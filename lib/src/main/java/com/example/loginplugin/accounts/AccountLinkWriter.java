@@ -0,0 +1,156 @@
+package com.example.loginplugin.accounts;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind queue for {@link AccountLink}s, so recording a login never adds a write to the
+ * login itself. Links are written in batches once {@code batchSize} are pending or every
+ * {@code flushIntervalMillis}, whichever comes first, and whatever is left is written on
+ * {@link #stop}.
+ * <p>
+ * Only the latest link per player is kept, so a player logging in twice between flushes costs
+ * one row. A batch that fails is put back and retried with the next flush.
+ */
+public final class AccountLinkWriter {
+
+	// Beyond this, e.g. during a long outage, new links are dropped rather than piling up
+	private static final int MAX_PENDING = 100_000;
+
+	private final Logger logger;
+	private final Function<List<AccountLink>, CompletableFuture<Integer>> sink;
+	private final BooleanSupplier writable;
+	private final int batchSize;
+
+	private final Map<UUID, AccountLink> pending = new ConcurrentHashMap<>();
+	private final AtomicBoolean flushQueued = new AtomicBoolean();
+	private final ScheduledExecutorService executor;
+
+	private final LongAdder written = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	private final LongAdder failedBatches = new LongAdder();
+
+	/**
+	 * @param sink     writes one batch and completes with the number of rows written
+	 * @param writable checked before every flush; while false links are kept for later
+	 */
+	public AccountLinkWriter(Logger logger, Function<List<AccountLink>, CompletableFuture<Integer>> sink,
+			BooleanSupplier writable, int batchSize, long flushIntervalMillis) {
+		this.logger = logger;
+		this.sink = sink;
+		this.writable = writable;
+		this.batchSize = Math.max(1, batchSize);
+		this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "LoginPlugin-Account-Links");
+			t.setDaemon(true);
+			return t;
+		});
+		long interval = Math.max(10, flushIntervalMillis);
+		executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Queues a link without blocking.
+	 *
+	 * @return false if it was dropped because too many links are pending
+	 */
+	public boolean offer(AccountLink link) {
+		if (pending.size() >= MAX_PENDING && !pending.containsKey(link.uuid())) {
+			dropped.increment();
+			return false;
+		}
+		pending.put(link.uuid(), link);
+		if (pending.size() >= batchSize && flushQueued.compareAndSet(false, true)) {
+			executor.execute(this::flush);
+		}
+		return true;
+	}
+
+	/**
+	 * Writes everything pending, a batch at a time. Runs on the writer thread only.
+	 */
+	private void flush() {
+		flushQueued.set(false);
+		while (!pending.isEmpty() && writable.getAsBoolean()) {
+			List<AccountLink> batch = takeBatch();
+			try {
+				written.add(sink.apply(batch).join());
+			} catch (RuntimeException e) {
+				// A newer link queued meanwhile wins over the one being put back
+				for (AccountLink link : batch) {
+					pending.putIfAbsent(link.uuid(), link);
+				}
+				failedBatches.increment();
+				logger.warning("Failed to record " + batch.size() + " account links, retrying later: " + e.getMessage());
+				return;
+			}
+		}
+	}
+
+	private List<AccountLink> takeBatch() {
+		List<AccountLink> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+		Iterator<AccountLink> links = pending.values().iterator();
+		while (batch.size() < batchSize && links.hasNext()) {
+			AccountLink link = links.next();
+			// Fails if the player logged in again meanwhile; the newer link goes out next time
+			if (pending.remove(link.uuid(), link)) {
+				batch.add(link);
+			}
+		}
+		return batch;
+	}
+
+	// ---------------- STATS ----------------
+
+	public int pendingCount() {
+		return pending.size();
+	}
+
+	/** Rows written to storage. */
+	public long written() {
+		return written.sum();
+	}
+
+	public long dropped() {
+		return dropped.sum();
+	}
+
+	public long failedBatches() {
+		return failedBatches.sum();
+	}
+
+	// ---------------- SHUTDOWN ----------------
+
+	/**
+	 * Writes what is still pending and stops the writer thread. Links that cannot be written
+	 * within the timeout are logged as lost.
+	 */
+	public void stop(long timeoutMillis) {
+		executor.execute(this::flush);
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+				executor.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+		if (!pending.isEmpty()) {
+			logger.warning(pending.size() + " account links could not be recorded before shutdown.");
+		}
+	}
+}
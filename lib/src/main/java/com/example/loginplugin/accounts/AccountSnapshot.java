@@ -0,0 +1,131 @@
+package com.example.loginplugin.accounts;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Compact in-memory set of registered Minecraft usernames, kept as 64-bit fingerprints of the
+ * lower-cased name. Used to turn away unregistered players before the configuration phase
+ * without a database query.
+ *
+ * New accounts are picked up incrementally by rowid; a periodic full reload drops accounts that
+ * were removed from the table.
+ */
+public final class AccountSnapshot {
+
+	private final StampedLock lock = new StampedLock();
+	private LongHashSet names = new LongHashSet(1024);
+	private long cursorRowid;
+	private volatile boolean ready;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Fingerprint of a username, case-insensitive and allocation-free.
+	 */
+	public static long fingerprint(CharSequence name) {
+		// FNV-1a over the lower-cased UTF-16 chars, then a final avalanche
+		long h = 0xCBF29CE484222325L;
+		for (int i = 0; i < name.length(); i++) {
+			h ^= Character.toLowerCase(name.charAt(i));
+			h *= 0x100000001B3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		return h == 0 ? 1 : h;
+	}
+
+	/**
+	 * Whether the username may be registered. Answers true until the first load completes, so a
+	 * cold snapshot never locks anyone out.
+	 */
+	public boolean mightBeRegistered(String username) {
+		if (!ready) {
+			return true;
+		}
+		long fp = fingerprint(username);
+		boolean found;
+		long stamp = lock.readLock();
+		try {
+			found = names.contains(fp);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+		if (found) {
+			hits.increment();
+		} else {
+			misses.increment();
+		}
+		return found;
+	}
+
+	/**
+	 * Adds accounts read after the current cursor.
+	 */
+	public void add(AccountBatch batch) {
+		long stamp = lock.writeLock();
+		try {
+			long[] fps = batch.fingerprints();
+			for (int i = 0; i < batch.count(); i++) {
+				names.add(fps[i]);
+			}
+			cursorRowid = Math.max(cursorRowid, batch.lastRowid());
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Replaces the whole set after a full reload of the table.
+	 */
+	public void replace(AccountBatch all) {
+		LongHashSet fresh = new LongHashSet(all.count());
+		long[] fps = all.fingerprints();
+		for (int i = 0; i < all.count(); i++) {
+			fresh.add(fps[i]);
+		}
+		long stamp = lock.writeLock();
+		try {
+			names = fresh;
+			cursorRowid = all.lastRowid();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		ready = true;
+	}
+
+	public long cursorRowid() {
+		long stamp = lock.readLock();
+		try {
+			return cursorRowid;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	public boolean isReady() {
+		return ready;
+	}
+
+	// ---------------- STATS ----------------
+
+	public int size() {
+		long stamp = lock.readLock();
+		try {
+			return names.size();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	public long hits() {
+		return hits.sum();
+	}
+
+	/** Lookups answered "not registered". */
+	public long misses() {
+		return misses.sum();
+	}
+}
@@ -0,0 +1,73 @@
+package com.example.loginplugin.accounts;
+
+/**
+ * Open-addressing set of non-zero longs with linear probing. Not thread-safe;
+ * {@link AccountSnapshot} guards it.
+ */
+final class LongHashSet {
+
+	private static final long FREE = 0L;
+
+	private long[] slots;
+	private int mask;
+	private int size;
+
+	LongHashSet(int expected) {
+		int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) << 1;
+		slots = new long[capacity];
+		mask = capacity - 1;
+	}
+
+	private static int slot(long key, int mask) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	boolean contains(long key) {
+		int i = slot(key, mask);
+		long k;
+		while ((k = slots[i]) != FREE) {
+			if (k == key) {
+				return true;
+			}
+			i = (i + 1) & mask;
+		}
+		return false;
+	}
+
+	boolean add(long key) {
+		int i = slot(key, mask);
+		long k;
+		while ((k = slots[i]) != FREE) {
+			if (k == key) {
+				return false;
+			}
+			i = (i + 1) & mask;
+		}
+		slots[i] = key;
+		// Keep the load factor at or below one half
+		if (++size * 2 > slots.length) {
+			grow();
+		}
+		return true;
+	}
+
+	int size() {
+		return size;
+	}
+
+	private void grow() {
+		long[] old = slots;
+		slots = new long[old.length << 1];
+		mask = slots.length - 1;
+		for (long key : old) {
+			if (key != FREE) {
+				int i = slot(key, mask);
+				while (slots[i] != FREE) {
+					i = (i + 1) & mask;
+				}
+				slots[i] = key;
+			}
+		}
+	}
+}
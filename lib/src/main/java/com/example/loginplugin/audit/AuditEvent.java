@@ -0,0 +1,48 @@
+package com.example.loginplugin.audit;
+
+/**
+ * What happened in one audited login step. The codes are part of the file format: never renumber
+ * them, only add new ones.
+ */
+public enum AuditEvent {
+	/** Turned away at pre-login: the name has no linked account. */
+	NOT_REGISTERED(1),
+	/** Disconnected before the dialog because the address or name was rate limited. */
+	THROTTLED(2),
+	/** Disconnected because the login queue was full. */
+	QUEUE_FULL(3),
+	/** Disconnected because the database was unavailable. */
+	UNAVAILABLE(4),
+	/** Skipped the dialog on a reconnect token. */
+	RESUMED(5),
+	CODE_ACCEPTED(6),
+	CODE_REJECTED(7),
+	/** A submit refused by the rate limiter; counts as a wrong code. */
+	SUBMIT_THROTTLED(8),
+	/** Disconnected after too many wrong codes. */
+	MAX_ATTEMPTS(9),
+	TIMED_OUT(10),
+	/** The connection closed while on the dialog. */
+	LEFT(11),
+	/** Turned away because the plugin was still opening the database. */
+	STARTING(12);
+
+	private static final AuditEvent[] BY_CODE = new AuditEvent[256];
+
+	static {
+		for (AuditEvent event : values()) {
+			BY_CODE[event.code] = event;
+		}
+	}
+
+	final int code;
+
+	AuditEvent(int code) {
+		this.code = code;
+	}
+
+	/** The event stored under {@code code}, or null for one this version does not know. */
+	static AuditEvent byCode(int code) {
+		return BY_CODE[code & 0xFF];
+	}
+}
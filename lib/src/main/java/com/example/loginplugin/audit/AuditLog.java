@@ -0,0 +1,272 @@
+package com.example.loginplugin.audit;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Append-only record of login attempts. Event threads copy a fixed-size record into a lock-free
+ * ring and return; one writer thread drains the ring every {@code flushIntervalMillis} and writes
+ * whatever accumulated with a single write and at most one fsync (group commit).
+ * <p>
+ * Recording never blocks: when the writer falls a full ring behind, new records are dropped and
+ * counted. Files are rotated at {@code maxFileBytes}, and only the newest {@code maxFiles} are
+ * kept. {@link AuditReader} reads them back.
+ */
+public final class AuditLog {
+
+	static final byte[] MAGIC = { 'L', 'P', 'A', 'U', 'D', 'I', 'T', 1 };
+
+	private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS")
+			.withZone(ZoneOffset.UTC);
+
+	// Records copied out of the ring per write
+	private static final int BATCH = 512;
+
+	private final Logger logger;
+	private final AuditSettings settings;
+	private final Path directory;
+
+	// The ring: slot i holds the record with sequence published[i]
+	private final int mask;
+	private final long[] slots;
+	private final AtomicLongArray published;
+	private final AtomicLong tail = new AtomicLong();
+	// Next sequence the writer reads; slots below it are free again
+	private volatile long head;
+
+	private final Thread writer;
+	private volatile boolean running = true;
+	private FileChannel channel;
+	private long fileSize;
+	private long fileStarted;
+
+	private final LongAdder written = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	private final LongAdder commits = new LongAdder();
+
+	private AuditLog(Logger logger, AuditSettings settings) throws IOException {
+		this.logger = logger;
+		this.settings = settings;
+		this.directory = Path.of(settings.directory()).toAbsolutePath();
+		this.mask = settings.bufferSize() - 1;
+		this.slots = new long[settings.bufferSize() * AuditRecord.LONGS];
+		this.published = new AtomicLongArray(settings.bufferSize());
+		for (int i = 0; i < settings.bufferSize(); i++) {
+			published.set(i, -1);
+		}
+
+		Files.createDirectories(directory);
+		// A crash may have left half a record at the end of the last file, so always start a new one
+		rotate();
+
+		writer = new Thread(this::run, "LoginPlugin-Audit");
+		writer.setDaemon(true);
+	}
+
+	public static AuditLog start(Logger logger, AuditSettings settings) throws IOException {
+		AuditLog audit = new AuditLog(logger, settings);
+		audit.writer.start();
+		return audit;
+	}
+
+	// ---------------- RECORDING ----------------
+
+	/**
+	 * Queues a record for the writer. Safe from any thread, never blocks.
+	 *
+	 * @return false if the ring was full and the record was dropped
+	 */
+	public boolean record(AuditEvent event, UUID uuid, String name, InetAddress address, int attempt) {
+		long now = System.currentTimeMillis();
+		long seq;
+		do {
+			seq = tail.get();
+			if (seq - head > mask) {
+				dropped.increment();
+				return false;
+			}
+		} while (!tail.compareAndSet(seq, seq + 1));
+
+		int slot = (int) (seq & mask);
+		AuditRecord.encode(slots, slot * AuditRecord.LONGS, now, event, uuid, name, address, attempt);
+		// Hands the slot contents over to the writer
+		published.setRelease(slot, seq);
+		return true;
+	}
+
+	public boolean record(AuditEvent event, UUID uuid, String name, InetAddress address) {
+		return record(event, uuid, name, address, 0);
+	}
+
+	// ---------------- WRITER ----------------
+
+	private void run() {
+		ByteBuffer batch = ByteBuffer.allocateDirect(BATCH * AuditRecord.SIZE);
+		long interval = TimeUnit.MILLISECONDS.toNanos(settings.flushIntervalMillis());
+		try {
+			while (true) {
+				boolean stopping = !running;
+				// Everything published so far goes out as one group, up to a ring's worth
+				int drained = 0;
+				int read;
+				while (drained < settings.bufferSize() && (read = drain(batch)) > 0) {
+					write(batch);
+					drained += read;
+				}
+				if (drained > 0) {
+					commit();
+				}
+				if (stopping) {
+					break;
+				}
+				LockSupport.parkNanos(interval);
+			}
+		} finally {
+			closeChannel();
+		}
+	}
+
+	/**
+	 * Copies up to {@link #BATCH} published records into {@code batch}, in sequence order.
+	 */
+	private int drain(ByteBuffer batch) {
+		batch.clear();
+		long seq = head;
+		int count = 0;
+		while (count < BATCH) {
+			int slot = (int) (seq & mask);
+			if (published.getAcquire(slot) != seq) {
+				break;
+			}
+			int base = slot * AuditRecord.LONGS;
+			for (int i = 0; i < AuditRecord.LONGS; i++) {
+				batch.putLong(slots[base + i]);
+			}
+			seq++;
+			count++;
+		}
+		// Only now may producers reuse the slots
+		head = seq;
+		batch.flip();
+		return count;
+	}
+
+	private void write(ByteBuffer batch) {
+		int records = batch.remaining() / AuditRecord.SIZE;
+		try {
+			if (channel == null || fileSize + batch.remaining() > settings.maxFileBytes()) {
+				commit();
+				rotate();
+			}
+			while (batch.hasRemaining()) {
+				fileSize += channel.write(batch);
+			}
+			written.add(records);
+		} catch (IOException e) {
+			dropped.add(records);
+			logger.severe("Failed to write " + records + " audit records: " + e.getMessage());
+			e.printStackTrace();
+		}
+	}
+
+	private void commit() {
+		if (!settings.sync() || channel == null) {
+			commits.increment();
+			return;
+		}
+		try {
+			channel.force(false);
+			commits.increment();
+		} catch (IOException e) {
+			logger.severe("Failed to sync audit log: " + e.getMessage());
+			e.printStackTrace();
+		}
+	}
+
+	// ---------------- FILES ----------------
+
+	/**
+	 * Starts a new file named after the current time and deletes the oldest beyond
+	 * {@code maxFiles}.
+	 */
+	private void rotate() throws IOException {
+		closeChannel();
+		// File names must stay unique and in order even when rotating twice in a millisecond
+		fileStarted = Math.max(System.currentTimeMillis(), fileStarted + 1);
+		Path file;
+		while (Files.exists(file = directory.resolve("audit-" + FILE_TIME.format(Instant.ofEpochMilli(fileStarted)) + ".bin"))) {
+			fileStarted++;
+		}
+		channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		channel.write(ByteBuffer.wrap(MAGIC));
+		fileSize = MAGIC.length;
+
+		List<Path> files = AuditReader.files(directory);
+		for (int i = 0; i < files.size() - settings.maxFiles(); i++) {
+			Files.deleteIfExists(files.get(i));
+		}
+	}
+
+	private void closeChannel() {
+		if (channel == null) {
+			return;
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			logger.warning("Error closing audit log: " + e.getMessage());
+		}
+		channel = null;
+	}
+
+	// ---------------- STATS ----------------
+
+	public Path directory() {
+		return directory;
+	}
+
+	public long written() {
+		return written.sum();
+	}
+
+	/** Records lost because the ring was full or a write failed. */
+	public long dropped() {
+		return dropped.sum();
+	}
+
+	/** Group commits, i.e. batches written and synced together. */
+	public long commits() {
+		return commits.sum();
+	}
+
+	// ---------------- SHUTDOWN ----------------
+
+	/**
+	 * Writes what is queued, then closes the file.
+	 */
+	public void stop() {
+		running = false;
+		LockSupport.unpark(writer);
+		try {
+			writer.join(5000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package com.example.loginplugin.audit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Reads the files written by {@link AuditLog}. Also runs on its own, without the server:
+ *
+ * <pre>
+ * java -cp ExamplePlugin.jar com.example.loginplugin.audit.AuditReader ./database/audit \
+ *     [--name Steve | --uuid &lt;uuid&gt;] [--since 24h | --from 2026-01-01T00:00:00Z] [--to ...]
+ * </pre>
+ */
+public final class AuditReader {
+
+	/**
+	 * What to look for; null fields match everything.
+	 */
+	public record Query(UUID uuid, String name, long from, long to) {
+
+		public static final Query ALL = new Query(null, null, Long.MIN_VALUE, Long.MAX_VALUE);
+
+		boolean matches(AuditRecord record) {
+			return record.timestamp() >= from && record.timestamp() < to
+					&& (uuid == null || uuid.equals(record.uuid()))
+					&& (name == null || name.equalsIgnoreCase(record.name()));
+		}
+	}
+
+	private AuditReader() {
+	}
+
+	/**
+	 * The audit files in {@code directory}, oldest first.
+	 */
+	public static List<Path> files(Path directory) throws IOException {
+		if (!Files.isDirectory(directory)) {
+			return List.of();
+		}
+		try (Stream<Path> listing = Files.list(directory)) {
+			return listing.filter(file -> {
+				String name = file.getFileName().toString();
+				return name.startsWith("audit-") && name.endsWith(".bin");
+			}).sorted().toList();
+		}
+	}
+
+	/**
+	 * Passes every matching record to {@code into}, oldest first. A half-written record at the
+	 * end of a file is skipped.
+	 */
+	public static void scan(Path directory, Query query, Consumer<AuditRecord> into) throws IOException {
+		List<Path> files = files(directory);
+		for (int i = 0; i < files.size(); i++) {
+			// Files are named after the moment they were started, so one followed by a file
+			// started before the range holds nothing in it
+			if (i + 1 < files.size() && startedAt(files.get(i + 1)) < query.from()) {
+				continue;
+			}
+			scanFile(files.get(i), query, into);
+		}
+	}
+
+	public static List<AuditRecord> query(Path directory, Query query) throws IOException {
+		List<AuditRecord> found = new ArrayList<>();
+		scan(directory, query, found::add);
+		return found;
+	}
+
+	private static void scanFile(Path file, Query query, Consumer<AuditRecord> into) throws IOException {
+		try (FileChannel channel = FileChannel.open(file)) {
+			ByteBuffer header = ByteBuffer.allocate(AuditLog.MAGIC.length);
+			while (header.hasRemaining() && channel.read(header) >= 0) {
+				// reading the header
+			}
+			if (!Arrays.equals(header.array(), AuditLog.MAGIC)) {
+				return;
+			}
+
+			ByteBuffer in = ByteBuffer.allocate(1024 * AuditRecord.SIZE);
+			while (channel.read(in) >= 0) {
+				in.flip();
+				while (in.remaining() >= AuditRecord.SIZE) {
+					AuditRecord record = AuditRecord.read(in);
+					if (record != null && query.matches(record)) {
+						into.accept(record);
+					}
+				}
+				in.compact();
+			}
+		}
+	}
+
+	private static long startedAt(Path file) {
+		// audit-yyyyMMdd-HHmmss-SSS.bin
+		String name = file.getFileName().toString();
+		try {
+			String stamp = name.substring(6, name.length() - 4);
+			String iso = stamp.substring(0, 4) + "-" + stamp.substring(4, 6) + "-" + stamp.substring(6, 8) + "T"
+					+ stamp.substring(9, 11) + ":" + stamp.substring(11, 13) + ":" + stamp.substring(13, 15) + "."
+					+ stamp.substring(16, 19) + "Z";
+			return Instant.parse(iso).toEpochMilli();
+		} catch (RuntimeException e) {
+			return Long.MIN_VALUE;
+		}
+	}
+
+	// ---------------- COMMAND LINE ----------------
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0 || args[0].startsWith("--")) {
+			usage();
+			return;
+		}
+
+		Path directory = Path.of(args[0]);
+		UUID uuid = null;
+		String name = null;
+		long from = Long.MIN_VALUE;
+		long to = Long.MAX_VALUE;
+		try {
+			for (int i = 1; i + 1 < args.length; i += 2) {
+				String value = args[i + 1];
+				switch (args[i]) {
+				case "--uuid" -> uuid = UUID.fromString(value);
+				case "--name" -> name = value;
+				case "--since" -> from = System.currentTimeMillis() - duration(value).toMillis();
+				case "--from" -> from = Instant.parse(value).toEpochMilli();
+				case "--to" -> to = Instant.parse(value).toEpochMilli();
+				default -> {
+					usage();
+					return;
+				}
+				}
+			}
+		} catch (IllegalArgumentException | DateTimeParseException e) {
+			System.err.println("Invalid argument: " + e.getMessage());
+			usage();
+			return;
+		}
+
+		int[] count = { 0 };
+		scan(directory, new Query(uuid, name, from, to), record -> {
+			System.out.println(record.format());
+			count[0]++;
+		});
+		System.err.println(count[0] + " record(s).");
+	}
+
+	/** {@code 90s}, {@code 30m}, {@code 24h} or {@code 7d}. */
+	private static Duration duration(String value) {
+		String lower = value.toLowerCase(Locale.ROOT);
+		if (lower.length() < 2) {
+			throw new IllegalArgumentException("bad duration " + value);
+		}
+		long amount = Long.parseLong(lower.substring(0, lower.length() - 1));
+		return switch (lower.charAt(lower.length() - 1)) {
+		case 's' -> Duration.ofSeconds(amount);
+		case 'm' -> Duration.ofMinutes(amount);
+		case 'h' -> Duration.ofHours(amount);
+		case 'd' -> Duration.ofDays(amount);
+		default -> throw new IllegalArgumentException("bad duration " + value);
+		};
+	}
+
+	private static void usage() {
+		System.err.println("Usage: AuditReader <directory> [--name <name> | --uuid <uuid>] "
+				+ "[--since <90s|30m|24h|7d> | --from <ISO instant>] [--to <ISO instant>]");
+	}
+}
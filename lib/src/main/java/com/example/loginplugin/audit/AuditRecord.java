@@ -0,0 +1,139 @@
+package com.example.loginplugin.audit;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One audited login step. On disk every record takes {@link #SIZE} bytes, big-endian:
+ *
+ * <pre>
+ * i64 timestamp (epoch millis)
+ * i64 uuid most significant bits
+ * i64 uuid least significant bits
+ * i64 u8 event | u8 attempt &lt;&lt; 8 | u8 address kind (0 none, 4, 6) &lt;&lt; 16
+ * 16  address, IPv4 in the last four bytes
+ * 16  name, ASCII, zero-padded
+ * </pre>
+ *
+ * Minecraft names are at most 16 ASCII characters, so a name always fits; anything else is
+ * written as {@code ?}.
+ *
+ * @param uuid    null if the player's id was not known yet
+ * @param address null if it was not known
+ * @param attempt the wrong-code count at the time, 0 where it does not apply
+ */
+public record AuditRecord(long timestamp, AuditEvent event, UUID uuid, String name, InetAddress address, int attempt) {
+
+	public static final int SIZE = 64;
+
+	/** Longs per record in the in-memory ring. */
+	static final int LONGS = SIZE / Long.BYTES;
+
+	/**
+	 * Writes a record into {@code slots} starting at {@code base} without allocating, apart from
+	 * the copy of an IPv6 address.
+	 */
+	static void encode(long[] slots, int base, long timestamp, AuditEvent event, UUID uuid, String name,
+			InetAddress address, int attempt) {
+		slots[base] = timestamp;
+		slots[base + 1] = uuid == null ? 0 : uuid.getMostSignificantBits();
+		slots[base + 2] = uuid == null ? 0 : uuid.getLeastSignificantBits();
+
+		int kind = 0;
+		long high = 0;
+		long low = 0;
+		if (address instanceof Inet4Address) {
+			kind = 4;
+			low = bytes(address.getAddress(), 0, 4);
+		} else if (address != null) {
+			kind = 6;
+			byte[] raw = address.getAddress();
+			high = bytes(raw, 0, 8);
+			low = bytes(raw, 8, 8);
+		}
+		slots[base + 3] = event.code | (Math.min(attempt, 255) & 0xFF) << 8 | kind << 16;
+		slots[base + 4] = high;
+		slots[base + 5] = low;
+		slots[base + 6] = name(name, 0);
+		slots[base + 7] = name(name, 8);
+	}
+
+	private static long bytes(byte[] raw, int from, int count) {
+		long value = 0;
+		for (int i = from; i < from + count; i++) {
+			value = value << 8 | (raw[i] & 0xFF);
+		}
+		return value;
+	}
+
+	private static long name(String name, int from) {
+		long value = 0;
+		for (int i = from; i < from + 8; i++) {
+			int c = name != null && i < name.length() ? name.charAt(i) : 0;
+			value = value << 8 | (c < 0x80 ? c : '?');
+		}
+		return value;
+	}
+
+	/**
+	 * Reads the record at the buffer's position and advances past it.
+	 *
+	 * @return null for a record of an unknown event
+	 */
+	static AuditRecord read(ByteBuffer in) {
+		long timestamp = in.getLong();
+		long most = in.getLong();
+		long least = in.getLong();
+		long meta = in.getLong();
+		long high = in.getLong();
+		long low = in.getLong();
+		long name1 = in.getLong();
+		long name2 = in.getLong();
+
+		AuditEvent event = AuditEvent.byCode((int) meta);
+		if (event == null) {
+			return null;
+		}
+		UUID uuid = most == 0 && least == 0 ? null : new UUID(most, least);
+		return new AuditRecord(timestamp, event, uuid, name(name1, name2), address((int) (meta >>> 16) & 0xFF, high, low),
+				(int) (meta >>> 8) & 0xFF);
+	}
+
+	private static String name(long first, long second) {
+		StringBuilder name = new StringBuilder(16);
+		for (long part : new long[] { first, second }) {
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				char c = (char) (part >>> shift & 0xFF);
+				if (c == 0) {
+					return name.toString();
+				}
+				name.append(c);
+			}
+		}
+		return name.toString();
+	}
+
+	private static InetAddress address(int kind, long high, long low) {
+		try {
+			if (kind == 4) {
+				return InetAddress.getByAddress(ByteBuffer.allocate(4).putInt((int) low).array());
+			}
+			if (kind == 6) {
+				return InetAddress.getByAddress(ByteBuffer.allocate(16).putLong(high).putLong(low).array());
+			}
+		} catch (UnknownHostException e) {
+			// only thrown for a wrong length
+		}
+		return null;
+	}
+
+	/** One line for the reader's output. */
+	public String format() {
+		return Instant.ofEpochMilli(timestamp) + " " + event + " " + name + " " + (uuid == null ? "-" : uuid) + " "
+				+ (address == null ? "-" : address.getHostAddress()) + (attempt > 0 ? " attempt=" + attempt : "");
+	}
+}
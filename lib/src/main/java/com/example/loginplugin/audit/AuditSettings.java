@@ -0,0 +1,33 @@
+package com.example.loginplugin.audit;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+/**
+ * Settings read from the {@code audit} section of config.yml.
+ *
+ * @param bufferSize records that may wait for the writer, rounded up to a power of two
+ * @param sync       whether every written batch is forced to disk
+ */
+public record AuditSettings(String directory, int bufferSize, long flushIntervalMillis, boolean sync, long maxFileBytes,
+		int maxFiles) {
+
+	public AuditSettings {
+		bufferSize = Integer.highestOneBit(Math.max(64, Math.min(bufferSize, 1 << 20)) * 2 - 1);
+		flushIntervalMillis = Math.max(10, flushIntervalMillis);
+		maxFileBytes = Math.max(64 * 1024, maxFileBytes);
+		maxFiles = Math.max(1, maxFiles);
+	}
+
+	public static AuditSettings from(ConfigurationSection section) {
+		if (section == null) {
+			return new AuditSettings("./database/audit", 8192, 200, true, 16L << 20, 10);
+		}
+		return new AuditSettings(
+				section.getString("directory", "./database/audit"),
+				section.getInt("buffer_size", 8192),
+				section.getLong("flush_interval_ms", 200),
+				section.getBoolean("sync", true),
+				section.getLong("max_file_mb", 16) << 20,
+				section.getInt("max_files", 10));
+	}
+}
@@ -0,0 +1,122 @@
+package com.example.loginplugin.codes;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.example.loginplugin.database.ClaimedCode;
+
+/**
+ * Single-flight layer in front of code claims on the storage. Concurrent claims of the same
+ * username and code share one lookup, and a pair the storage rejected is answered from memory for
+ * {@code negativeTtlMillis} afterwards. Lookups must only answer from the storage: an empty result
+ * is remembered as final.
+ * <p>
+ * A claim consumes the code, so only the caller that started a lookup can win it; the callers that
+ * joined it see the code as already used, exactly as their own queries would have. A lookup that
+ * failed is never remembered.
+ */
+public final class ClaimCoalescer {
+
+	// Rejections remembered at most; beyond that the oldest are no longer worth keeping
+	private static final int MAX_REJECTED = 10_000;
+
+	private final long negativeTtlNanos;
+	private final Map<String, CompletableFuture<Optional<ClaimedCode>>> inFlight = new ConcurrentHashMap<>();
+	// Key -> System.nanoTime() at which the rejection is forgotten
+	private final Map<String, Long> rejected = new ConcurrentHashMap<>();
+
+	private final LongAdder lookups = new LongAdder();
+	private final LongAdder coalesced = new LongAdder();
+	private final LongAdder negativeHits = new LongAdder();
+
+	public ClaimCoalescer(long negativeTtlMillis) {
+		this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, negativeTtlMillis));
+	}
+
+	/**
+	 * Redeems a code through {@code lookup}, unless the same pair is already being looked up or
+	 * was rejected moments ago.
+	 */
+	public CompletableFuture<Optional<ClaimedCode>> claim(String username, String code,
+			Supplier<CompletableFuture<Optional<ClaimedCode>>> lookup) {
+		String key = username.toLowerCase(Locale.ROOT) + '\0' + code;
+
+		Long forgetAt = rejected.get(key);
+		if (forgetAt != null) {
+			if (System.nanoTime() - forgetAt < 0) {
+				negativeHits.increment();
+				return CompletableFuture.completedFuture(Optional.empty());
+			}
+			rejected.remove(key, forgetAt);
+		}
+
+		CompletableFuture<Optional<ClaimedCode>> started = new CompletableFuture<>();
+		CompletableFuture<Optional<ClaimedCode>> running = inFlight.putIfAbsent(key, started);
+		if (running != null) {
+			coalesced.increment();
+			// The code, if it was right, went to whoever started the lookup
+			return running.thenApply(claimed -> Optional.empty());
+		}
+
+		lookups.increment();
+		CompletableFuture<Optional<ClaimedCode>> result;
+		try {
+			result = lookup.get();
+		} catch (RuntimeException e) {
+			result = CompletableFuture.failedFuture(e);
+		}
+		result.whenComplete((claimed, error) -> {
+			if (error == null && claimed.isEmpty() && negativeTtlNanos > 0) {
+				remember(key);
+			}
+			// Gone before anyone can join a finished lookup
+			inFlight.remove(key, started);
+			if (error != null) {
+				started.completeExceptionally(error);
+			} else {
+				started.complete(claimed);
+			}
+		});
+		return started;
+	}
+
+	private void remember(String key) {
+		long now = System.nanoTime();
+		if (rejected.size() >= MAX_REJECTED) {
+			Iterator<Long> it = rejected.values().iterator();
+			while (it.hasNext()) {
+				if (now - it.next() >= 0) {
+					it.remove();
+				}
+			}
+			if (rejected.size() >= MAX_REJECTED) {
+				rejected.clear();
+			}
+		}
+		rejected.put(key, now + negativeTtlNanos);
+	}
+
+	// ---------------- STATS ----------------
+
+	/** Lookups actually sent to the storage. */
+	public long lookups() {
+		return lookups.sum();
+	}
+
+	/** Claims that joined a lookup already in flight. */
+	public long coalesced() {
+		return coalesced.sum();
+	}
+
+	/** Claims answered from the remembered rejections. */
+	public long negativeHits() {
+		return negativeHits.sum();
+	}
+}
@@ -0,0 +1,52 @@
+package com.example.loginplugin.codes;
+
+/**
+ * Parsing of the 6-digit login codes issued by the Discord bot.
+ */
+public final class CodeFormat {
+
+	public static final int LENGTH = 6;
+	public static final int INVALID = -1;
+
+	private CodeFormat() {
+	}
+
+	/**
+	 * Parses exactly six ASCII digits into an int, without a regex or boxing.
+	 *
+	 * @return the numeric code, or {@link #INVALID} if the input is not six digits
+	 */
+	public static int parse(CharSequence code) {
+		if (code == null || code.length() != LENGTH) {
+			return INVALID;
+		}
+		int value = 0;
+		for (int i = 0; i < LENGTH; i++) {
+			int digit = code.charAt(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return INVALID;
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	/**
+	 * Parses a code as stored in the database, which may have lost its leading zeros if the
+	 * column holds integers.
+	 */
+	public static int parseStored(String code) {
+		if (code == null || code.isEmpty() || code.length() > LENGTH) {
+			return INVALID;
+		}
+		int value = 0;
+		for (int i = 0; i < code.length(); i++) {
+			int digit = code.charAt(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return INVALID;
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+}
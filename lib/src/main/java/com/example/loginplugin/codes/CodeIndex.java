@@ -0,0 +1,338 @@
+package com.example.loginplugin.codes;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+import com.example.loginplugin.database.ClaimedCode;
+
+/**
+ * In-memory mirror of the live rows in {@code link_codes}, used to turn away wrong codes without
+ * touching SQLite. The index only ever answers "definitely not" or "possibly": a possible match is
+ * still redeemed through the database, which stays the source of truth.
+ *
+ * The table is followed incrementally by rowid and expiry time (see {@link #cursorRowid()} and
+ * {@link #cursorExpiresAt()}), and expired codes are dropped by an {@link ExpiryWheel}. Codes
+ * pushed by the bot ({@link #push}) arrive without waiting for a poll; with those, a code can also
+ * be redeemed from memory alone ({@link #claim}).
+ *
+ * The bot may give the same code to two players at once. Such a code is kept as shared until the
+ * last of its issues expires, and submits of it are always passed on to the database.
+ */
+public final class CodeIndex {
+
+	public enum Verdict {
+		/** Not six digits. */
+		INVALID_FORMAT,
+		/** No live code matches; the database does not need to be asked. */
+		NO_MATCH,
+		/** A live code matches, or the index is not loaded yet; redeem through the database. */
+		POSSIBLE
+	}
+
+	// Name stored for a shared code; no username contains a NUL
+	private static final String SHARED = "\0";
+
+	private final StampedLock lock = new StampedLock();
+	private final IntCodeMap codes = new IntCodeMap(1024);
+	private final ExpiryWheel wheel;
+	// Code -> expiry of the issue that was claimed or revoked, so a poll that still sees the row
+	// does not bring it back; dropped once that expiry passes
+	private final Map<Integer, Long> tombstones = new HashMap<>();
+
+	private volatile boolean ready;
+	private long cursorRowid;
+	private long cursorExpiresAt;
+
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder passed = new LongAdder();
+	private final LongAdder expired = new LongAdder();
+	private final LongAdder pushed = new LongAdder();
+
+	public CodeIndex() {
+		this.wheel = new ExpiryWheel(512, 1000L, System.currentTimeMillis());
+	}
+
+	// ---------------- LOOKUP ----------------
+
+	/**
+	 * Checks a submitted code against the index. Safe to call from any thread.
+	 */
+	public Verdict check(String username, String code, long now) {
+		int value = CodeFormat.parse(code);
+		if (value == CodeFormat.INVALID) {
+			return Verdict.INVALID_FORMAT;
+		}
+		if (!ready) {
+			passed.increment();
+			return Verdict.POSSIBLE;
+		}
+
+		boolean match;
+		long stamp = lock.readLock();
+		try {
+			int slot = codes.indexOf(value);
+			match = slot >= 0 && codes.expiresAt(slot) > now && matches(codes.nameAt(slot), username);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+
+		if (match) {
+			passed.increment();
+			return Verdict.POSSIBLE;
+		}
+		rejected.increment();
+		return Verdict.NO_MATCH;
+	}
+
+	/**
+	 * Whether a live code matches, without counting it as a submit.
+	 */
+	public boolean contains(String username, String code, long now) {
+		int value = CodeFormat.parse(code);
+		if (value == CodeFormat.INVALID) {
+			return false;
+		}
+		long stamp = lock.readLock();
+		try {
+			int slot = codes.indexOf(value);
+			return slot >= 0 && codes.expiresAt(slot) > now && matches(codes.nameAt(slot), username);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Redeems a code from memory: the code is removed and remembered as claimed in one step, so
+	 * it is handed out once even to concurrent callers. The database row still has to be deleted.
+	 *
+	 * @return the claimed code, or null if no live code matches, the code is shared or the index
+	 *         is not loaded yet
+	 */
+	public ClaimedCode claim(String username, String code, long now) {
+		int value = CodeFormat.parse(code);
+		if (value == CodeFormat.INVALID || !ready) {
+			return null;
+		}
+
+		long stamp = lock.writeLock();
+		try {
+			int slot = codes.indexOf(value);
+			if (slot >= 0 && SHARED.equals(codes.nameAt(slot))) {
+				return null;
+			}
+			if (slot < 0 || codes.expiresAt(slot) <= now || !codes.nameAt(slot).equalsIgnoreCase(username)) {
+				rejected.increment();
+				return null;
+			}
+			ClaimedCode claimed = new ClaimedCode(code, codes.nameAt(slot), codes.expiresAt(slot));
+			codes.remove(value);
+			tombstones.put(value, claimed.expiresAt());
+			passed.increment();
+			return claimed;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	// ---------------- UPDATES ----------------
+
+	/**
+	 * Applies a batch of rows read from {@code link_codes} and advances the poll cursor.
+	 */
+	public void apply(List<CodeRow> rows) {
+		long stamp = lock.writeLock();
+		try {
+			for (CodeRow row : rows) {
+				int value = CodeFormat.parseStored(row.code());
+				if (value != CodeFormat.INVALID && row.username() != null && !isTombstoned(value, row.expiresAt())) {
+					put(value, row.username(), row.expiresAt());
+				}
+				cursorRowid = Math.max(cursorRowid, row.rowid());
+				cursorExpiresAt = Math.max(cursorExpiresAt, row.expiresAt());
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Adds a code the bot announced directly. Unlike {@link #apply} this leaves the poll cursor
+	 * alone: the row still has to be found in the table like any other.
+	 */
+	public void push(int code, String username, long expiresAt) {
+		long stamp = lock.writeLock();
+		try {
+			if (!isTombstoned(code, expiresAt)) {
+				put(code, username, expiresAt);
+				pushed.increment();
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/** Called with the write lock held. */
+	private void put(int code, String username, long expiresAt) {
+		int slot = codes.indexOf(code);
+		if (slot >= 0 && codes.expiresAt(slot) > System.currentTimeMillis()
+				&& (SHARED.equals(codes.nameAt(slot)) || !codes.nameAt(slot).equalsIgnoreCase(username))) {
+			// A different player still holds this code
+			username = SHARED;
+			expiresAt = Math.max(expiresAt, codes.expiresAt(slot));
+		}
+		codes.put(code, username, expiresAt);
+		wheel.schedule(code, expiresAt);
+	}
+
+	private static boolean matches(String stored, String username) {
+		return SHARED.equals(stored) || stored.equalsIgnoreCase(username);
+	}
+
+	/**
+	 * Forgets a code the bot withdrew, and keeps a poll from bringing it back. A shared code is
+	 * left for the database to answer, since the other player's issue may still be live.
+	 */
+	public void revoke(int code) {
+		long stamp = lock.writeLock();
+		try {
+			int slot = codes.indexOf(code);
+			if (slot >= 0 && !SHARED.equals(codes.nameAt(slot))) {
+				tombstones.merge(code, codes.expiresAt(slot), Math::max);
+				codes.remove(code);
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/** A code issued again later expires later, so only issues up to the claimed one are blocked. */
+	private boolean isTombstoned(int code, long expiresAt) {
+		Long claimedUntil = tombstones.get(code);
+		return claimedUntil != null && expiresAt <= claimedUntil;
+	}
+
+	/**
+	 * Marks the initial load as complete; until then every well-formed code is passed through.
+	 */
+	public void markReady() {
+		ready = true;
+	}
+
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * Whether the code was given to more than one player still holding it; {@link #claim} leaves
+	 * those to the database.
+	 */
+	public boolean isShared(String code) {
+		int value = CodeFormat.parse(code);
+		if (value == CodeFormat.INVALID) {
+			return false;
+		}
+		long stamp = lock.readLock();
+		try {
+			int slot = codes.indexOf(value);
+			return slot >= 0 && SHARED.equals(codes.nameAt(slot));
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Forgets a code that was redeemed, unless it is shared.
+	 */
+	public void remove(String code) {
+		int value = CodeFormat.parseStored(code);
+		if (value == CodeFormat.INVALID) {
+			return;
+		}
+		long stamp = lock.writeLock();
+		try {
+			int slot = codes.indexOf(value);
+			if (slot >= 0 && !SHARED.equals(codes.nameAt(slot))) {
+				codes.remove(value);
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Drops every code that has expired by {@code now}.
+	 */
+	public void expire(long now) {
+		long stamp = lock.writeLock();
+		try {
+			expired.add(wheel.advance(now, codes));
+			for (Iterator<Long> it = tombstones.values().iterator(); it.hasNext();) {
+				if (it.next() <= now) {
+					it.remove();
+				}
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	// ---------------- POLL CURSOR ----------------
+
+	/** Highest rowid seen so far; rows above it are new. */
+	public long cursorRowid() {
+		long stamp = lock.readLock();
+		try {
+			return cursorRowid;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Latest expiry seen so far. SQLite reuses the rowid of a deleted last row, so a fresh code
+	 * can land below {@link #cursorRowid()}; it is still picked up because it expires later than
+	 * anything seen before.
+	 */
+	public long cursorExpiresAt() {
+		long stamp = lock.readLock();
+		try {
+			return cursorExpiresAt;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	// ---------------- STATS ----------------
+
+	public int size() {
+		long stamp = lock.readLock();
+		try {
+			return codes.size();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/** Submits that matched no code in the index. */
+	public long rejected() {
+		return rejected.sum();
+	}
+
+	/** Submits passed on to the database. */
+	public long passed() {
+		return passed.sum();
+	}
+
+	public long expired() {
+		return expired.sum();
+	}
+
+	/** Codes added by {@link #push}. */
+	public long pushed() {
+		return pushed.sum();
+	}
+}
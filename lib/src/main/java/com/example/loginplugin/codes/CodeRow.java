@@ -0,0 +1,7 @@
+package com.example.loginplugin.codes;
+
+/**
+ * One live row of {@code link_codes} as read by the index poller.
+ */
+public record CodeRow(long rowid, String code, String username, long expiresAt) {
+}
@@ -0,0 +1,76 @@
+package com.example.loginplugin.codes;
+
+import java.util.Arrays;
+
+/**
+ * Hashed timing wheel of codes keyed by expiry time. Each tick only visits the one bucket whose
+ * time has come instead of scanning every live code. Entries are validated against the map when
+ * their bucket fires, so a code that was redeemed or re-issued in the meantime is simply dropped
+ * or rescheduled. Not thread-safe; {@link CodeIndex} guards it.
+ */
+final class ExpiryWheel {
+
+	private final long tickMillis;
+	private final int[][] buckets;
+	private final int[] sizes;
+	private final int mask;
+	private long currentTick;
+
+	ExpiryWheel(int wheelSize, long tickMillis, long now) {
+		int size = Integer.highestOneBit(Math.max(wheelSize, 2) - 1) << 1;
+		this.tickMillis = tickMillis;
+		this.buckets = new int[size][];
+		this.sizes = new int[size];
+		this.mask = size - 1;
+		for (int i = 0; i < size; i++) {
+			buckets[i] = new int[8];
+		}
+		this.currentTick = now / tickMillis;
+	}
+
+	void schedule(int code, long expiresAt) {
+		// Never schedule into the bucket being processed or into the past
+		long tick = Math.max(expiresAt / tickMillis, currentTick + 1);
+		int b = (int) (tick & mask);
+		if (sizes[b] == buckets[b].length) {
+			buckets[b] = Arrays.copyOf(buckets[b], sizes[b] << 1);
+		}
+		buckets[b][sizes[b]++] = code;
+	}
+
+	/**
+	 * Fires every bucket up to {@code now}, removing expired codes from the map.
+	 *
+	 * @return number of codes removed
+	 */
+	int advance(long now, IntCodeMap map) {
+		long target = now / tickMillis;
+		// Visiting more than one full turn would only repeat buckets
+		long from = Math.max(currentTick + 1, target - mask);
+		int expired = 0;
+		for (long tick = from; tick <= target; tick++) {
+			currentTick = tick;
+			int b = (int) (tick & mask);
+			int[] bucket = buckets[b];
+			int n = sizes[b];
+			sizes[b] = 0;
+			for (int i = 0; i < n; i++) {
+				int code = bucket[i];
+				int slot = map.indexOf(code);
+				if (slot < 0) {
+					continue;
+				}
+				long expiresAt = map.expiresAt(slot);
+				if (expiresAt <= now) {
+					map.remove(code);
+					expired++;
+				} else {
+					// Expires in a later turn of the wheel
+					schedule(code, expiresAt);
+				}
+			}
+		}
+		currentTick = Math.max(currentTick, target);
+		return expired;
+	}
+}
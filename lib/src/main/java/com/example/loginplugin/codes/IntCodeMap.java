@@ -0,0 +1,129 @@
+package com.example.loginplugin.codes;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from a numeric code to the row it belongs to. Keys are primitive ints
+ * probed linearly and removals use backward shifting, so lookups never allocate and no tombstones
+ * build up. Not thread-safe; {@link CodeIndex} guards it.
+ */
+final class IntCodeMap {
+
+	private static final int FREE = -1;
+	private static final float LOAD_FACTOR = 0.5f;
+
+	private int[] keys;
+	private String[] names;
+	private long[] expiresAt;
+	private int mask;
+	private int size;
+	private int resizeAt;
+
+	IntCodeMap(int expected) {
+		allocate(tableSizeFor(Math.max(expected, 16)));
+	}
+
+	private static int tableSizeFor(int expected) {
+		int n = Integer.highestOneBit((int) Math.ceil(expected / LOAD_FACTOR) - 1) << 1;
+		return Math.max(n, 16);
+	}
+
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		Arrays.fill(keys, FREE);
+		names = new String[capacity];
+		expiresAt = new long[capacity];
+		mask = capacity - 1;
+		resizeAt = (int) (capacity * LOAD_FACTOR);
+	}
+
+	private static int mix(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * @return the slot holding the code, or -1 if absent
+	 */
+	int indexOf(int code) {
+		int i = mix(code) & mask;
+		int k;
+		while ((k = keys[i]) != FREE) {
+			if (k == code) {
+				return i;
+			}
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	String nameAt(int slot) {
+		return names[slot];
+	}
+
+	long expiresAt(int slot) {
+		return expiresAt[slot];
+	}
+
+	void put(int code, String name, long expires) {
+		int i = mix(code) & mask;
+		int k;
+		while ((k = keys[i]) != FREE) {
+			if (k == code) {
+				names[i] = name;
+				expiresAt[i] = expires;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = code;
+		names[i] = name;
+		expiresAt[i] = expires;
+		if (++size > resizeAt) {
+			rehash(keys.length << 1);
+		}
+	}
+
+	boolean remove(int code) {
+		int slot = indexOf(code);
+		if (slot < 0) {
+			return false;
+		}
+		// Backward-shift the rest of the probe chain into the hole
+		int hole = slot;
+		int i = (hole + 1) & mask;
+		int k;
+		while ((k = keys[i]) != FREE) {
+			int home = mix(k) & mask;
+			// Move the entry if its home is not between the hole and its current slot
+			if (((i - home) & mask) >= ((i - hole) & mask)) {
+				keys[hole] = k;
+				names[hole] = names[i];
+				expiresAt[hole] = expiresAt[i];
+				hole = i;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[hole] = FREE;
+		names[hole] = null;
+		size--;
+		return true;
+	}
+
+	int size() {
+		return size;
+	}
+
+	private void rehash(int capacity) {
+		int[] oldKeys = keys;
+		String[] oldNames = names;
+		long[] oldExpires = expiresAt;
+		allocate(capacity);
+		size = 0;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != FREE) {
+				put(oldKeys[i], oldNames[i], oldExpires[i]);
+			}
+		}
+	}
+}
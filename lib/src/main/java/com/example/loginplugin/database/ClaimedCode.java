@@ -0,0 +1,14 @@
+package com.example.loginplugin.database;
+
+/**
+ * A {@code link_codes} row that was redeemed, as returned by the claiming statement.
+ *
+ * @param discordId the Discord account that asked for the code, or null if the row had none or
+ *                  the code was redeemed from memory
+ */
+public record ClaimedCode(String code, String username, long expiresAt, String discordId) {
+
+	public ClaimedCode(String code, String username, long expiresAt) {
+		this(code, username, expiresAt, null);
+	}
+}
@@ -0,0 +1,257 @@
+package com.example.loginplugin.database;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Thread-confined JDBC access: a fixed pool of reader threads and a pool of writer threads, each
+ * owning its own connection. SQLite allows one writer at a time, so for SQLite all writes are
+ * serialized on a single writer thread instead of fighting over the database lock.
+ */
+public final class DatabasePool {
+
+	/**
+	 * Applied to every connection right after it is opened.
+	 */
+	@FunctionalInterface
+	public interface Setup {
+		void apply(Connection connection) throws SQLException;
+	}
+
+	private final Logger logger;
+	private final String url;
+	private final Properties info;
+	private final Setup setup;
+
+	private final ThreadPoolExecutor readers;
+	private final ThreadPoolExecutor writer;
+	private final PoolStats readStats = new PoolStats("readers");
+	private final PoolStats writeStats = new PoolStats("writer");
+
+	// Each pool thread lazily opens its own connection; it is never touched by another thread
+	private final ThreadLocal<PooledConnection> local = new ThreadLocal<>();
+	private final List<PooledConnection> opened = new ArrayList<>();
+
+	public DatabasePool(Logger logger, File dbFile, DatabaseSettings settings) {
+		this(logger, "jdbc:sqlite:" + dbFile.getAbsolutePath(), new Properties(), settings.readerThreads(), 1, c -> {
+			try (Statement stmt = c.createStatement()) {
+				stmt.execute("PRAGMA busy_timeout=" + settings.busyTimeoutMs());
+			}
+		});
+	}
+
+	public DatabasePool(Logger logger, String url, Properties info, int readerThreads, int writerThreads, Setup setup) {
+		this.logger = logger;
+		this.url = url;
+		this.info = info;
+		this.setup = setup;
+		this.readers = newExecutor("LoginPlugin-DB-Reader", readerThreads);
+		this.writer = newExecutor("LoginPlugin-DB-Writer", writerThreads);
+	}
+
+	private static ThreadPoolExecutor newExecutor(String name, int threads) {
+		AtomicInteger counter = new AtomicInteger();
+		ThreadFactory factory = r -> {
+			Thread t = new Thread(r, threads == 1 ? name : name + "-" + counter.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		};
+		return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+				factory);
+	}
+
+	/**
+	 * Opens a writer connection up front so a broken database is reported at startup, and runs
+	 * {@code init} on it, e.g. to switch SQLite to WAL.
+	 */
+	public <T> T open(SqlTask<T> init) throws SQLException {
+		try {
+			return write(init).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof SQLException sql) {
+				throw sql;
+			}
+			throw e;
+		}
+	}
+
+	// ---------------- SUBMISSION ----------------
+
+	/**
+	 * Runs a read-only task on one of the reader threads.
+	 */
+	public <T> CompletableFuture<T> read(SqlTask<T> task) {
+		return submit(readers, readStats, task);
+	}
+
+	/**
+	 * Runs a task on the single writer thread. Use for anything that modifies the database.
+	 */
+	public <T> CompletableFuture<T> write(SqlTask<T> task) {
+		return submit(writer, writeStats, task);
+	}
+
+	private <T> CompletableFuture<T> submit(ExecutorService executor, PoolStats stats, SqlTask<T> task) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		long enqueuedAt = System.nanoTime();
+		stats.onSubmit();
+		try {
+			executor.execute(() -> {
+				stats.onStart(enqueuedAt);
+				try {
+					future.complete(task.run(connection()));
+					stats.onFinish(true);
+				} catch (Throwable t) {
+					stats.onFinish(false);
+					if (t instanceof SQLException) {
+						discardIfBroken();
+					}
+					future.completeExceptionally(t);
+				}
+			});
+		} catch (RuntimeException e) {
+			// Rejected because the pool is shutting down
+			stats.onStart(enqueuedAt);
+			stats.onFinish(false);
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	private PooledConnection connection() throws SQLException {
+		PooledConnection c = local.get();
+		if (c == null) {
+			Connection raw = DriverManager.getConnection(url, info);
+			try {
+				setup.apply(raw);
+			} catch (SQLException e) {
+				raw.close();
+				throw e;
+			}
+			c = new PooledConnection(raw);
+			local.set(c);
+			synchronized (opened) {
+				opened.add(c);
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * Drops this thread's connection after a failed task if it no longer works, e.g. because a
+	 * database server restarted, so the next task opens a fresh one.
+	 */
+	private void discardIfBroken() {
+		PooledConnection c = local.get();
+		if (c == null) {
+			return;
+		}
+		try {
+			if (c.raw().isValid(1)) {
+				return;
+			}
+		} catch (SQLException ignored) {
+			// treat as broken
+		}
+		local.remove();
+		synchronized (opened) {
+			opened.remove(c);
+		}
+		try {
+			c.close();
+		} catch (SQLException ignored) {
+			// already unusable
+		}
+	}
+
+	// ---------------- WARM-UP ----------------
+
+	/**
+	 * Opens the connection of every pool thread and prepares the given statements on it, all in
+	 * parallel, so the first requests after startup pay for neither.
+	 */
+	public CompletableFuture<Void> warmUp(List<String> readSql, List<String> writeSql) {
+		return CompletableFuture.allOf(warmUp(readers, readStats, readSql), warmUp(writer, writeStats, writeSql));
+	}
+
+	private CompletableFuture<Void> warmUp(ThreadPoolExecutor executor, PoolStats stats, List<String> sql) {
+		int threads = executor.getCorePoolSize();
+		// Each task keeps its thread until all have started, so every thread gets exactly one
+		CountDownLatch started = new CountDownLatch(threads);
+		CompletableFuture<?>[] tasks = new CompletableFuture<?>[threads];
+		for (int i = 0; i < threads; i++) {
+			tasks[i] = submit(executor, stats, c -> {
+				try {
+					for (String statement : sql) {
+						c.prepare(statement);
+					}
+				} finally {
+					started.countDown();
+				}
+				try {
+					started.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return null;
+			});
+		}
+		return CompletableFuture.allOf(tasks);
+	}
+
+	// ---------------- STATS ----------------
+
+	public PoolStats readStats() {
+		return readStats;
+	}
+
+	public PoolStats writeStats() {
+		return writeStats;
+	}
+
+	// ---------------- SHUTDOWN ----------------
+
+	/**
+	 * Stops accepting work, lets queued tasks finish and closes every connection.
+	 */
+	public void shutdown() {
+		readers.shutdown();
+		writer.shutdown();
+		try {
+			if (!readers.awaitTermination(5, TimeUnit.SECONDS) || !writer.awaitTermination(5, TimeUnit.SECONDS)) {
+				logger.warning("Database pool did not drain in time, closing connections anyway.");
+				readers.shutdownNow();
+				writer.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		synchronized (opened) {
+			for (PooledConnection c : opened) {
+				try {
+					c.close();
+				} catch (SQLException e) {
+					logger.severe("Error closing database connection: " + e.getMessage());
+				}
+			}
+			opened.clear();
+		}
+	}
+}
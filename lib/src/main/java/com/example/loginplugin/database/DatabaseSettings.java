@@ -0,0 +1,29 @@
+package com.example.loginplugin.database;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+/**
+ * Connection settings read from the {@code database} section of config.yml.
+ */
+public record DatabaseSettings(String path, int readerThreads, int busyTimeoutMs) {
+
+	public static final String DEFAULT_PATH = "./database/superdb.db";
+
+	public DatabaseSettings {
+		if (path == null || path.isBlank()) {
+			path = DEFAULT_PATH;
+		}
+		readerThreads = Math.max(1, readerThreads);
+		busyTimeoutMs = Math.max(0, busyTimeoutMs);
+	}
+
+	public static DatabaseSettings from(ConfigurationSection section) {
+		if (section == null) {
+			return new DatabaseSettings(DEFAULT_PATH, 4, 5000);
+		}
+		return new DatabaseSettings(
+				section.getString("path", DEFAULT_PATH),
+				section.getInt("reader_threads", 4),
+				section.getInt("busy_timeout_ms", 5000));
+	}
+}
@@ -0,0 +1,31 @@
+package com.example.loginplugin.database;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+/**
+ * Settings read from the {@code maintenance} section of config.yml.
+ */
+public record MaintenanceSettings(long intervalSeconds, int batchSize, int maxBatches, int vacuumPages,
+		boolean convertVacuum, int walTruncatePages) {
+
+	public MaintenanceSettings {
+		intervalSeconds = Math.max(10, intervalSeconds);
+		batchSize = Math.max(1, batchSize);
+		maxBatches = Math.max(1, maxBatches);
+		vacuumPages = Math.max(0, vacuumPages);
+		walTruncatePages = Math.max(0, walTruncatePages);
+	}
+
+	public static MaintenanceSettings from(ConfigurationSection section) {
+		if (section == null) {
+			return new MaintenanceSettings(300, 500, 20, 1000, false, 4000);
+		}
+		return new MaintenanceSettings(
+				section.getLong("interval_seconds", 300),
+				section.getInt("purge.batch_size", 500),
+				section.getInt("purge.max_batches", 20),
+				section.getInt("vacuum.pages", 1000),
+				section.getBoolean("vacuum.convert", false),
+				section.getInt("checkpoint.truncate_pages", 4000));
+	}
+}
@@ -0,0 +1,15 @@
+package com.example.loginplugin.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * One step of the schema history. Applied inside a transaction by {@link SchemaMigrator}.
+ */
+public record Migration(int version, String description, Step step) {
+
+	@FunctionalInterface
+	public interface Step {
+		void apply(Connection connection) throws SQLException;
+	}
+}
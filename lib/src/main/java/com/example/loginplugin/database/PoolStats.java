@@ -0,0 +1,93 @@
+package com.example.loginplugin.database;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Saturation counters for one side of the {@link DatabasePool} (readers or writer).
+ */
+public final class PoolStats {
+
+	private final String name;
+	private final AtomicInteger queued = new AtomicInteger();
+	private final AtomicInteger peakQueued = new AtomicInteger();
+	private final LongAdder submitted = new LongAdder();
+	private final LongAdder started = new LongAdder();
+	private final LongAdder completed = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder waitNanos = new LongAdder();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+
+	PoolStats(String name) {
+		this.name = name;
+	}
+
+	void onSubmit() {
+		submitted.increment();
+		int depth = queued.incrementAndGet();
+		peakQueued.accumulateAndGet(depth, Math::max);
+	}
+
+	void onStart(long enqueuedAt) {
+		queued.decrementAndGet();
+		started.increment();
+		long waited = System.nanoTime() - enqueuedAt;
+		waitNanos.add(waited);
+		maxWaitNanos.accumulateAndGet(waited, Math::max);
+	}
+
+	void onFinish(boolean ok) {
+		if (ok) {
+			completed.increment();
+		} else {
+			failed.increment();
+		}
+	}
+
+	public String name() {
+		return name;
+	}
+
+	/** Tasks submitted but not yet picked up by a pool thread. */
+	public int queueDepth() {
+		return queued.get();
+	}
+
+	public int peakQueueDepth() {
+		return peakQueued.get();
+	}
+
+	public long submitted() {
+		return submitted.sum();
+	}
+
+	public long completed() {
+		return completed.sum();
+	}
+
+	public long failed() {
+		return failed.sum();
+	}
+
+	public long totalWaitNanos() {
+		return waitNanos.sum();
+	}
+
+	public long maxWaitNanos() {
+		return maxWaitNanos.get();
+	}
+
+	public double averageWaitMillis() {
+		long n = started.sum();
+		return n == 0 ? 0.0 : (double) waitNanos.sum() / n / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[queued=%d, peak=%d, done=%d, failed=%d, avgWait=%.2fms, maxWait=%.2fms]",
+				name, queueDepth(), peakQueueDepth(), completed(), failed(), averageWaitMillis(),
+				maxWaitNanos() / 1_000_000.0);
+	}
+}
@@ -0,0 +1,79 @@
+package com.example.loginplugin.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A connection owned by exactly one pool thread, with its prepared statements cached by SQL text.
+ * Never share an instance between threads.
+ */
+public final class PooledConnection implements AutoCloseable {
+
+	private final Connection connection;
+	private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+	PooledConnection(Connection connection) {
+		this.connection = connection;
+	}
+
+	/**
+	 * Returns the cached statement for this SQL, preparing it on first use.
+	 * Parameters left over from a previous call are cleared.
+	 */
+	public PreparedStatement prepare(String sql) throws SQLException {
+		PreparedStatement stmt = statements.get(sql);
+		if (stmt == null || stmt.isClosed()) {
+			stmt = connection.prepareStatement(sql);
+			statements.put(sql, stmt);
+		} else {
+			stmt.clearParameters();
+		}
+		return stmt;
+	}
+
+	public Connection raw() {
+		return connection;
+	}
+
+	@FunctionalInterface
+	public interface Work {
+		void run() throws SQLException;
+	}
+
+	/**
+	 * Runs {@code work} as one transaction, rolled back if it throws. Expects the connection in
+	 * auto-commit mode and leaves it that way.
+	 */
+	public void inTransaction(Work work) throws SQLException {
+		connection.setAutoCommit(false);
+		try {
+			work.run();
+			connection.commit();
+		} catch (SQLException | RuntimeException e) {
+			connection.rollback();
+			throw e;
+		} finally {
+			connection.setAutoCommit(true);
+		}
+	}
+
+	public int cachedStatements() {
+		return statements.size();
+	}
+
+	@Override
+	public void close() throws SQLException {
+		for (PreparedStatement stmt : statements.values()) {
+			try {
+				stmt.close();
+			} catch (SQLException ignored) {
+				// closing the connection below releases it anyway
+			}
+		}
+		statements.clear();
+		connection.close();
+	}
+}
@@ -0,0 +1,57 @@
+package com.example.loginplugin.database;
+
+/**
+ * SQL used on the login path. Written against the indexes created by {@link SchemaMigrator}:
+ * usernames are compared with {@code COLLATE NOCASE} rather than {@code LOWER(...)}, which would
+ * hide the column from every index.
+ */
+public final class Queries {
+
+	/** Redeems a code and returns the claimed row. Uses the index on {@code code} and username. */
+	public static final String CLAIM_CODE = "DELETE FROM link_codes "
+			+ "WHERE code = ? AND mc_username = ? COLLATE NOCASE AND expires_at > ? "
+			+ "RETURNING code, mc_username, expires_at, discord_id";
+
+	/** Uses the NOCASE index on {@code accounts.mc_username}. */
+	public static final String IS_REGISTERED = "SELECT 1 FROM accounts WHERE mc_username = ? COLLATE NOCASE LIMIT 1";
+
+	/** Live codes above the poll cursor, by rowid. */
+	public static final String CODES_AFTER_ROWID = "SELECT rowid, code, mc_username, expires_at FROM link_codes "
+			+ "WHERE rowid > ? AND expires_at > ? ORDER BY rowid LIMIT ?";
+
+	/** Codes that reused a rowid at or below the cursor. Uses the index on {@code expires_at}. */
+	public static final String CODES_REUSED_ROWID = "SELECT rowid, code, mc_username, expires_at FROM link_codes "
+			+ "WHERE rowid <= ? AND expires_at > ? AND expires_at > ? LIMIT ?";
+
+	/** Records a redemption on the account; uses the NOCASE index on {@code accounts.mc_username}. */
+	public static final String LINK_ACCOUNT = "UPDATE accounts SET mc_uuid = ?, discord_id = COALESCE(?, discord_id), "
+			+ "last_login_at = ? WHERE mc_username = ? COLLATE NOCASE";
+
+	public static final String INSERT_LINKED_ACCOUNT = "INSERT INTO accounts (mc_username, discord_id, mc_uuid, last_login_at) "
+			+ "VALUES (?, ?, ?, ?)";
+
+	public static final String ACCOUNTS_AFTER_ROWID = "SELECT rowid, mc_username FROM accounts "
+			+ "WHERE rowid > ? ORDER BY rowid LIMIT ?";
+
+	/** Primary key lookup on {@code account_skins}. */
+	public static final String SKIN_BY_USERNAME = "SELECT texture_value, texture_signature FROM account_skins "
+			+ "WHERE mc_username = ? COLLATE NOCASE";
+
+	public static final String SAVE_RECONNECT_TOKEN = "INSERT INTO reconnect_tokens (mc_uuid, address, expires_at) "
+			+ "VALUES (?, ?, ?) ON CONFLICT(mc_uuid) DO UPDATE SET address = excluded.address, expires_at = excluded.expires_at";
+
+	public static final String LIVE_RECONNECT_TOKENS = "SELECT mc_uuid, address, expires_at FROM reconnect_tokens "
+			+ "WHERE expires_at > ?";
+
+	/** One bounded batch of expired codes, found through the index on {@code expires_at}. */
+	public static final String PURGE_EXPIRED_CODES = "DELETE FROM link_codes WHERE rowid IN "
+			+ "(SELECT rowid FROM link_codes WHERE expires_at <= ? LIMIT ?)";
+
+	/** Reads the schema page, so it fails when the file is gone or unreadable. */
+	public static final String PING = "SELECT count(*) FROM sqlite_master";
+
+	public static final String PURGE_RECONNECT_TOKENS = "DELETE FROM reconnect_tokens WHERE expires_at <= ?";
+
+	private Queries() {
+	}
+}
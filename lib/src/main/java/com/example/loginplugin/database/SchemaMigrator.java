@@ -0,0 +1,140 @@
+package com.example.loginplugin.database;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Brings the database schema up to date at startup. The applied version is kept in SQLite's
+ * {@code PRAGMA user_version}, and each pending migration runs in its own transaction.
+ */
+public final class SchemaMigrator {
+
+	private static final List<Migration> MIGRATIONS = List.of(
+			new Migration(1, "baseline tables", c -> {
+				try (Statement stmt = c.createStatement()) {
+					// The Discord bot normally owns these; creating them lets a fresh install start
+					stmt.execute("CREATE TABLE IF NOT EXISTS link_codes ("
+							+ "code TEXT NOT NULL, "
+							+ "mc_username TEXT NOT NULL, "
+							+ "mc_uuid TEXT, "
+							+ "discord_id TEXT, "
+							+ "expires_at INTEGER NOT NULL)");
+					stmt.execute("CREATE TABLE IF NOT EXISTS accounts ("
+							+ "mc_username TEXT NOT NULL, "
+							+ "discord_id TEXT)");
+				}
+			}),
+			new Migration(2, "indexes for code redemption and account lookup", c -> {
+				try (Statement stmt = c.createStatement()) {
+					// Not unique: the Discord bot may hand the same code to two players at once
+					stmt.execute("CREATE INDEX IF NOT EXISTS idx_link_codes_code "
+							+ "ON link_codes(code, mc_username COLLATE NOCASE)");
+					stmt.execute("CREATE INDEX IF NOT EXISTS idx_link_codes_expires_at ON link_codes(expires_at)");
+					stmt.execute("CREATE INDEX IF NOT EXISTS idx_link_codes_username "
+							+ "ON link_codes(mc_username COLLATE NOCASE)");
+					stmt.execute("CREATE INDEX IF NOT EXISTS idx_accounts_username "
+							+ "ON accounts(mc_username COLLATE NOCASE)");
+				}
+			}),
+			new Migration(3, "per-account skins", c -> {
+				try (Statement stmt = c.createStatement()) {
+					stmt.execute("CREATE TABLE IF NOT EXISTS account_skins ("
+							+ "mc_username TEXT NOT NULL PRIMARY KEY COLLATE NOCASE, "
+							+ "texture_value TEXT NOT NULL, "
+							+ "texture_signature TEXT, "
+							+ "updated_at INTEGER)");
+				}
+			}),
+			new Migration(4, "remembered sessions", c -> {
+				try (Statement stmt = c.createStatement()) {
+					stmt.execute("CREATE TABLE IF NOT EXISTS reconnect_tokens ("
+							+ "mc_uuid TEXT NOT NULL PRIMARY KEY, "
+							+ "address TEXT NOT NULL, "
+							+ "expires_at INTEGER NOT NULL)");
+				}
+			}),
+			new Migration(5, "account linkage by UUID", c -> {
+				// The Discord bot may have added these itself, and older bots created the tables without discord_id
+				addColumnIfMissing(c, "link_codes", "discord_id", "TEXT");
+				addColumnIfMissing(c, "accounts", "discord_id", "TEXT");
+				addColumnIfMissing(c, "accounts", "mc_uuid", "TEXT");
+				addColumnIfMissing(c, "accounts", "last_login_at", "INTEGER");
+				try (Statement stmt = c.createStatement()) {
+					stmt.execute("CREATE INDEX IF NOT EXISTS idx_accounts_uuid ON accounts(mc_uuid)");
+				}
+			}));
+
+	private final Logger logger;
+
+	public SchemaMigrator(Logger logger) {
+		this.logger = logger;
+	}
+
+	private static void addColumnIfMissing(Connection connection, String table, String column, String type)
+			throws SQLException {
+		try (Statement stmt = connection.createStatement()) {
+			try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+				while (rs.next()) {
+					if (rs.getString("name").equalsIgnoreCase(column)) {
+						return;
+					}
+				}
+			}
+			stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + type);
+		}
+	}
+
+	public static int latestVersion() {
+		return MIGRATIONS.get(MIGRATIONS.size() - 1).version();
+	}
+
+	public static int currentVersion(Connection connection) throws SQLException {
+		try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+			return rs.next() ? rs.getInt(1) : 0;
+		}
+	}
+
+	/**
+	 * Applies every migration newer than the database's version.
+	 *
+	 * @return the schema version after migrating
+	 */
+	public int migrate(Connection connection) throws SQLException {
+		int current = currentVersion(connection);
+		if (current > latestVersion()) {
+			logger.warning("Database schema version " + current + " is newer than this plugin knows ("
+					+ latestVersion() + "). Leaving it untouched.");
+			return current;
+		}
+
+		boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		try {
+			for (Migration migration : MIGRATIONS) {
+				if (migration.version() <= current) {
+					continue;
+				}
+				try {
+					migration.step().apply(connection);
+					try (Statement stmt = connection.createStatement()) {
+						stmt.execute("PRAGMA user_version = " + migration.version());
+					}
+					connection.commit();
+					current = migration.version();
+					logger.info("Applied database migration " + migration.version() + ": " + migration.description());
+				} catch (SQLException e) {
+					connection.rollback();
+					throw new SQLException("Migration " + migration.version() + " (" + migration.description()
+							+ ") failed: " + e.getMessage(), e);
+				}
+			}
+		} finally {
+			connection.setAutoCommit(autoCommit);
+		}
+		return current;
+	}
+}
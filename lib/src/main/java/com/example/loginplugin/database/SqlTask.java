@@ -0,0 +1,12 @@
+package com.example.loginplugin.database;
+
+import java.sql.SQLException;
+
+/**
+ * Unit of work executed on a pool thread against that thread's own connection.
+ */
+@FunctionalInterface
+public interface SqlTask<T> {
+
+	T run(PooledConnection connection) throws SQLException;
+}
@@ -0,0 +1,167 @@
+package com.example.loginplugin.database;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Periodic upkeep of the SQLite file: deletes expired link codes, hands free pages back with an
+ * incremental vacuum and checkpoints the WAL. Every step is a separate task on the writer thread,
+ * so code claims queued behind it wait for one batch at most, never for a whole run.
+ */
+public final class SqliteMaintenance {
+
+	/**
+	 * What one run did.
+	 *
+	 * @param walPages pages in the WAL before checkpointing
+	 */
+	public record Report(int purged, int vacuumedPages, int walPages, boolean walTruncated, long millis) {
+	}
+
+	private final Logger logger;
+	private final DatabasePool pool;
+	private final MaintenanceSettings settings;
+
+	private final LongAdder purged = new LongAdder();
+	private final LongAdder runs = new LongAdder();
+	private volatile Report last;
+	private boolean vacuumWarned;
+
+	public SqliteMaintenance(Logger logger, DatabasePool pool, MaintenanceSettings settings) {
+		this.logger = logger;
+		this.pool = pool;
+		this.settings = settings;
+	}
+
+	/**
+	 * Runs every step once. Blocks the calling thread, never the writer for longer than one step.
+	 */
+	public Report run(long now) {
+		long start = System.nanoTime();
+		int purgedNow = purgeExpiredCodes(now);
+		int vacuumed = vacuum();
+		int[] wal = checkpoint();
+
+		Report report = new Report(purgedNow, vacuumed, wal[0], wal[1] != 0,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		purged.add(purgedNow);
+		runs.increment();
+		last = report;
+		if (report.purged() > 0 || report.vacuumedPages() > 0 || report.walTruncated()) {
+			logger.info("Database maintenance: purged " + report.purged() + " expired codes, vacuumed "
+					+ report.vacuumedPages() + " pages, WAL " + report.walPages() + " pages"
+					+ (report.walTruncated() ? " (truncated)" : "") + " in " + report.millis() + " ms.");
+		}
+		return report;
+	}
+
+	// ---------------- STEPS ----------------
+
+	/**
+	 * Deletes expired codes in batches of {@code batchSize}, at most {@code maxBatches} per run.
+	 * Whatever is left over goes in the next run.
+	 */
+	private int purgeExpiredCodes(long now) {
+		int total = 0;
+		for (int batch = 0; batch < settings.maxBatches(); batch++) {
+			int deleted = pool.write(c -> {
+				PreparedStatement stmt = c.prepare(Queries.PURGE_EXPIRED_CODES);
+				stmt.setLong(1, now);
+				stmt.setInt(2, settings.batchSize());
+				return stmt.executeUpdate();
+			}).join();
+			total += deleted;
+			if (deleted < settings.batchSize()) {
+				break;
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Frees up to {@code vacuumPages} pages. Needs {@code auto_vacuum=INCREMENTAL}; a database
+	 * created without it is converted by one full VACUUM, and only when {@code vacuum.convert} is
+	 * set, since that rewrites the whole file while holding the write lock.
+	 */
+	private int vacuum() {
+		if (settings.vacuumPages() == 0) {
+			return 0;
+		}
+		return pool.write(c -> {
+			try (Statement stmt = c.raw().createStatement()) {
+				if (pragma(stmt, "PRAGMA auto_vacuum") != 2) {
+					if (!settings.convertVacuum()) {
+						if (!vacuumWarned) {
+							vacuumWarned = true;
+							logger.info("Database is not in incremental auto-vacuum mode; set maintenance.vacuum.convert "
+									+ "to convert it once with a full VACUUM.");
+						}
+						return 0;
+					}
+					long start = System.nanoTime();
+					stmt.execute("PRAGMA auto_vacuum=INCREMENTAL");
+					stmt.execute("VACUUM");
+					logger.info("Converted database to incremental auto-vacuum in "
+							+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.");
+				}
+
+				int before = pragma(stmt, "PRAGMA freelist_count");
+				// Pages are freed one per step; execute() would step once, executeUpdate() runs it out
+				stmt.executeUpdate("PRAGMA incremental_vacuum(" + settings.vacuumPages() + ")");
+				return before - pragma(stmt, "PRAGMA freelist_count");
+			}
+		}).join();
+	}
+
+	/**
+	 * Checkpoints without waiting for readers, and truncates the WAL file once it has grown past
+	 * {@code walTruncatePages}.
+	 *
+	 * @return pages in the WAL, and 1 if it was truncated
+	 */
+	private int[] checkpoint() {
+		return pool.write(c -> {
+			try (Statement stmt = c.raw().createStatement()) {
+				int walPages;
+				try (ResultSet rs = stmt.executeQuery("PRAGMA wal_checkpoint(PASSIVE)")) {
+					// busy, log pages, checkpointed pages
+					walPages = rs.next() ? rs.getInt(2) : 0;
+				}
+				if (settings.walTruncatePages() == 0 || walPages < settings.walTruncatePages()) {
+					return new int[] { walPages, 0 };
+				}
+				try (ResultSet rs = stmt.executeQuery("PRAGMA wal_checkpoint(TRUNCATE)")) {
+					boolean busy = rs.next() && rs.getInt(1) != 0;
+					return new int[] { walPages, busy ? 0 : 1 };
+				}
+			}
+		}).join();
+	}
+
+	private static int pragma(Statement stmt, String sql) throws SQLException {
+		try (ResultSet rs = stmt.executeQuery(sql)) {
+			return rs.next() ? rs.getInt(1) : 0;
+		}
+	}
+
+	// ---------------- STATS ----------------
+
+	/** Expired codes deleted since startup. */
+	public long purged() {
+		return purged.sum();
+	}
+
+	public long runs() {
+		return runs.sum();
+	}
+
+	/** The latest run, or null before the first one. */
+	public Report last() {
+		return last;
+	}
+}
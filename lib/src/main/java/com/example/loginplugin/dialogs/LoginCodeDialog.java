@@ -4,13 +4,18 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.YamlConfiguration;
 
+import io.papermc.paper.dialog.Dialog;
 import io.papermc.paper.plugin.bootstrap.BootstrapContext;
 import io.papermc.paper.plugin.lifecycle.event.LifecycleEventManager;
 import io.papermc.paper.registry.data.dialog.ActionButton;
 import io.papermc.paper.registry.data.dialog.DialogBase;
+import io.papermc.paper.registry.data.dialog.DialogRegistryEntry;
 import io.papermc.paper.registry.data.dialog.action.DialogAction;
 import io.papermc.paper.registry.data.dialog.body.DialogBody;
 import io.papermc.paper.registry.data.dialog.input.DialogInput;
@@ -26,18 +31,35 @@ import net.kyori.adventure.text.format.TextDecoration;
 import net.kyori.adventure.text.logger.slf4j.ComponentLogger;
 
 /**
- * Registers login dialogs with text driven entirely by config.yml.
+ * Registers login dialogs with text driven entirely by config.yml: one pair for the default text
+ * and one per locale under {@code dialogs.locales}. The same builders make unregistered copies
+ * when the text is reloaded at runtime (see {@link LoginDialogs}).
  */
 public final class LoginCodeDialog {
 
+    /**
+     * The two dialogs a player can be shown, with their registry path and config section.
+     */
+    public enum Kind {
+        LOGIN("login_code", "login"),
+        WRONG_CODE("login_code_wrong", "wrong_code");
+
+        private final String path;
+        private final String section;
+
+        Kind(String path, String section) {
+            this.path = path;
+            this.section = section;
+        }
+    }
+
     // ----------------------------------------------------------------------
     // Constants
     // ----------------------------------------------------------------------
     private static final String INPUT_CODE_KEY = "code";
     private static final String ACTION_SUBMIT_KEY = "myplugin:submit_code";
 
-    private static final String DIALOG_LOGIN = "myplugin:login_code";
-    private static final String DIALOG_WRONG = "myplugin:login_code_wrong";
+    private static final String NAMESPACE = "myplugin";
 
     // ----------------------------------------------------------------------
     private final LifecycleEventManager<BootstrapContext> manager;
@@ -101,40 +123,81 @@ public final class LoginCodeDialog {
 
     // ----------------------------------------------------------------------
     public void register() {
+        Set<String> locales = locales(config);
         manager.registerEventHandler(RegistryEvents.DIALOG.compose(), event -> {
-
-            // Initial login dialog - submit button only
-            event.registry()
-                    .register(DialogKeys.create(Key.key(DIALOG_LOGIN)),
-                            builder -> builder.base(createLoginDialogBase())
-                                    .type(DialogType.multiAction(
-                                            List.of(btnSubmit("dialogs.login.buttons.submit")),
-                                            null,
-                                            1)));
-
-            // Wrong code dialog - submit button only
-            event.registry()
-                    .register(DialogKeys.create(Key.key(DIALOG_WRONG)),
-                            builder -> builder.base(createWrongCodeDialogBase())
-                                    .type(DialogType.multiAction(
-                                            List.of(btnSubmit("dialogs.wrong_code.buttons.submit")),
-                                            null,
-                                            1)));
+            // Default text first, then a copy per configured locale
+            for (Kind kind : Kind.values()) {
+                event.registry().register(DialogKeys.create(key(kind, null)),
+                        builder -> build(builder, config, kind, null));
+                for (String locale : locales) {
+                    event.registry().register(DialogKeys.create(key(kind, locale)),
+                            builder -> build(builder, config, kind, locale));
+                }
+            }
         });
+        logger.info("Registered login dialogs for the default text and " + locales.size() + " locale(s).");
+    }
+
+    // ----------------------------------------------------------------------
+    // Keys and locales
+    // ----------------------------------------------------------------------
+
+    /**
+     * Registry key of a dialog: {@code myplugin:login_code} for the default text,
+     * {@code myplugin:de_de/login_code} for a locale.
+     */
+    public static Key key(Kind kind, String locale) {
+        return Key.key(NAMESPACE, locale == null ? kind.path : locale + "/" + kind.path);
+    }
+
+    /**
+     * Locales with their own text under {@code dialogs.locales}. Keys are written the way clients
+     * send them ({@code de_de}, or just {@code de} for every variant); others are skipped.
+     */
+    public static Set<String> locales(ConfigurationSection config) {
+        Set<String> locales = new TreeSet<>();
+        ConfigurationSection section = config.getConfigurationSection("dialogs.locales");
+        if (section != null) {
+            for (String locale : section.getKeys(false)) {
+                if (locale.matches("[a-z0-9_]+")) {
+                    locales.add(locale);
+                }
+            }
+        }
+        return locales;
     }
+
     // ----------------------------------------------------------------------
     // Dialog builders
     // ----------------------------------------------------------------------
 
+    /**
+     * Builds a dialog outside the registry, for text reloaded after startup.
+     */
+    public static Dialog create(ConfigurationSection config, Kind kind, String locale) {
+        return Dialog.create(factory -> build(factory.empty(), config, kind, locale));
+    }
+
+    private static void build(DialogRegistryEntry.Builder builder, ConfigurationSection config, Kind kind, String locale) {
+        Text text = new Text(config, locale);
+        DialogBase base = kind == Kind.LOGIN ? createLoginDialogBase(text) : createWrongCodeDialogBase(text);
+        // Submit button only
+        builder.base(base)
+                .type(DialogType.multiAction(
+                        List.of(btnSubmit(text, kind.section + ".buttons.submit")),
+                        null,
+                        1));
+    }
+
     /**
      * Creates the initial login dialog with server name, description, and instructions.
      */
-    private DialogBase createLoginDialogBase() {
-        String serverName = cfg("server.name", "Minecraft Server");
-        String serverDesc = cfg("server.description", "Welcome!");
-        String title = cfg("dialogs.login.title", "Welcome to the Server");
-        String instruction = cfg("dialogs.login.instruction", "Please go to our Discord server and get your 6-digit login code, then enter it below.");
-        String inputLabel = cfg("dialogs.login.input_label", "Enter Code:");
+    private static DialogBase createLoginDialogBase(Text text) {
+        String serverName = text.get("server.name", "Minecraft Server");
+        String serverDesc = text.get("server.description", "Welcome!");
+        String title = text.get("login.title", "Welcome to the Server");
+        String instruction = text.get("login.instruction", "Please go to our Discord server and get your 6-digit login code, then enter it below.");
+        String inputLabel = text.get("login.input_label", "Enter Code:");
 
         TextDialogInput codeInput = DialogInput.text(INPUT_CODE_KEY, Component.text(inputLabel)).build();
 
@@ -155,11 +218,11 @@ public final class LoginCodeDialog {
     /**
      * Creates the wrong code dialog with error message.
      */
-    private DialogBase createWrongCodeDialogBase() {
-        String title = cfg("dialogs.wrong_code.title", "Invalid Code");
-        String errorMessage = cfg("dialogs.wrong_code.error_message", "❌ WRONG CODE - The code you entered is incorrect or expired.");
-        String instruction = cfg("dialogs.wrong_code.instruction", "Please check your Discord and enter the correct 6-digit code.");
-        String inputLabel = cfg("dialogs.wrong_code.input_label", "Enter Code:");
+    private static DialogBase createWrongCodeDialogBase(Text text) {
+        String title = text.get("wrong_code.title", "Invalid Code");
+        String errorMessage = text.get("wrong_code.error_message", "❌ WRONG CODE - The code you entered is incorrect or expired.");
+        String instruction = text.get("wrong_code.instruction", "Please check your Discord and enter the correct 6-digit code.");
+        String inputLabel = text.get("wrong_code.input_label", "Enter Code:");
 
         TextDialogInput codeInput = DialogInput.text(INPUT_CODE_KEY, Component.text(inputLabel)).build();
 
@@ -177,11 +240,35 @@ public final class LoginCodeDialog {
                 .build();
     }
 
+    /**
+     * Builds the dialog shown while waiting for a free login slot. It has no input and its button
+     * does nothing, so it stays up until it is replaced by the next position or the login dialog.
+     */
+    public static Dialog queue(ConfigurationSection config, String locale, int position) {
+        Text text = new Text(config, locale);
+        String title = text.get("queue.title", "Please Wait");
+        String message = text.get("queue.message", "Many players are logging in right now. You are number {position} in line.");
+        String button = text.get("queue.button", "Waiting...");
+
+        DialogBase base = DialogBase.builder(Component.text(title, NamedTextColor.GOLD))
+                .canCloseWithEscape(false)
+                .pause(false)
+                .afterAction(DialogBase.DialogAfterAction.NONE)
+                .body(List.of(
+                        DialogBody.plainMessage(Component.text(message.replace("{position}", Integer.toString(position)),
+                                NamedTextColor.WHITE))
+                ))
+                .build();
+        return Dialog.create(factory -> factory.empty()
+                .base(base)
+                .type(DialogType.notice(ActionButton.builder(Component.text(button, NamedTextColor.GRAY)).build())));
+    }
+
     // ----------------------------------------------------------------------
     // Buttons
     // ----------------------------------------------------------------------
-    private ActionButton btnSubmit(String configPath) {
-        String label = cfg(configPath, "Submit");
+    private static ActionButton btnSubmit(Text text, String path) {
+        String label = text.get(path, "Submit");
         return ActionButton.builder(Component.text(label, NamedTextColor.GREEN))
                 .action(DialogAction.customClick(Key.key(ACTION_SUBMIT_KEY), null)).build();
     }
@@ -189,11 +276,28 @@ public final class LoginCodeDialog {
     // ----------------------------------------------------------------------
     // Configuration helper
     // ----------------------------------------------------------------------
+
     /**
-     * Reads string or returns fallback if missing.
+     * Looks text up under {@code dialogs.locales.<locale>} first, then under {@code dialogs}.
+     * Paths starting with {@code server.} are read from the top level instead of {@code dialogs}.
      */
-    private String cfg(String path, String fallback) {
-        String v = config.getString(path);
-        return (v == null || v.isBlank()) ? fallback : v;
+    private record Text(ConfigurationSection config, String locale) {
+
+        /**
+         * Reads string or returns fallback if missing.
+         */
+        String get(String path, String fallback) {
+            if (config == null) {
+                return fallback;
+            }
+            if (locale != null) {
+                String v = config.getString("dialogs.locales." + locale + "." + path);
+                if (v != null && !v.isBlank()) {
+                    return v;
+                }
+            }
+            String v = config.getString(path.startsWith("server.") ? path : "dialogs." + path);
+            return (v == null || v.isBlank()) ? fallback : v;
+        }
     }
 }
@@ -0,0 +1,120 @@
+package com.example.loginplugin.dialogs;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import com.example.loginplugin.dialogs.LoginCodeDialog.Kind;
+
+import net.kyori.adventure.dialog.DialogLike;
+import net.kyori.adventure.key.Key;
+
+/**
+ * The login dialogs by kind and client locale, resolved once and then served from memory. Starts
+ * out with the registry entries made at bootstrap; {@link #reload} swaps in freshly built copies,
+ * so text edits apply to the next dialog shown without touching the registry.
+ */
+public final class LoginDialogs {
+
+	/** One consistent set of dialogs and the text they came from; replaced as a whole on reload. */
+	private record Catalog(Set<String> locales, Map<String, EnumMap<Kind, DialogLike>> byLocale,
+			ConfigurationSection config) {
+	}
+
+	// Locale key for the default text
+	private static final String DEFAULT = "";
+
+	private volatile Catalog catalog;
+
+	/**
+	 * @param registry looks a registered dialog up by key
+	 * @param locales  the locales registered at bootstrap
+	 * @param config   text for the dialogs built on demand, such as the queue position
+	 */
+	public LoginDialogs(Function<Key, DialogLike> registry, Set<String> locales, ConfigurationSection config) {
+		Map<String, EnumMap<Kind, DialogLike>> byLocale = new HashMap<>();
+		byLocale.put(DEFAULT, resolve(registry, null));
+		for (String locale : locales) {
+			byLocale.put(locale, resolve(registry, locale));
+		}
+		this.catalog = new Catalog(Set.copyOf(locales), byLocale, config);
+	}
+
+	private static EnumMap<Kind, DialogLike> resolve(Function<Key, DialogLike> registry, String locale) {
+		EnumMap<Kind, DialogLike> dialogs = new EnumMap<>(Kind.class);
+		for (Kind kind : Kind.values()) {
+			DialogLike dialog = registry.apply(LoginCodeDialog.key(kind, locale));
+			if (dialog != null) {
+				dialogs.put(kind, dialog);
+			}
+		}
+		return dialogs;
+	}
+
+	/**
+	 * The dialog for a client locale such as {@code de_DE}: an exact match first, then the
+	 * language alone ({@code de}), then the default text.
+	 */
+	public DialogLike get(Kind kind, String clientLocale) {
+		Catalog current = catalog;
+		DialogLike dialog = null;
+		String locale = match(current.locales(), clientLocale);
+		if (locale != null) {
+			dialog = current.byLocale().get(locale).get(kind);
+		}
+		return dialog != null ? dialog : current.byLocale().get(DEFAULT).get(kind);
+	}
+
+	/**
+	 * The waiting dialog showing {@code position}, in the client's language. Built on every call,
+	 * since the position keeps changing.
+	 */
+	public DialogLike queue(String clientLocale, int position) {
+		Catalog current = catalog;
+		return LoginCodeDialog.queue(current.config(), match(current.locales(), clientLocale), position);
+	}
+
+	private static String match(Set<String> locales, String clientLocale) {
+		if (clientLocale == null || locales.isEmpty()) {
+			return null;
+		}
+		String locale = clientLocale.toLowerCase(Locale.ROOT);
+		if (locales.contains(locale)) {
+			return locale;
+		}
+		int separator = locale.indexOf('_');
+		if (separator > 0 && locales.contains(locale.substring(0, separator))) {
+			return locale.substring(0, separator);
+		}
+		return null;
+	}
+
+	/**
+	 * Rebuilds every dialog from {@code config}, including locales added since startup.
+	 *
+	 * @return the number of locales besides the default text
+	 */
+	public int reload(ConfigurationSection config) {
+		Set<String> locales = LoginCodeDialog.locales(config);
+		Map<String, EnumMap<Kind, DialogLike>> byLocale = new HashMap<>();
+		byLocale.put(DEFAULT, build(config, null));
+		for (String locale : locales) {
+			byLocale.put(locale, build(config, locale));
+		}
+		catalog = new Catalog(Set.copyOf(locales), byLocale, config);
+		return locales.size();
+	}
+
+	private static EnumMap<Kind, DialogLike> build(ConfigurationSection config, String locale) {
+		EnumMap<Kind, DialogLike> dialogs = new EnumMap<>(Kind.class);
+		for (Kind kind : Kind.values()) {
+			dialogs.put(kind, LoginCodeDialog.create(config, kind, locale));
+		}
+		return dialogs;
+	}
+}
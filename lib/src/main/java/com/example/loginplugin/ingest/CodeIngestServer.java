@@ -0,0 +1,277 @@
+package com.example.loginplugin.ingest;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import com.example.loginplugin.codes.CodeIndex;
+import com.example.loginplugin.ingest.IngestSettings.Transport;
+
+/**
+ * Accepts codes pushed by the Discord bot (see {@link IngestProtocol}) and puts them straight into
+ * the {@link CodeIndex}, so a code is known the moment it is issued instead of at the next poll.
+ * One selector thread serves every connection; frames are tiny and only touch memory.
+ */
+public final class CodeIngestServer {
+
+	private final Logger logger;
+	private final CodeIndex index;
+	private final byte[] secret;
+	private final Selector selector;
+	private final ServerSocketChannel server;
+	private final SocketAddress address;
+	private final Path socketFile;
+	private final Thread thread;
+	private volatile boolean running = true;
+
+	private final LongAdder issued = new LongAdder();
+	private final LongAdder revoked = new LongAdder();
+	private final LongAdder badFrames = new LongAdder();
+
+	private CodeIngestServer(Logger logger, IngestSettings settings, CodeIndex index) throws IOException {
+		this.logger = logger;
+		this.index = index;
+		this.secret = settings.secret().getBytes(StandardCharsets.UTF_8);
+
+		if (settings.transport() == Transport.UNIX) {
+			socketFile = Path.of(settings.path()).toAbsolutePath();
+			// Left behind by a crash; binding fails while it exists
+			Files.deleteIfExists(socketFile);
+			server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+			server.bind(UnixDomainSocketAddress.of(socketFile));
+			try {
+				Files.setPosixFilePermissions(socketFile, PosixFilePermissions.fromString("rw-------"));
+			} catch (UnsupportedOperationException e) {
+				logger.warning("Could not restrict permissions of " + socketFile + "; any local user may push codes.");
+			}
+		} else {
+			socketFile = null;
+			server = ServerSocketChannel.open();
+			server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), settings.port()));
+			if (secret.length == 0) {
+				logger.warning("Code ingestion listens on TCP without a secret; any local process may push codes.");
+			}
+		}
+		address = server.getLocalAddress();
+
+		selector = Selector.open();
+		server.configureBlocking(false);
+		server.register(selector, SelectionKey.OP_ACCEPT);
+
+		thread = new Thread(this::run, "LoginPlugin-Ingest");
+		thread.setDaemon(true);
+	}
+
+	public static CodeIngestServer start(Logger logger, IngestSettings settings, CodeIndex index) throws IOException {
+		CodeIngestServer ingest = new CodeIngestServer(logger, settings, index);
+		ingest.thread.start();
+		return ingest;
+	}
+
+	// ---------------- SELECTOR LOOP ----------------
+
+	private void run() {
+		try {
+			while (running) {
+				selector.select();
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid()) {
+						continue;
+					}
+					if (key.isAcceptable()) {
+						accept();
+					} else if (key.isReadable()) {
+						read(key);
+					}
+				}
+			}
+		} catch (IOException | ClosedSelectorException e) {
+			logger.severe("Code ingestion stopped: " + e.getMessage());
+			e.printStackTrace();
+		} finally {
+			closeAll();
+		}
+	}
+
+	private void closeAll() {
+		for (SelectionKey key : selector.keys()) {
+			try {
+				key.channel().close();
+			} catch (IOException ignored) {
+				// closing anyway
+			}
+		}
+		try {
+			selector.close();
+		} catch (IOException ignored) {
+			// nothing left to release
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel = server.accept();
+		if (channel == null) {
+			return;
+		}
+		channel.configureBlocking(false);
+		channel.register(selector, SelectionKey.OP_READ, new Peer(secret.length == 0));
+	}
+
+	private void read(SelectionKey key) {
+		SocketChannel channel = (SocketChannel) key.channel();
+		Peer peer = (Peer) key.attachment();
+		try {
+			if (channel.read(peer.buffer) < 0) {
+				close(key);
+				return;
+			}
+			peer.buffer.flip();
+			boolean ok = drain(peer);
+			peer.buffer.compact();
+			if (!ok) {
+				badFrames.increment();
+				close(key);
+			}
+		} catch (IOException e) {
+			close(key);
+		}
+	}
+
+	/**
+	 * Handles every complete frame in the buffer.
+	 *
+	 * @return false if the peer sent something it should not have
+	 */
+	private boolean drain(Peer peer) {
+		ByteBuffer in = peer.buffer;
+		while (in.remaining() >= 2) {
+			int length = Short.toUnsignedInt(in.getShort(in.position()));
+			if (length < 1 || length > IngestProtocol.MAX_FRAME) {
+				return false;
+			}
+			if (in.remaining() < 2 + length) {
+				return true;
+			}
+			in.position(in.position() + 2);
+			int end = in.position() + length;
+			byte type = in.get();
+			boolean ok = frame(peer, type, in, end - in.position());
+			in.position(end);
+			if (!ok) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean frame(Peer peer, byte type, ByteBuffer body, int size) {
+		if (type == IngestProtocol.HELLO) {
+			byte[] given = new byte[size];
+			body.get(given);
+			peer.authenticated = MessageDigest.isEqual(secret, given);
+			return peer.authenticated;
+		}
+		if (!peer.authenticated) {
+			return false;
+		}
+
+		if (type == IngestProtocol.ISSUE && size > 12) {
+			int code = body.getInt();
+			long expiresAt = body.getLong();
+			byte[] name = new byte[size - 12];
+			body.get(name);
+			if (code < 0 || code > 999_999) {
+				return false;
+			}
+			index.push(code, new String(name, StandardCharsets.UTF_8), expiresAt);
+			issued.increment();
+			return true;
+		}
+		if (type == IngestProtocol.REVOKE && size == 4) {
+			index.revoke(body.getInt());
+			revoked.increment();
+			return true;
+		}
+		return false;
+	}
+
+	private static void close(SelectionKey key) {
+		key.cancel();
+		try {
+			key.channel().close();
+		} catch (IOException ignored) {
+			// already gone
+		}
+	}
+
+	/** Per-connection state, only touched by the selector thread. */
+	private static final class Peer {
+		final ByteBuffer buffer = ByteBuffer.allocate((IngestProtocol.MAX_FRAME + 2) * 4);
+		boolean authenticated;
+
+		Peer(boolean authenticated) {
+			this.authenticated = authenticated;
+		}
+	}
+
+	// ---------------- STATS ----------------
+
+	public SocketAddress address() {
+		return address;
+	}
+
+	public long issued() {
+		return issued.sum();
+	}
+
+	public long revoked() {
+		return revoked.sum();
+	}
+
+	/** Connections dropped for a malformed, oversized or unauthenticated frame. */
+	public long badFrames() {
+		return badFrames.sum();
+	}
+
+	// ---------------- SHUTDOWN ----------------
+
+	/**
+	 * Closes the socket and every connection; the selector thread does the closing itself.
+	 */
+	public void stop() {
+		running = false;
+		selector.wakeup();
+		try {
+			thread.join(1000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			if (socketFile != null) {
+				Files.deleteIfExists(socketFile);
+			}
+		} catch (IOException e) {
+			logger.warning("Error removing code ingestion socket: " + e.getMessage());
+		}
+	}
+}
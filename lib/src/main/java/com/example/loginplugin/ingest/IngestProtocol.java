@@ -0,0 +1,31 @@
+package com.example.loginplugin.ingest;
+
+/**
+ * Wire format spoken by the Discord bot on the ingestion socket. Every frame is
+ *
+ * <pre>
+ * length  u16   bytes that follow, type included
+ * type    u8
+ * body    length - 1 bytes
+ * </pre>
+ *
+ * with all numbers big-endian. The server never answers; a frame it cannot accept closes the
+ * connection.
+ */
+public final class IngestProtocol {
+
+	/** Body: the shared secret, UTF-8. Must come first when a secret is configured. */
+	public static final byte HELLO = 1;
+
+	/** Body: code (i32), expires_at in epoch millis (i64), username (UTF-8, rest of the frame). */
+	public static final byte ISSUE = 2;
+
+	/** Body: code (i32). */
+	public static final byte REVOKE = 3;
+
+	/** Largest accepted value of the length field. */
+	public static final int MAX_FRAME = 512;
+
+	private IngestProtocol() {
+	}
+}
@@ -0,0 +1,47 @@
+package com.example.loginplugin.ingest;
+
+import java.util.Locale;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+/**
+ * Settings read from the {@code codes.ingest} section of config.yml.
+ */
+public record IngestSettings(Transport transport, String path, int port, String secret) {
+
+	public enum Transport {
+		/** A socket file; only users allowed to open it can push codes. */
+		UNIX,
+		/** A TCP port on the loopback interface. */
+		TCP
+	}
+
+	public static final String DEFAULT_PATH = "./database/loginplugin.sock";
+
+	public IngestSettings {
+		if (path == null || path.isBlank()) {
+			path = DEFAULT_PATH;
+		}
+		if (secret == null) {
+			secret = "";
+		}
+	}
+
+	/**
+	 * @throws IllegalArgumentException for an unknown transport
+	 */
+	public static IngestSettings from(ConfigurationSection section) {
+		if (section == null) {
+			return new IngestSettings(Transport.UNIX, DEFAULT_PATH, 9465, "");
+		}
+		String transport = section.getString("transport", "unix");
+		try {
+			return new IngestSettings(Transport.valueOf(transport.trim().toUpperCase(Locale.ROOT)),
+					section.getString("path", DEFAULT_PATH),
+					section.getInt("port", 9465),
+					section.getString("secret", ""));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Unknown codes.ingest.transport '" + transport + "', expected unix or tcp");
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package com.example.loginplugin.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("com.example.loginplugin.CodeSubmit")
+@Label("Login Code Submit")
+@Category({ "LoginPlugin" })
+class CodeSubmitEvent extends Event {
+
+	@Label("Player")
+	String player;
+
+	@Label("Accepted")
+	boolean accepted;
+
+	@Label("Dialog Round Trip")
+	@Timespan(Timespan.NANOSECONDS)
+	long roundTrip;
+}
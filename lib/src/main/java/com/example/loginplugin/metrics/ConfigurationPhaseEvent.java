@@ -0,0 +1,23 @@
+package com.example.loginplugin.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("com.example.loginplugin.ConfigurationPhase")
+@Label("Login Configuration Phase")
+@Category({ "LoginPlugin" })
+class ConfigurationPhaseEvent extends Event {
+
+	@Label("Player")
+	String player;
+
+	@Label("Outcome")
+	String outcome;
+
+	@Label("Time In Configuration")
+	@Timespan(Timespan.NANOSECONDS)
+	long elapsed;
+}
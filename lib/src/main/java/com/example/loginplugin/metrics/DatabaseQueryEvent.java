@@ -0,0 +1,23 @@
+package com.example.loginplugin.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("com.example.loginplugin.DatabaseQuery")
+@Label("Login Database Query")
+@Category({ "LoginPlugin" })
+class DatabaseQueryEvent extends Event {
+
+	@Label("Query")
+	String query;
+
+	@Label("Succeeded")
+	boolean succeeded;
+
+	@Label("Latency")
+	@Timespan(Timespan.NANOSECONDS)
+	long latency;
+}
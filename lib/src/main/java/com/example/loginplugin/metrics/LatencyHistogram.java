@@ -0,0 +1,66 @@
+package com.example.loginplugin.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-bucket latency histogram. Recording is a bucket scan and two adds, with no locking and
+ * no allocation; buckets are only summed when the histogram is rendered.
+ */
+public final class LatencyHistogram {
+
+	/** Upper bounds of the buckets, in milliseconds. Anything slower lands in +Inf. */
+	private static final long[] BOUNDS_MILLIS = { 1, 2, 5, 10, 25, 50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000,
+			30_000, 60_000 };
+	private static final long[] BOUNDS_NANOS = new long[BOUNDS_MILLIS.length];
+
+	static {
+		for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+			BOUNDS_NANOS[i] = BOUNDS_MILLIS[i] * 1_000_000L;
+		}
+	}
+
+	private final LongAdder[] buckets = new LongAdder[BOUNDS_MILLIS.length + 1];
+	private final LongAdder sumNanos = new LongAdder();
+
+	public LatencyHistogram() {
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	public void record(long nanos) {
+		int i = 0;
+		while (i < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[i]) {
+			i++;
+		}
+		buckets[i].increment();
+		sumNanos.add(nanos);
+	}
+
+	public long count() {
+		long n = 0;
+		for (LongAdder bucket : buckets) {
+			n += bucket.sum();
+		}
+		return n;
+	}
+
+	/**
+	 * Appends the histogram in Prometheus text format, in seconds.
+	 *
+	 * @param labels extra labels without braces, e.g. {@code query="claim_code"}, or empty
+	 */
+	void render(StringBuilder out, String name, String labels) {
+		String prefix = labels.isEmpty() ? "" : labels + ",";
+		long cumulative = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			cumulative += buckets[i].sum();
+			String le = i < BOUNDS_MILLIS.length ? Double.toString(BOUNDS_MILLIS[i] / 1000.0) : "+Inf";
+			out.append(name).append("_bucket{").append(prefix).append("le=\"").append(le).append("\"} ")
+					.append(cumulative).append('\n');
+		}
+		String suffix = labels.isEmpty() ? "" : "{" + labels + "}";
+		out.append(name).append("_sum").append(suffix).append(' ').append(sumNanos.sum() / 1e9).append('\n');
+		out.append(name).append("_count").append(suffix).append(' ').append(cumulative).append('\n');
+	}
+}
@@ -0,0 +1,187 @@
+package com.example.loginplugin.metrics;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Counters and latency histograms for the login pipeline. Every recording method is lock-free
+ * and also emits a JFR event, which costs next to nothing unless a recording has the event
+ * enabled.
+ */
+public final class LoginMetrics {
+
+	public enum Query {
+		CLAIM_CODE, IS_REGISTERED, LOAD_SKIN,
+		/** One write-behind batch of account links. */
+		SAVE_ACCOUNT_LINKS;
+
+		final String label = name().toLowerCase(Locale.ROOT);
+	}
+
+	/** How a configuration phase ended. */
+	public enum Outcome {
+		SUCCESS, TIMEOUT, FAILED,
+		/** Skipped the dialog on a reconnect token. */
+		RESUMED,
+		/** Turned away because the database was unavailable. */
+		UNAVAILABLE;
+
+		final String label = name().toLowerCase(Locale.ROOT);
+	}
+
+	private record Gauge(String name, String help, DoubleSupplier value) {
+	}
+
+	private static final String PREFIX = "loginplugin_";
+
+	private final Map<Outcome, LatencyHistogram> configuration = new EnumMap<>(Outcome.class);
+	private final Map<Query, LatencyHistogram> queries = new EnumMap<>(Query.class);
+	private final LatencyHistogram dialogRoundTrip = new LatencyHistogram();
+
+	private final LongAdder rejectedCodes = new LongAdder();
+	private final LongAdder maxAttemptDisconnects = new LongAdder();
+	private final List<Gauge> gauges = new CopyOnWriteArrayList<>();
+
+	public LoginMetrics() {
+		for (Outcome outcome : Outcome.values()) {
+			configuration.put(outcome, new LatencyHistogram());
+		}
+		for (Query query : Query.values()) {
+			queries.put(query, new LatencyHistogram());
+		}
+	}
+
+	// ---------------- RECORDING ----------------
+
+	/**
+	 * Records a finished configuration phase. Its outcome doubles as the success/timeout/failure
+	 * counter.
+	 */
+	public void configurationFinished(String player, long startNanos, Outcome outcome) {
+		long elapsed = System.nanoTime() - startNanos;
+		configuration.get(outcome).record(elapsed);
+
+		ConfigurationPhaseEvent event = new ConfigurationPhaseEvent();
+		if (event.shouldCommit()) {
+			event.player = player;
+			event.outcome = outcome.label;
+			event.elapsed = elapsed;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Records the time from showing a dialog to the player submitting it. Taken when the click
+	 * arrives, so neither the wait for a submit worker nor the code check is part of it.
+	 *
+	 * @return the round trip, to pass on to {@link #codeChecked}
+	 */
+	public long dialogSubmitted(long shownAtNanos) {
+		long elapsed = System.nanoTime() - shownAtNanos;
+		dialogRoundTrip.record(elapsed);
+		return elapsed;
+	}
+
+	/**
+	 * Records whether a submitted code was accepted.
+	 */
+	public void codeChecked(String player, long roundTripNanos, boolean accepted) {
+		if (!accepted) {
+			rejectedCodes.increment();
+		}
+
+		CodeSubmitEvent event = new CodeSubmitEvent();
+		if (event.shouldCommit()) {
+			event.player = player;
+			event.accepted = accepted;
+			event.roundTrip = roundTripNanos;
+			event.commit();
+		}
+	}
+
+	public void maxAttemptsDisconnect() {
+		maxAttemptDisconnects.increment();
+	}
+
+	/**
+	 * Times a database call from submission to completion, queue wait included.
+	 */
+	public <T> CompletableFuture<T> time(Query query, CompletableFuture<T> future) {
+		long start = System.nanoTime();
+		future.whenComplete((result, error) -> {
+			long elapsed = System.nanoTime() - start;
+			queries.get(query).record(elapsed);
+
+			DatabaseQueryEvent event = new DatabaseQueryEvent();
+			if (event.shouldCommit()) {
+				event.query = query.label;
+				event.succeeded = error == null;
+				event.latency = elapsed;
+				event.commit();
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Exposes a value read at scrape time, e.g. the number of sessions awaiting a code.
+	 */
+	public void gauge(String name, String help, DoubleSupplier value) {
+		gauges.add(new Gauge(PREFIX + name, help, value));
+	}
+
+	// ---------------- EXPORT ----------------
+
+	public String renderPrometheus() {
+		StringBuilder out = new StringBuilder(4096);
+
+		header(out, "configuration_seconds", "histogram", "Time spent in the configuration phase, by outcome.");
+		for (Outcome outcome : Outcome.values()) {
+			configuration.get(outcome).render(out, PREFIX + "configuration_seconds",
+					"outcome=\"" + outcome.label + "\"");
+		}
+
+		header(out, "dialog_round_trip_seconds", "histogram", "Time from showing the login dialog to a submit.");
+		dialogRoundTrip.render(out, PREFIX + "dialog_round_trip_seconds", "");
+
+		header(out, "query_seconds", "histogram", "Database call latency, queue wait included.");
+		for (Query query : Query.values()) {
+			queries.get(query).render(out, PREFIX + "query_seconds", "query=\"" + query.label + "\"");
+		}
+
+		header(out, "logins_total", "counter", "Finished configuration phases, by outcome.");
+		for (Outcome outcome : Outcome.values()) {
+			out.append(PREFIX).append("logins_total{outcome=\"").append(outcome.label).append("\"} ")
+					.append(configuration.get(outcome).count()).append('\n');
+		}
+
+		counter(out, "rejected_codes_total", "Code submits that were wrong, expired or throttled.",
+				rejectedCodes.sum());
+		counter(out, "max_attempt_disconnects_total", "Players disconnected for too many wrong codes.",
+				maxAttemptDisconnects.sum());
+
+		for (Gauge gauge : new ArrayList<>(gauges)) {
+			out.append("# HELP ").append(gauge.name()).append(' ').append(gauge.help()).append('\n');
+			out.append("# TYPE ").append(gauge.name()).append(" gauge\n");
+			out.append(gauge.name()).append(' ').append(gauge.value().getAsDouble()).append('\n');
+		}
+		return out.toString();
+	}
+
+	private static void header(StringBuilder out, String name, String type, String help) {
+		out.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+	}
+
+	private static void counter(StringBuilder out, String name, String help, long value) {
+		header(out, name, "counter", help);
+		out.append(PREFIX).append(name).append(' ').append(value).append('\n');
+	}
+}
@@ -0,0 +1,63 @@
+package com.example.loginplugin.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves {@link LoginMetrics} in Prometheus text format on {@code /metrics}. Meant to be bound
+ * to localhost and scraped by an agent on the same machine.
+ */
+public final class MetricsServer {
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	private MetricsServer(HttpServer server, ExecutorService executor) {
+		this.server = server;
+		this.executor = executor;
+	}
+
+	public static MetricsServer start(LoginMetrics metrics, String bind, int port) throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress(bind, port), 0);
+		ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "LoginPlugin-Metrics-HTTP");
+			t.setDaemon(true);
+			return t;
+		});
+		server.setExecutor(executor);
+		server.createContext("/metrics", exchange -> respond(exchange, metrics));
+		server.start();
+		return new MetricsServer(server, executor);
+	}
+
+	private static void respond(HttpExchange exchange, LoginMetrics metrics) throws IOException {
+		try (exchange) {
+			if (!"GET".equals(exchange.getRequestMethod())) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+			byte[] body = metrics.renderPrometheus().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		}
+	}
+
+	public InetSocketAddress address() {
+		return server.getAddress();
+	}
+
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+}
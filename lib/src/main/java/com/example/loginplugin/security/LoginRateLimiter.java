@@ -0,0 +1,86 @@
+package com.example.loginplugin.security;
+
+import java.net.InetAddress;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+/**
+ * Throttles login attempts per remote address and per username, in front of code validation.
+ * Keeps credential-stuffing bursts away from the database even when a bot reconnects to reset the
+ * per-connection attempt counter.
+ */
+public final class LoginRateLimiter {
+
+	private final TokenBucketLimiter<InetAddress> byAddress;
+	private final TokenBucketLimiter<String> byName;
+	private final long idleEvictNanos;
+
+	private final LongAdder refused = new LongAdder();
+
+	public LoginRateLimiter(int addressCapacity, int addressRefillPerMinute, int nameCapacity,
+			int nameRefillPerMinute, long idleEvictSeconds) {
+		this.byAddress = new TokenBucketLimiter<>(addressCapacity, addressRefillPerMinute);
+		this.byName = new TokenBucketLimiter<>(nameCapacity, nameRefillPerMinute);
+		this.idleEvictNanos = TimeUnit.SECONDS.toNanos(idleEvictSeconds);
+	}
+
+	public static LoginRateLimiter from(ConfigurationSection section) {
+		if (section == null) {
+			return new LoginRateLimiter(10, 10, 5, 5, 600);
+		}
+		return new LoginRateLimiter(
+				section.getInt("per_address.capacity", 10),
+				section.getInt("per_address.refill_per_minute", 10),
+				section.getInt("per_name.capacity", 5),
+				section.getInt("per_name.refill_per_minute", 5),
+				section.getLong("idle_evict_seconds", 600));
+	}
+
+	private static String normalize(String username) {
+		return username.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Takes a token from both the address and the name bucket.
+	 *
+	 * @return false if either is exhausted
+	 */
+	public boolean tryAcquire(InetAddress address, String username) {
+		boolean ok = (address == null || byAddress.tryAcquire(address)) && byName.tryAcquire(normalize(username));
+		if (!ok) {
+			refused.increment();
+		}
+		return ok;
+	}
+
+	/**
+	 * Whether the next attempt from this address or name would be refused. Does not take a token.
+	 */
+	public boolean isLimited(InetAddress address, String username) {
+		return (address != null && byAddress.isLimited(address)) || byName.isLimited(normalize(username));
+	}
+
+	/**
+	 * Forgets buckets that have been idle longer than the configured time.
+	 */
+	public int evictIdle() {
+		return byAddress.evictIdle(idleEvictNanos) + byName.evictIdle(idleEvictNanos);
+	}
+
+	// ---------------- STATS ----------------
+
+	public long refused() {
+		return refused.sum();
+	}
+
+	public int trackedAddresses() {
+		return byAddress.size();
+	}
+
+	public int trackedNames() {
+		return byName.size();
+	}
+}
@@ -0,0 +1,19 @@
+package com.example.loginplugin.security;
+
+import java.net.InetAddress;
+import java.util.UUID;
+
+/**
+ * Lets a player who logged in with a code rejoin from the same address, until
+ * {@code expiresAt} (epoch millis), without being asked for a new one.
+ */
+public record ReconnectToken(UUID uuid, InetAddress address, long expiresAt) {
+
+	public boolean isExpired(long now) {
+		return now >= expiresAt;
+	}
+
+	public boolean matches(InetAddress from, long now) {
+		return !isExpired(now) && address.equals(from);
+	}
+}
@@ -0,0 +1,145 @@
+package com.example.loginplugin.security;
+
+import java.net.InetAddress;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Remembered sessions: one short-lived {@link ReconnectToken} per player, issued after a
+ * successful code login and checked before the dialog is shown. The expiry is fixed when the
+ * token is issued; rejoining on a token does not extend it.
+ */
+public final class ReconnectTokens {
+
+	private final long ttlMillis;
+	private final Consumer<ReconnectToken> persist;
+	private final Map<UUID, ReconnectToken> tokens = new ConcurrentHashMap<>();
+	private volatile boolean enabled = true;
+
+	private final LongAdder redeemed = new LongAdder();
+	private final LongAdder refused = new LongAdder();
+
+	/**
+	 * @param persist called with every issued token, e.g. to save it to the database
+	 */
+	public ReconnectTokens(long ttl, TimeUnit unit, Consumer<ReconnectToken> persist) {
+		this.ttlMillis = unit.toMillis(ttl);
+		this.persist = persist;
+	}
+
+	/**
+	 * Remembers a player who just logged in with a code. Does nothing when the address is
+	 * unknown.
+	 */
+	public ReconnectToken issue(UUID uuid, InetAddress address) {
+		if (address == null || !enabled) {
+			return null;
+		}
+		ReconnectToken token = new ReconnectToken(uuid, address, System.currentTimeMillis() + ttlMillis);
+		tokens.put(uuid, token);
+		persist.accept(token);
+		return token;
+	}
+
+	/**
+	 * Whether the player holds a live token for this address.
+	 */
+	public boolean redeem(UUID uuid, InetAddress address) {
+		ReconnectToken token = tokens.get(uuid);
+		if (token == null) {
+			return false;
+		}
+		long now = System.currentTimeMillis();
+		if (token.matches(address, now)) {
+			redeemed.increment();
+			return true;
+		}
+		if (token.isExpired(now)) {
+			tokens.remove(uuid, token);
+		}
+		refused.increment();
+		return false;
+	}
+
+	/**
+	 * Forgets the player's token. A persisted token is overwritten with one that has already
+	 * expired, so it is not restored after a restart.
+	 *
+	 * @return whether the player held one
+	 */
+	public boolean revoke(UUID uuid) {
+		ReconnectToken token = tokens.remove(uuid);
+		if (token == null) {
+			return false;
+		}
+		persist.accept(new ReconnectToken(uuid, token.address(), System.currentTimeMillis()));
+		return true;
+	}
+
+	/**
+	 * Switches issuing tokens on or off. Switching off revokes every token already issued.
+	 *
+	 * @return the number revoked
+	 */
+	public int setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		if (enabled) {
+			return 0;
+		}
+		int revoked = 0;
+		for (UUID uuid : tokens.keySet()) {
+			if (revoke(uuid)) {
+				revoked++;
+			}
+		}
+		return revoked;
+	}
+
+	/**
+	 * Adds tokens loaded from storage, keeping any newer one already issued.
+	 */
+	public void restore(Collection<ReconnectToken> loaded) {
+		long now = System.currentTimeMillis();
+		for (ReconnectToken token : loaded) {
+			if (!token.isExpired(now)) {
+				tokens.merge(token.uuid(), token, (a, b) -> a.expiresAt() >= b.expiresAt() ? a : b);
+			}
+		}
+	}
+
+	/**
+	 * Forgets expired tokens.
+	 *
+	 * @return the number removed
+	 */
+	public int evictExpired() {
+		long now = System.currentTimeMillis();
+		int removed = 0;
+		for (ReconnectToken token : tokens.values()) {
+			if (token.isExpired(now) && tokens.remove(token.uuid(), token)) {
+				removed++;
+			}
+		}
+		return removed;
+	}
+
+	// ---------------- STATS ----------------
+
+	public int size() {
+		return tokens.size();
+	}
+
+	public long redeemed() {
+		return redeemed.sum();
+	}
+
+	/** Lookups that found a token for another address, or an expired one. */
+	public long refused() {
+		return refused.sum();
+	}
+}
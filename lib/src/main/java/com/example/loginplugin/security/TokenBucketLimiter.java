@@ -0,0 +1,73 @@
+package com.example.loginplugin.security;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket per key, implemented as a generic cell rate algorithm: each bucket is a
+ * single {@link AtomicLong} holding the theoretical arrival time of the next request, updated with
+ * one CAS. A bucket whose arrival time lies in the past is full and can be evicted.
+ */
+public final class TokenBucketLimiter<K> {
+
+	private final long emissionNanos;
+	private final long toleranceNanos;
+	private final ConcurrentHashMap<K, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+	/**
+	 * @param capacity burst size, in requests
+	 * @param refillPerMinute sustained rate once the burst is used up
+	 */
+	public TokenBucketLimiter(int capacity, int refillPerMinute) {
+		this.emissionNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(1, refillPerMinute);
+		this.toleranceNanos = emissionNanos * (Math.max(1, capacity) - 1);
+	}
+
+	/**
+	 * Takes one token for the key.
+	 *
+	 * @return false if the bucket is empty
+	 */
+	public boolean tryAcquire(K key) {
+		long now = System.nanoTime();
+		AtomicLong tat = buckets.get(key);
+		if (tat == null) {
+			tat = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+		}
+		while (true) {
+			long current = tat.get();
+			long start = Math.max(current, now);
+			if (start - now > toleranceNanos) {
+				return false;
+			}
+			if (tat.compareAndSet(current, start + emissionNanos)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Whether a request for the key would currently be refused, without taking a token.
+	 */
+	public boolean isLimited(K key) {
+		AtomicLong tat = buckets.get(key);
+		return tat != null && tat.get() - System.nanoTime() > toleranceNanos;
+	}
+
+	/**
+	 * Drops buckets that have been full for at least {@code idleNanos}.
+	 *
+	 * @return number of buckets removed
+	 */
+	public int evictIdle(long idleNanos) {
+		long cutoff = System.nanoTime() - idleNanos;
+		int before = buckets.size();
+		buckets.values().removeIf(tat -> tat.get() < cutoff);
+		return Math.max(0, before - buckets.size());
+	}
+
+	public int size() {
+		return buckets.size();
+	}
+}
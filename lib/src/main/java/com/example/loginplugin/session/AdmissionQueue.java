@@ -0,0 +1,296 @@
+package com.example.loginplugin.session;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+/**
+ * Caps how many players are on the login dialog at once. Everyone else waits their turn in the
+ * configuration phase, first come first served, with registered accounts ahead of the rest. After
+ * a restart this spreads the code checks of a whole reconnect wave over time instead of sending
+ * them to the database together.
+ * <p>
+ * A player holds a {@link Ticket} from arrival until their login ends; releasing it admits the
+ * next in line. Admitted and waiting players alike hold a configuration thread, so
+ * {@code maxActive + maxWaiting} also bounds how many of those logins can tie up.
+ */
+public final class AdmissionQueue {
+
+	/** One player's place: waiting, admitted, or done. */
+	public static final class Ticket {
+
+		private enum State {
+			WAITING, ADMITTED, DONE
+		}
+
+		private final UUID uuid;
+		private final long seq;
+		private final CompletableFuture<Boolean> admitted = new CompletableFuture<>();
+		// Both guarded by the queue's lock
+		private State state = State.WAITING;
+		private boolean priority;
+
+		private Ticket(UUID uuid, long seq, boolean priority) {
+			this.uuid = uuid;
+			this.seq = seq;
+			this.priority = priority;
+		}
+
+		public UUID uuid() {
+			return uuid;
+		}
+
+		/** True once admitted, even after the ticket is released again. */
+		public boolean isAdmitted() {
+			return admitted.getNow(false);
+		}
+
+		/**
+		 * Waits up to {@code timeoutMillis} for the ticket to be admitted or cancelled.
+		 *
+		 * @return false if neither happened in time
+		 */
+		public boolean await(long timeoutMillis) throws InterruptedException {
+			try {
+				admitted.get(timeoutMillis, TimeUnit.MILLISECONDS);
+				return true;
+			} catch (TimeoutException e) {
+				return false;
+			} catch (ExecutionException e) {
+				return true;
+			}
+		}
+	}
+
+	private final int maxActive;
+	private final int maxWaiting;
+	private final long updateIntervalMillis;
+
+	private final Object lock = new Object();
+	private final ArrayDeque<Ticket> priorityLane = new ArrayDeque<>();
+	private final ArrayDeque<Ticket> normalLane = new ArrayDeque<>();
+	private final Map<UUID, Ticket> tickets = new HashMap<>();
+	private int active;
+	private long nextSeq;
+
+	private final LongAdder queued = new LongAdder();
+	private final LongAdder turnedAway = new LongAdder();
+
+	/**
+	 * @param maxActive            players allowed on the login dialog at once
+	 * @param maxWaiting           players allowed to wait beyond that, 0 for no limit
+	 * @param updateIntervalMillis how often a waiting player's position is refreshed
+	 */
+	public AdmissionQueue(int maxActive, int maxWaiting, long updateIntervalMillis) {
+		this.maxActive = Math.max(1, maxActive);
+		this.maxWaiting = Math.max(0, maxWaiting);
+		this.updateIntervalMillis = Math.max(100, updateIntervalMillis);
+	}
+
+	public static AdmissionQueue from(ConfigurationSection section) {
+		if (section == null) {
+			return new AdmissionQueue(50, 200, 2000);
+		}
+		return new AdmissionQueue(
+				section.getInt("max_active", 50),
+				section.getInt("max_waiting", 200),
+				section.getLong("update_interval_ms", 2000));
+	}
+
+	// ---------------- TICKETS ----------------
+
+	/**
+	 * Takes a place for the player, admitted at once if a slot is free and nobody is waiting. A
+	 * ticket the player still holds from an earlier connection is released.
+	 *
+	 * @param priority whether the player is known to be registered
+	 * @return the ticket, or null if the queue is full
+	 */
+	public Ticket enter(UUID uuid, boolean priority) {
+		List<Ticket> decided = new ArrayList<>();
+		Ticket ticket;
+		synchronized (lock) {
+			Ticket previous = tickets.remove(uuid);
+			if (previous != null) {
+				finish(previous, decided);
+			}
+			boolean free = active < maxActive && priorityLane.isEmpty() && normalLane.isEmpty();
+			if (!free && maxWaiting > 0 && priorityLane.size() + normalLane.size() >= maxWaiting) {
+				turnedAway.increment();
+				ticket = null;
+			} else {
+				ticket = new Ticket(uuid, nextSeq++, priority);
+				tickets.put(uuid, ticket);
+				if (free) {
+					ticket.state = Ticket.State.ADMITTED;
+					active++;
+					decided.add(ticket);
+				} else {
+					(priority ? priorityLane : normalLane).addLast(ticket);
+					queued.increment();
+				}
+			}
+		}
+		complete(decided);
+		return ticket;
+	}
+
+	/**
+	 * Moves a waiting ticket to the priority lane, e.g. once a lookup shows the account is
+	 * registered. It keeps its arrival order among the priority tickets.
+	 */
+	public void promote(Ticket ticket) {
+		synchronized (lock) {
+			if (ticket.state != Ticket.State.WAITING || ticket.priority || !normalLane.remove(ticket)) {
+				return;
+			}
+			ticket.priority = true;
+			// Later arrivals are usually few, so search from the back
+			ArrayDeque<Ticket> later = new ArrayDeque<>();
+			while (!priorityLane.isEmpty() && priorityLane.peekLast().seq > ticket.seq) {
+				later.addFirst(priorityLane.pollLast());
+			}
+			priorityLane.addLast(ticket);
+			priorityLane.addAll(later);
+		}
+	}
+
+	/**
+	 * The ticket's place in line, counting from 1, or 0 once it is no longer waiting.
+	 */
+	public int position(Ticket ticket) {
+		synchronized (lock) {
+			if (ticket.state != Ticket.State.WAITING) {
+				return 0;
+			}
+			int position = 1;
+			if (!ticket.priority) {
+				position += priorityLane.size();
+			}
+			for (Ticket other : ticket.priority ? priorityLane : normalLane) {
+				if (other == ticket) {
+					return position;
+				}
+				position++;
+			}
+			return 0;
+		}
+	}
+
+	/**
+	 * Gives up the ticket, whether admitted or still waiting, and admits whoever is next. Releasing
+	 * it again does nothing.
+	 */
+	public void release(Ticket ticket) {
+		List<Ticket> decided = new ArrayList<>();
+		synchronized (lock) {
+			tickets.remove(ticket.uuid, ticket);
+			finish(ticket, decided);
+		}
+		complete(decided);
+	}
+
+	/**
+	 * Releases the ticket of a player whose connection went away.
+	 */
+	public void cancel(UUID uuid) {
+		Ticket ticket;
+		synchronized (lock) {
+			ticket = tickets.get(uuid);
+		}
+		if (ticket != null) {
+			release(ticket);
+		}
+	}
+
+	// Callers hold the lock
+	private void finish(Ticket ticket, List<Ticket> decided) {
+		if (ticket.state == Ticket.State.ADMITTED) {
+			active--;
+		} else if (ticket.state == Ticket.State.WAITING) {
+			(ticket.priority ? priorityLane : normalLane).remove(ticket);
+			decided.add(ticket);
+		}
+		ticket.state = Ticket.State.DONE;
+
+		while (active < maxActive) {
+			Ticket next = priorityLane.isEmpty() ? normalLane.pollFirst() : priorityLane.pollFirst();
+			if (next == null) {
+				break;
+			}
+			next.state = Ticket.State.ADMITTED;
+			active++;
+			decided.add(next);
+		}
+	}
+
+	/** Wakes the waiting threads outside the lock. */
+	private static void complete(List<Ticket> decided) {
+		for (Ticket ticket : decided) {
+			ticket.admitted.complete(ticket.state == Ticket.State.ADMITTED);
+		}
+	}
+
+	// ---------------- STATS ----------------
+
+	public long updateIntervalMillis() {
+		return updateIntervalMillis;
+	}
+
+	/** Players currently admitted. */
+	public int activeCount() {
+		synchronized (lock) {
+			return active;
+		}
+	}
+
+	/** Players currently waiting. */
+	public int waitingCount() {
+		synchronized (lock) {
+			return priorityLane.size() + normalLane.size();
+		}
+	}
+
+	/** Players who had to wait since startup. */
+	public long queuedCount() {
+		return queued.sum();
+	}
+
+	/** Players turned away because the queue was full. */
+	public long turnedAwayCount() {
+		return turnedAway.sum();
+	}
+
+	// ---------------- SHUTDOWN ----------------
+
+	/**
+	 * Cancels every waiting ticket, releasing the threads that hold them.
+	 */
+	public void shutdown() {
+		List<Ticket> decided = new ArrayList<>();
+		synchronized (lock) {
+			for (Iterator<Ticket> it = tickets.values().iterator(); it.hasNext();) {
+				Ticket ticket = it.next();
+				if (ticket.state == Ticket.State.WAITING) {
+					it.remove();
+					ticket.state = Ticket.State.DONE;
+					decided.add(ticket);
+				}
+			}
+			priorityLane.clear();
+			normalLane.clear();
+		}
+		complete(decided);
+	}
+}
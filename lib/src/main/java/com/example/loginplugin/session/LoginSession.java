@@ -0,0 +1,157 @@
+package com.example.loginplugin.session;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Everything tracked about one player held in the configuration phase until their login code is
+ * validated. All transitions are atomic, so concurrent clicks, the timeout and a disconnect can
+ * race without losing or double-counting anything.
+ */
+public final class LoginSession {
+
+	public enum State {
+		/** Waiting for the player to submit a code. */
+		AWAITING,
+		/** A submitted code is being checked; further submits are ignored until it is. */
+		VERIFYING,
+		SUCCEEDED,
+		/** Too many wrong codes, or replaced by a newer session for the same player. */
+		FAILED,
+		TIMED_OUT,
+		/** The connection went away first. */
+		ABANDONED;
+
+		public boolean isFinished() {
+			return this != AWAITING && this != VERIFYING;
+		}
+	}
+
+	private final UUID uuid;
+	private final String playerName;
+	private final long createdAt;
+	private final AtomicReference<State> state = new AtomicReference<>(State.AWAITING);
+	private final AtomicInteger failedAttempts = new AtomicInteger();
+	private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+	private volatile long dialogShownAt;
+	private volatile ScheduledFuture<?> timeout;
+
+	LoginSession(UUID uuid, String playerName) {
+		this.uuid = uuid;
+		this.playerName = playerName;
+		this.createdAt = System.nanoTime();
+		this.dialogShownAt = createdAt;
+	}
+
+	public UUID uuid() {
+		return uuid;
+	}
+
+	public String playerName() {
+		return playerName;
+	}
+
+	/** {@link System#nanoTime()} at which the session was created. */
+	public long createdAt() {
+		return createdAt;
+	}
+
+	public long ageMillis(long now) {
+		return (now - createdAt) / 1_000_000L;
+	}
+
+	public State state() {
+		return state.get();
+	}
+
+	public CompletableFuture<Boolean> result() {
+		return result;
+	}
+
+	// ---------------- DIALOG ----------------
+
+	/** Notes that a (new) login dialog was just shown, for round-trip timing. */
+	public void dialogShown() {
+		dialogShownAt = System.nanoTime();
+	}
+
+	/** {@link System#nanoTime()} at which the current dialog was shown. */
+	public long dialogShownAt() {
+		return dialogShownAt;
+	}
+
+	/**
+	 * Claims the session for checking one submitted code.
+	 *
+	 * @return false if another submit is already being checked or the session is over
+	 */
+	public boolean beginSubmit() {
+		return state.compareAndSet(State.AWAITING, State.VERIFYING);
+	}
+
+	/**
+	 * Counts a wrong code and reopens the session for the next submit.
+	 *
+	 * @return the number of wrong codes so far
+	 */
+	public int rejectSubmit() {
+		int attempts = failedAttempts.incrementAndGet();
+		state.compareAndSet(State.VERIFYING, State.AWAITING);
+		return attempts;
+	}
+
+	/**
+	 * Reopens the session for the next submit without counting this one, e.g. when it could not
+	 * be checked at all.
+	 */
+	public void cancelSubmit() {
+		state.compareAndSet(State.VERIFYING, State.AWAITING);
+	}
+
+	public int failedAttempts() {
+		return failedAttempts.get();
+	}
+
+	// ---------------- OUTCOME ----------------
+
+	public boolean succeed() {
+		return finish(State.SUCCEEDED);
+	}
+
+	public boolean fail() {
+		return finish(State.FAILED);
+	}
+
+	boolean expire() {
+		return finish(State.TIMED_OUT);
+	}
+
+	boolean abandon() {
+		return finish(State.ABANDONED);
+	}
+
+	private boolean finish(State outcome) {
+		State current;
+		do {
+			current = state.get();
+			if (current.isFinished()) {
+				return false;
+			}
+		} while (!state.compareAndSet(current, outcome));
+		return result.complete(outcome == State.SUCCEEDED);
+	}
+
+	void timeout(ScheduledFuture<?> timeout) {
+		this.timeout = timeout;
+	}
+
+	void cancelTimeout() {
+		ScheduledFuture<?> t = timeout;
+		if (t != null) {
+			t.cancel(false);
+		}
+	}
+}
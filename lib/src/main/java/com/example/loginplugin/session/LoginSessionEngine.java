@@ -0,0 +1,173 @@
+package com.example.loginplugin.session;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks every player waiting in the configuration phase.
+ *
+ * Paper keeps a player in configuration only for as long as the configure event handler runs,
+ * so the handler has to wait for the result, and every waiting player holds one of Paper's
+ * configuration threads for up to the timeout. How many do is bounded in front of the engine by
+ * the {@link AdmissionQueue}. Within that, the engine adds no threads of its own: all timeouts are
+ * driven by one shared scheduler thread, and everything that completes a session (code submit,
+ * timeout, disconnect) runs on the thread that triggered it.
+ * <p>
+ * The engine's map is the only per-player login state. Sessions leave it as soon as they finish;
+ * a periodic sweep reclaims any that somehow outlive their timeout, e.g. when a close event was
+ * never delivered.
+ */
+public final class LoginSessionEngine {
+
+	private static final long[] AGE_BUCKETS_MILLIS = { 5_000, 15_000, 30_000, 60_000 };
+
+	// How far past its timeout a session may be before the sweep reclaims it
+	private static final long SWEEP_GRACE_MILLIS = 5_000;
+
+	private final long timeoutMillis;
+	private final LongAdder swept = new LongAdder();
+	private final Map<UUID, LoginSession> parked = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService timeouts = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "LoginPlugin-Session-Timeouts");
+		t.setDaemon(true);
+		return t;
+	});
+
+	public LoginSessionEngine(long timeout, long sweepInterval, TimeUnit unit) {
+		this.timeoutMillis = unit.toMillis(timeout);
+		long sweepMillis = Math.max(1, unit.toMillis(sweepInterval));
+		timeouts.scheduleWithFixedDelay(() -> sweep(System.nanoTime()), sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Registers a new waiting session. A session still parked for the same player is failed.
+	 */
+	public LoginSession park(UUID uuid, String playerName) {
+		LoginSession session = new LoginSession(uuid, playerName);
+		LoginSession previous = parked.put(uuid, session);
+		if (previous != null) {
+			previous.fail();
+		}
+
+		session.timeout(timeouts.schedule(session::expire, timeoutMillis,
+				TimeUnit.MILLISECONDS));
+		session.result().whenComplete((ok, error) -> {
+			session.cancelTimeout();
+			parked.remove(uuid, session);
+		});
+		return session;
+	}
+
+	/**
+	 * Blocks the calling configuration thread until the session completes, at most for the
+	 * timeout.
+	 */
+	public boolean await(LoginSession session) {
+		return session.result().join();
+	}
+
+	/**
+	 * The player's unfinished session, or null.
+	 */
+	public LoginSession session(UUID uuid) {
+		return parked.get(uuid);
+	}
+
+	/**
+	 * Completes the player's session, if one is waiting.
+	 */
+	public boolean complete(UUID uuid, boolean result) {
+		LoginSession session = parked.get(uuid);
+		return session != null && (result ? session.succeed() : session.fail());
+	}
+
+	/**
+	 * Fails the session of a player whose connection went away, releasing the waiting thread now
+	 * instead of when the timeout fires.
+	 */
+	public void discard(UUID uuid) {
+		LoginSession session = parked.get(uuid);
+		if (session != null) {
+			session.abandon();
+		}
+	}
+
+	/**
+	 * Fails every parked session, e.g. when no code can be checked for a while.
+	 *
+	 * @return the number of sessions failed
+	 */
+	public int failAll() {
+		int failed = 0;
+		for (LoginSession session : parked.values()) {
+			if (session.fail()) {
+				failed++;
+			}
+		}
+		return failed;
+	}
+
+	/**
+	 * Drops sessions that have finished but are still mapped, and times out any that are well
+	 * past their timeout without it having fired.
+	 *
+	 * @return the number of sessions reclaimed
+	 */
+	int sweep(long now) {
+		int reclaimed = 0;
+		for (LoginSession session : parked.values()) {
+			boolean stale = session.ageMillis(now) > timeoutMillis + SWEEP_GRACE_MILLIS;
+			if ((session.state().isFinished() || stale) && parked.remove(session.uuid(), session)) {
+				session.expire();
+				reclaimed++;
+			}
+		}
+		swept.add(reclaimed);
+		return reclaimed;
+	}
+
+	// ---------------- STATS ----------------
+
+	/** Sessions currently tracked, i.e. players on the login dialog. */
+	public int parkedCount() {
+		return parked.size();
+	}
+
+	/** Sessions reclaimed by the sweep rather than by their own completion. */
+	public long sweptCount() {
+		return swept.sum();
+	}
+
+	public SessionAges ages() {
+		long now = System.nanoTime();
+		int[] counts = new int[AGE_BUCKETS_MILLIS.length + 1];
+		long oldest = 0;
+		for (LoginSession session : parked.values()) {
+			long age = session.ageMillis(now);
+			oldest = Math.max(oldest, age);
+			int i = 0;
+			while (i < AGE_BUCKETS_MILLIS.length && age >= AGE_BUCKETS_MILLIS[i]) {
+				i++;
+			}
+			counts[i]++;
+		}
+		return new SessionAges(AGE_BUCKETS_MILLIS.clone(), counts, oldest);
+	}
+
+	// ---------------- SHUTDOWN ----------------
+
+	/**
+	 * Fails every parked session and stops the timeout thread.
+	 */
+	public void shutdown() {
+		for (LoginSession session : parked.values()) {
+			session.abandon();
+		}
+		timeouts.shutdownNow();
+	}
+}
@@ -0,0 +1,32 @@
+package com.example.loginplugin.session;
+
+/**
+ * Point-in-time age distribution of parked sessions.
+ *
+ * @param bucketUpperMillis upper bound of each bucket; the last bucket is open-ended
+ * @param counts sessions per bucket, one longer than {@code bucketUpperMillis}
+ * @param oldestMillis age of the oldest parked session, 0 when none are parked
+ */
+public record SessionAges(long[] bucketUpperMillis, int[] counts, long oldestMillis) {
+
+	public int total() {
+		int sum = 0;
+		for (int c : counts) {
+			sum += c;
+		}
+		return sum;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("SessionAges[");
+		for (int i = 0; i < counts.length; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(i < bucketUpperMillis.length ? "<" + bucketUpperMillis[i] / 1000 + "s" : ">=" + bucketUpperMillis[i - 1] / 1000 + "s");
+			sb.append('=').append(counts[i]);
+		}
+		return sb.append(", oldest=").append(oldestMillis).append("ms]").toString();
+	}
+}
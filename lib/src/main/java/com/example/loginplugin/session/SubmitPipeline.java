@@ -0,0 +1,94 @@
+package com.example.loginplugin.session;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+/**
+ * Checks submitted login codes off the connection's event thread. A fixed set of workers takes
+ * submits from a bounded queue; when the queue is full a submit is refused at once, so a slow
+ * database only ever holds up the players whose codes are waiting on it.
+ * <p>
+ * Submits of one player never overlap: a check is only handed over after
+ * {@link LoginSession#beginSubmit()} claimed the session, and the next one can only claim it once
+ * that check is done.
+ */
+public final class SubmitPipeline {
+
+	private final ThreadPoolExecutor workers;
+	private final LongAdder refused = new LongAdder();
+
+	public SubmitPipeline(int threads, int queueCapacity) {
+		int size = Math.max(1, threads);
+		AtomicInteger counter = new AtomicInteger();
+		this.workers = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), r -> {
+					Thread t = new Thread(r, "LoginPlugin-Submit-" + counter.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+	}
+
+	public static SubmitPipeline from(ConfigurationSection section) {
+		if (section == null) {
+			return new SubmitPipeline(4, 200);
+		}
+		return new SubmitPipeline(
+				section.getInt("threads", 4),
+				section.getInt("queue_capacity", 200));
+	}
+
+	/**
+	 * Queues a code check without blocking.
+	 *
+	 * @return false if too many checks are waiting, or after shutdown
+	 */
+	public boolean submit(Runnable check) {
+		try {
+			workers.execute(check);
+			return true;
+		} catch (RejectedExecutionException e) {
+			refused.increment();
+			return false;
+		}
+	}
+
+	// ---------------- STATS ----------------
+
+	/** Checks waiting for a worker. */
+	public int queuedCount() {
+		return workers.getQueue().size();
+	}
+
+	/** Checks running right now. */
+	public int activeCount() {
+		return workers.getActiveCount();
+	}
+
+	/** Submits turned away because the queue was full. */
+	public long refusedCount() {
+		return refused.sum();
+	}
+
+	// ---------------- SHUTDOWN ----------------
+
+	/**
+	 * Lets the queued checks finish, waiting a few seconds at most.
+	 */
+	public void shutdown() {
+		workers.shutdown();
+		try {
+			if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+				workers.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			workers.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+}
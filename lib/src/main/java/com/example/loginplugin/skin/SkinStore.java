@@ -0,0 +1,93 @@
+package com.example.loginplugin.skin;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Per-account skins with a bounded LRU cache in front of the database. Accounts without a stored
+ * skin get the server's default texture.
+ */
+public final class SkinStore {
+
+	// Mocked skin texture data, used for accounts without their own skin
+	public static final SkinTexture DEFAULT = new SkinTexture(
+			"ewogICJ0aW1lc3RhbXAiIDogMTYyMzg1ODYzMDY2NCwKICAicHJvZmlsZUlkIiA6ICIyYzEwNjRmY2Q5MTc0MjgyODRlM2JmN2ZhYTdlM2UxYSIsCiAgInByb2ZpbGVOYW1lIiA6ICJOYWVtZSIsCiAgInNpZ25hdHVyZVJlcXVpcmVkIiA6IHRydWUsCiAgInRleHR1cmVzIiA6IHsKICAgICJTS0lOIiA6IHsKICAgICAgInVybCIgOiAiaHR0cDovL3RleHR1cmVzLm1pbmVjcmFmdC5uZXQvdGV4dHVyZS8zOTI3ZTZkZWZjZjNlZTgwMzRkYjBmMTI2YTRjN2M0ZGQ2ODhlYTkwZmVkMzkzMWUyZjE5NDM3M2YzYjRmMjdhIgogICAgfQogIH0KfQ==",
+			"HEqglaa6nzRkcipQYG8k/HZq+5fhJcE2kGZM9uuG3Tr+PsUZvMco5KaDjItgUPw/Meq9oeQ53oAqEsUiZ2piQ7gnX6jbrPgwsHuW13ZWS4dw0z0XaQo2S8X2k079jU8D5x+oPVOFkpKuijXzA9p9keHjSMR7oK+yK+BuEnc45FsQw+D0Zp+cWsYfxGuytYHQWqc0B0Q/MDpqKL+DEUJ4nsI/VVtJm0jcyf/l5TZil6YuO4bOQo6lSOOD73mMb+pj5Xq/acRRbYsSqfeRad69fByE37MUZQyAH/JUiGDHoK5iSwGOa5NwZRUwx61T10X7us6PxGwq30jFivdJ62YUtgHU/twwbUu6S2+GyPdPxeFf+leU9iNfEVghARDkKHZbIaURMqkPsfy6aGvxodyu80goqE8cbYCCZqaQYB+89dl5/ANP7sNoSVcCWHO30Gd823IHVqACf97IpUhV7ob+vHIu6P3q3FXShnKApRC2wMyFB6W8xBqdex0z7lqWO48JaokXqPEyC66cnhkjJEESokahLzIIk4JFzMwFJFZM6h8i5I9lja7q5LzsiRc9k1ZG4l+PqJjTTgOXabkZXp1xfrrXZY2MheZUyIjkoNP6BeqHqbPZ4an1l7WpRinsvl/ggF7FA0EAc8XLm6z/31kIdsVpSbfWjxeL0RT8UqOrGQw=");
+
+	private record Entry(Optional<SkinTexture> skin, long loadedAt) {
+	}
+
+	private final Function<String, CompletableFuture<Optional<SkinTexture>>> loader;
+	private final long ttlNanos;
+	private final Map<String, Entry> cache;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * @param loader reads the stored skin of a username from the database
+	 * @param capacity maximum number of cached accounts
+	 */
+	public SkinStore(Function<String, CompletableFuture<Optional<SkinTexture>>> loader, int capacity, long ttl,
+			TimeUnit unit) {
+		this.loader = loader;
+		this.ttlNanos = unit.toNanos(ttl);
+		int max = Math.max(1, capacity);
+		this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > max;
+			}
+		};
+	}
+
+	/**
+	 * Resolves the skin to show for a username, falling back to {@link #DEFAULT}.
+	 */
+	public CompletableFuture<SkinTexture> lookup(String username) {
+		String key = username.toLowerCase(Locale.ROOT);
+		long now = System.nanoTime();
+		Entry entry;
+		synchronized (cache) {
+			entry = cache.get(key);
+		}
+		if (entry != null && now - entry.loadedAt() < ttlNanos) {
+			hits.increment();
+			return CompletableFuture.completedFuture(entry.skin().orElse(DEFAULT));
+		}
+
+		misses.increment();
+		return loader.apply(username).handle((skin, error) -> {
+			if (error != null) {
+				// Not cached, so the next lookup tries the database again
+				return DEFAULT;
+			}
+			synchronized (cache) {
+				cache.put(key, new Entry(skin, System.nanoTime()));
+			}
+			return skin.orElse(DEFAULT);
+		});
+	}
+
+	// ---------------- STATS ----------------
+
+	public int size() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	public long hits() {
+		return hits.sum();
+	}
+
+	public long misses() {
+		return misses.sum();
+	}
+}
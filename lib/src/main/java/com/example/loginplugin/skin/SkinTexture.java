@@ -0,0 +1,7 @@
+package com.example.loginplugin.skin;
+
+/**
+ * Signed {@code textures} profile property for one account.
+ */
+public record SkinTexture(String value, String signature) {
+}
@@ -0,0 +1,125 @@
+package com.example.loginplugin.skin;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Re-sends players whose skin changed after join to everyone else, in one batched pass per tick
+ * instead of one hide/show loop per player. Each tick does at most {@code pairsPerTick}
+ * hide/show pairs, so a join wave is spread over several ticks rather than landing on one.
+ * <p>
+ * Main thread only.
+ */
+public final class VisibilityRefresher implements Runnable {
+
+	private record Pending(UUID uuid, long dueTick) {
+	}
+
+	private final Plugin plugin;
+	private final int pairsPerTick;
+	private final long delayTicks;
+
+	// Due ticks only grow, so the queue stays ordered
+	private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+	private final Set<UUID> queued = new HashSet<>();
+	private long tick;
+	private long refreshed;
+	private BukkitTask task;
+
+	/**
+	 * @param pairsPerTick hide/show pairs allowed per tick; at least one player is refreshed per
+	 *            tick regardless
+	 * @param delayTicks how long after {@link #request} a player is refreshed
+	 */
+	public VisibilityRefresher(Plugin plugin, int pairsPerTick, long delayTicks) {
+		this.plugin = plugin;
+		this.pairsPerTick = Math.max(1, pairsPerTick);
+		this.delayTicks = Math.max(0, delayTicks);
+	}
+
+	public void start() {
+		if (task == null) {
+			task = Bukkit.getScheduler().runTaskTimer(plugin, this, 1L, 1L);
+		}
+	}
+
+	public void stop() {
+		if (task != null) {
+			task.cancel();
+			task = null;
+		}
+		queue.clear();
+		queued.clear();
+	}
+
+	/**
+	 * Queues a refresh of how other players see this player. Repeated requests before the refresh
+	 * runs collapse into one.
+	 */
+	public void request(Player player) {
+		if (queued.add(player.getUniqueId())) {
+			queue.add(new Pending(player.getUniqueId(), tick + delayTicks));
+		}
+	}
+
+	@Override
+	public void run() {
+		tick++;
+		if (queue.isEmpty()) {
+			return;
+		}
+
+		Collection<? extends Player> online = Bukkit.getOnlinePlayers();
+		int pairsPerTarget = Math.max(1, online.size() - 1);
+		List<Player> targets = new ArrayList<>();
+		int budget = pairsPerTick;
+		while (!queue.isEmpty() && queue.peek().dueTick() <= tick) {
+			if (!targets.isEmpty() && budget < pairsPerTarget) {
+				break;
+			}
+			Pending next = queue.poll();
+			queued.remove(next.uuid());
+			Player target = Bukkit.getPlayer(next.uuid());
+			if (target != null && target.isOnline()) {
+				targets.add(target);
+				budget -= pairsPerTarget;
+			}
+		}
+		if (targets.isEmpty()) {
+			return;
+		}
+
+		// Hide the whole batch from each viewer before showing it again
+		for (Player viewer : online) {
+			for (Player target : targets) {
+				if (!viewer.equals(target)) {
+					viewer.hidePlayer(plugin, target);
+				}
+			}
+			for (Player target : targets) {
+				if (!viewer.equals(target)) {
+					viewer.showPlayer(plugin, target);
+				}
+			}
+		}
+		refreshed += targets.size();
+	}
+
+	public int pending() {
+		return queue.size();
+	}
+
+	public long refreshed() {
+		return refreshed;
+	}
+}
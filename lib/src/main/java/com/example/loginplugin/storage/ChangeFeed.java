@@ -0,0 +1,27 @@
+package com.example.loginplugin.storage;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.example.loginplugin.accounts.AccountBatch;
+import com.example.loginplugin.codes.CodeRow;
+
+/**
+ * Implemented by backends whose tables can be followed by an increasing row id, which is what the
+ * in-memory code index and account snapshot need. Backends without it are always queried.
+ */
+public interface ChangeFeed {
+
+	/** Live codes with a row id above {@code rowid}, in row id order. */
+	CompletableFuture<List<CodeRow>> codesAfter(long rowid, long now, int limit);
+
+	/** Live codes at or below {@code rowid} that expire after {@code expiresAfter}. */
+	CompletableFuture<List<CodeRow>> codesReused(long rowid, long expiresAfter, long now, int limit);
+
+	/**
+	 * Adds accounts with a row id above {@code rowid}, in row id order, to the batch.
+	 *
+	 * @return the number of rows read
+	 */
+	CompletableFuture<Integer> accountsAfter(long rowid, int limit, AccountBatch into);
+}
@@ -0,0 +1,124 @@
+package com.example.loginplugin.storage;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stops sending work to a storage backend that keeps failing. After {@code failureThreshold}
+ * failures in a row the breaker opens and every request is refused at once; the storage
+ * supervisor then probes the backend and closes the breaker when a probe succeeds.
+ * <p>
+ * Live traffic never probes: while open or half-open nothing but the supervisor reaches the
+ * backend.
+ */
+public final class CircuitBreaker {
+
+	public enum State {
+		/** Requests go through. */
+		CLOSED,
+		/** Requests are refused until a probe succeeds. */
+		OPEN,
+		/** A probe is in flight; requests are still refused. */
+		HALF_OPEN
+	}
+
+	private final int failureThreshold;
+	private final AtomicInteger consecutiveFailures = new AtomicInteger();
+	private volatile State state = State.CLOSED;
+
+	private final LongAdder opened = new LongAdder();
+	private final LongAdder halfOpened = new LongAdder();
+	private final LongAdder closed = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+
+	public CircuitBreaker(int failureThreshold) {
+		this.failureThreshold = Math.max(1, failureThreshold);
+	}
+
+	public State state() {
+		return state;
+	}
+
+	/**
+	 * Whether a request may go to the backend. A refusal is counted.
+	 */
+	public boolean allows() {
+		if (state == State.CLOSED) {
+			return true;
+		}
+		rejected.increment();
+		return false;
+	}
+
+	public void recordSuccess() {
+		consecutiveFailures.set(0);
+	}
+
+	/**
+	 * @return true if this failure opened the breaker
+	 */
+	public boolean recordFailure() {
+		return consecutiveFailures.incrementAndGet() >= failureThreshold && trip();
+	}
+
+	// ---------------- TRANSITIONS ----------------
+
+	/**
+	 * Opens the breaker right away, e.g. when the backend could not be opened at all.
+	 *
+	 * @return false if it was not closed
+	 */
+	public synchronized boolean trip() {
+		if (state != State.CLOSED) {
+			return false;
+		}
+		state = State.OPEN;
+		opened.increment();
+		return true;
+	}
+
+	/** Marks a probe as started. */
+	public synchronized boolean probing() {
+		if (state != State.OPEN) {
+			return false;
+		}
+		state = State.HALF_OPEN;
+		halfOpened.increment();
+		return true;
+	}
+
+	public synchronized void probeSucceeded() {
+		if (state == State.HALF_OPEN) {
+			state = State.CLOSED;
+			consecutiveFailures.set(0);
+			closed.increment();
+		}
+	}
+
+	public synchronized void probeFailed() {
+		if (state == State.HALF_OPEN) {
+			state = State.OPEN;
+			opened.increment();
+		}
+	}
+
+	// ---------------- STATS ----------------
+
+	/** Times the breaker opened, including after a failed probe. */
+	public long openedCount() {
+		return opened.sum();
+	}
+
+	public long halfOpenedCount() {
+		return halfOpened.sum();
+	}
+
+	public long closedCount() {
+		return closed.sum();
+	}
+
+	/** Requests refused while the breaker was not closed. */
+	public long rejectedCount() {
+		return rejected.sum();
+	}
+}
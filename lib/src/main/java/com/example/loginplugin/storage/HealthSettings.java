@@ -0,0 +1,33 @@
+package com.example.loginplugin.storage;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+/**
+ * Settings read from the {@code storage.health} section of config.yml.
+ *
+ * @param failureThreshold   failed requests in a row that open the circuit breaker
+ * @param retryMillis        delay before the first reconnect attempt or probe; doubled after
+ *                           every failed one
+ * @param maxRetryMillis     upper bound for that delay
+ * @param probeTimeoutMillis how long a probe may take before it counts as failed
+ */
+public record HealthSettings(int failureThreshold, long retryMillis, long maxRetryMillis, long probeTimeoutMillis) {
+
+	public HealthSettings {
+		failureThreshold = Math.max(1, failureThreshold);
+		retryMillis = Math.max(100, retryMillis);
+		maxRetryMillis = Math.max(retryMillis, maxRetryMillis);
+		probeTimeoutMillis = Math.max(100, probeTimeoutMillis);
+	}
+
+	public static HealthSettings from(ConfigurationSection section) {
+		if (section == null) {
+			return new HealthSettings(5, 1000, 60_000, 2000);
+		}
+		return new HealthSettings(
+				section.getInt("failure_threshold", 5),
+				section.getLong("retry.initial_delay_ms", 1000),
+				section.getLong("retry.max_delay_ms", 60_000),
+				section.getLong("probe_timeout_ms", 2000));
+	}
+}
@@ -0,0 +1,353 @@
+package com.example.loginplugin.storage;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
+
+import com.example.loginplugin.accounts.AccountLink;
+import com.example.loginplugin.database.ClaimedCode;
+import com.example.loginplugin.database.DatabasePool;
+import com.example.loginplugin.database.PoolStats;
+import com.example.loginplugin.security.ReconnectToken;
+import com.example.loginplugin.skin.SkinTexture;
+
+/**
+ * A database server reached through any JDBC driver, so several Paper servers can share one set of
+ * codes and accounts. Only portable SQL is used: no {@code RETURNING}, no upserts and no collations.
+ * Usernames are compared through {@code LOWER(mc_username)}; on a large {@code accounts} table give
+ * that expression an index, and {@code mc_uuid} another.
+ *
+ * The tables have no row id to follow, so the in-memory mirrors are not available on this backend.
+ */
+public final class JdbcStorage implements LoginStorage {
+
+	// ---------------- SQL ----------------
+
+	/** Uses the index on {@code code}; the same code may be held by several players, one row each. */
+	private static final String FIND_CODE = "SELECT code, mc_username, expires_at, discord_id FROM link_codes "
+			+ "WHERE code = ? AND LOWER(mc_username) = ? AND expires_at > ?";
+
+	/** Whoever deletes the row owns the code, on whichever server they are. */
+	private static final String DELETE_CODE = "DELETE FROM link_codes WHERE code = ? AND mc_username = ? AND expires_at = ?";
+
+	private static final String IS_REGISTERED = "SELECT 1 FROM accounts WHERE LOWER(mc_username) = ?";
+
+	private static final String LINK_ACCOUNT = "UPDATE accounts SET mc_uuid = ?, discord_id = COALESCE(?, discord_id), "
+			+ "last_login_at = ? WHERE LOWER(mc_username) = ?";
+
+	private static final String INSERT_LINKED_ACCOUNT = "INSERT INTO accounts (mc_username, discord_id, mc_uuid, last_login_at) "
+			+ "VALUES (?, ?, ?, ?)";
+
+	private static final String SKIN_BY_USERNAME = "SELECT texture_value, texture_signature FROM account_skins "
+			+ "WHERE LOWER(mc_username) = ?";
+
+	private static final String UPDATE_RECONNECT_TOKEN = "UPDATE reconnect_tokens SET address = ?, expires_at = ? "
+			+ "WHERE mc_uuid = ?";
+
+	private static final String INSERT_RECONNECT_TOKEN = "INSERT INTO reconnect_tokens (mc_uuid, address, expires_at) "
+			+ "VALUES (?, ?, ?)";
+
+	private static final String LIVE_RECONNECT_TOKENS = "SELECT mc_uuid, address, expires_at FROM reconnect_tokens "
+			+ "WHERE expires_at > ?";
+
+	private static final String PURGE_RECONNECT_TOKENS = "DELETE FROM reconnect_tokens WHERE expires_at <= ?";
+
+	/**
+	 * Same columns as the SQLite schema, in types every server understands. Statements after the
+	 * first run once the table is created.
+	 */
+	private static final String[][] TABLES = {
+			{ "link_codes", "CREATE TABLE link_codes ("
+					+ "code VARCHAR(16) NOT NULL, "
+					+ "mc_username VARCHAR(32) NOT NULL, "
+					+ "mc_uuid VARCHAR(36), "
+					+ "discord_id VARCHAR(32), "
+					+ "expires_at BIGINT NOT NULL)",
+					"CREATE INDEX idx_link_codes_code ON link_codes (code, mc_username)" },
+			{ "accounts", "CREATE TABLE accounts ("
+					+ "mc_username VARCHAR(32) NOT NULL, "
+					+ "discord_id VARCHAR(32), "
+					+ "mc_uuid VARCHAR(36), "
+					+ "last_login_at BIGINT)" },
+			{ "account_skins", "CREATE TABLE account_skins ("
+					+ "mc_username VARCHAR(32) NOT NULL PRIMARY KEY, "
+					+ "texture_value VARCHAR(4096) NOT NULL, "
+					+ "texture_signature VARCHAR(4096), "
+					+ "updated_at BIGINT)" },
+			{ "reconnect_tokens", "CREATE TABLE reconnect_tokens ("
+					+ "mc_uuid VARCHAR(36) NOT NULL PRIMARY KEY, "
+					+ "address VARCHAR(64) NOT NULL, "
+					+ "expires_at BIGINT NOT NULL)" } };
+
+	/** Columns added to {@link #TABLES} later, for tables created before them. */
+	private static final String[][] COLUMNS = {
+			{ "accounts", "mc_uuid", "VARCHAR(36)" },
+			{ "accounts", "last_login_at", "BIGINT" } };
+
+	private final Logger logger;
+	private final StorageSettings.Jdbc settings;
+	private volatile DatabasePool pool;
+
+	public JdbcStorage(Logger logger, StorageSettings.Jdbc settings) {
+		this.logger = logger;
+		this.settings = settings;
+	}
+
+	@Override
+	public String describe() {
+		return "JDBC";
+	}
+
+	@Override
+	public void open() throws SQLException, ClassNotFoundException {
+		if (settings.url().isBlank()) {
+			throw new SQLException("storage.jdbc.url is not set");
+		}
+		if (!settings.driver().isBlank()) {
+			// Drivers shaded into another plugin are not found by DriverManager on their own
+			Class.forName(settings.driver());
+		}
+
+		Properties info = new Properties();
+		if (!settings.username().isBlank()) {
+			info.setProperty("user", settings.username());
+			info.setProperty("password", settings.password());
+		}
+
+		DatabasePool created = new DatabasePool(logger, settings.url(), info, settings.readerThreads(),
+				settings.writerThreads(), c -> c.setAutoCommit(true));
+		String product;
+		try {
+			product = created.open(c -> {
+				if (settings.createTables()) {
+					createMissingTables(c.raw());
+				}
+				DatabaseMetaData meta = c.raw().getMetaData();
+				return meta.getDatabaseProductName() + " " + meta.getDatabaseProductVersion();
+			});
+		} catch (SQLException | RuntimeException e) {
+			created.shutdown();
+			throw e;
+		}
+		pool = created;
+		// The URL may carry credentials, so only the server type is logged
+		logger.info("JDBC storage connected to " + product + " (" + settings.readerThreads() + " readers, "
+				+ settings.writerThreads() + " writers)");
+	}
+
+	private void createMissingTables(Connection connection) throws SQLException {
+		DatabaseMetaData meta = connection.getMetaData();
+		try (Statement stmt = connection.createStatement()) {
+			for (String[] table : TABLES) {
+				if (!tableExists(meta, table[0])) {
+					for (int i = 1; i < table.length; i++) {
+						stmt.execute(table[i]);
+					}
+					logger.info("Created table " + table[0] + ".");
+				}
+			}
+			for (String[] column : COLUMNS) {
+				if (!columnExists(meta, column[0], column[1])) {
+					stmt.execute("ALTER TABLE " + column[0] + " ADD " + column[1] + " " + column[2]);
+					logger.info("Added column " + column[0] + "." + column[1] + ".");
+				}
+			}
+		}
+	}
+
+	private static boolean columnExists(DatabaseMetaData meta, String table, String column) throws SQLException {
+		for (String[] candidate : new String[][] { { table, column },
+				{ table.toUpperCase(Locale.ROOT), column.toUpperCase(Locale.ROOT) } }) {
+			try (ResultSet rs = meta.getColumns(null, null, candidate[0], candidate[1])) {
+				if (rs.next()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/** Unquoted names are stored upper case by some servers and lower case by others. */
+	private static boolean tableExists(DatabaseMetaData meta, String name) throws SQLException {
+		for (String candidate : new String[] { name, name.toUpperCase(Locale.ROOT) }) {
+			try (ResultSet rs = meta.getTables(null, null, candidate, null)) {
+				if (rs.next()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	// ---------------- LOGIN PATH ----------------
+
+	/**
+	 * Looks the code up, then deletes exactly that row. Only one delete can remove it, so when two
+	 * servers redeem the same code at once the other one sees no row deleted and fails.
+	 */
+	@Override
+	public CompletableFuture<Optional<ClaimedCode>> claimCode(String username, String code, long now) {
+		return pool.write(c -> {
+			PreparedStatement find = c.prepare(FIND_CODE);
+			find.setString(1, code);
+			find.setString(2, username.toLowerCase(Locale.ROOT));
+			find.setLong(3, now);
+
+			ClaimedCode found;
+			try (ResultSet rs = find.executeQuery()) {
+				if (!rs.next()) {
+					return Optional.<ClaimedCode>empty();
+				}
+				found = new ClaimedCode(rs.getString(1), rs.getString(2), rs.getLong(3), rs.getString(4));
+			}
+			PreparedStatement delete = c.prepare(DELETE_CODE);
+			delete.setString(1, found.code());
+			delete.setString(2, found.username());
+			delete.setLong(3, found.expiresAt());
+			return delete.executeUpdate() == 1 ? Optional.of(found) : Optional.<ClaimedCode>empty();
+		});
+	}
+
+	@Override
+	public CompletableFuture<Boolean> isRegistered(String username) {
+		return pool.read(c -> {
+			PreparedStatement stmt = c.prepare(IS_REGISTERED);
+			stmt.setMaxRows(1);
+			stmt.setString(1, username.toLowerCase(Locale.ROOT));
+
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next();
+			}
+		});
+	}
+
+	@Override
+	public CompletableFuture<Integer> saveAccountLinks(List<AccountLink> links) {
+		return pool.write(c -> {
+			c.inTransaction(() -> {
+				for (AccountLink link : links) {
+					PreparedStatement update = c.prepare(LINK_ACCOUNT);
+					update.setString(1, link.uuid().toString());
+					update.setString(2, link.discordId());
+					update.setLong(3, link.lastLoginAt());
+					update.setString(4, link.username().toLowerCase(Locale.ROOT));
+					if (update.executeUpdate() == 0) {
+						PreparedStatement insert = c.prepare(INSERT_LINKED_ACCOUNT);
+						insert.setString(1, link.username());
+						insert.setString(2, link.discordId());
+						insert.setString(3, link.uuid().toString());
+						insert.setLong(4, link.lastLoginAt());
+						insert.executeUpdate();
+					}
+				}
+			});
+			return links.size();
+		});
+	}
+
+	@Override
+	public CompletableFuture<Optional<SkinTexture>> loadSkin(String username) {
+		return pool.read(c -> {
+			PreparedStatement stmt = c.prepare(SKIN_BY_USERNAME);
+			stmt.setString(1, username.toLowerCase(Locale.ROOT));
+
+			try (ResultSet rs = stmt.executeQuery()) {
+				if (!rs.next()) {
+					return Optional.<SkinTexture>empty();
+				}
+				return Optional.of(new SkinTexture(rs.getString(1), rs.getString(2)));
+			}
+		});
+	}
+
+	// ---------------- RECONNECT TOKENS ----------------
+
+	@Override
+	public CompletableFuture<Void> saveReconnectToken(ReconnectToken token) {
+		return pool.write(c -> {
+			c.inTransaction(() -> {
+				PreparedStatement update = c.prepare(UPDATE_RECONNECT_TOKEN);
+				update.setString(1, token.address().getHostAddress());
+				update.setLong(2, token.expiresAt());
+				update.setString(3, token.uuid().toString());
+				if (update.executeUpdate() == 0) {
+					PreparedStatement insert = c.prepare(INSERT_RECONNECT_TOKEN);
+					insert.setString(1, token.uuid().toString());
+					insert.setString(2, token.address().getHostAddress());
+					insert.setLong(3, token.expiresAt());
+					insert.executeUpdate();
+				}
+			});
+			return (Void) null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<List<ReconnectToken>> liveReconnectTokens(long now) {
+		return pool.read(c -> {
+			PreparedStatement stmt = c.prepare(LIVE_RECONNECT_TOKENS);
+			stmt.setLong(1, now);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return SqliteStorage.readTokens(rs, logger);
+			}
+		});
+	}
+
+	@Override
+	public CompletableFuture<Integer> purgeReconnectTokens(long now) {
+		return pool.write(c -> {
+			PreparedStatement stmt = c.prepare(PURGE_RECONNECT_TOKENS);
+			stmt.setLong(1, now);
+			return stmt.executeUpdate();
+		});
+	}
+
+	// ---------------- LIFECYCLE ----------------
+
+	/** Uses the driver's own validity check, since not every server accepts a bare SELECT. */
+	@Override
+	public CompletableFuture<Void> ping() {
+		return pool.read(c -> {
+			if (!c.raw().isValid(2)) {
+				throw new SQLException("Connection is no longer valid");
+			}
+			return (Void) null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Void> warmUp() {
+		return pool.warmUp(List.of(IS_REGISTERED, SKIN_BY_USERNAME, LIVE_RECONNECT_TOKENS),
+				List.of(FIND_CODE, DELETE_CODE, LINK_ACCOUNT, INSERT_LINKED_ACCOUNT, UPDATE_RECONNECT_TOKEN,
+						INSERT_RECONNECT_TOKEN));
+	}
+
+	@Override
+	public PoolStats readStats() {
+		DatabasePool db = pool;
+		return db == null ? null : db.readStats();
+	}
+
+	@Override
+	public PoolStats writeStats() {
+		DatabasePool db = pool;
+		return db == null ? null : db.writeStats();
+	}
+
+	@Override
+	public void close() {
+		DatabasePool db = pool;
+		if (db != null) {
+			db.shutdown();
+		}
+	}
+}
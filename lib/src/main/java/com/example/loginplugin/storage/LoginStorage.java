@@ -0,0 +1,84 @@
+package com.example.loginplugin.storage;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import com.example.loginplugin.accounts.AccountLink;
+import com.example.loginplugin.database.ClaimedCode;
+import com.example.loginplugin.database.PoolStats;
+import com.example.loginplugin.security.ReconnectToken;
+import com.example.loginplugin.skin.SkinTexture;
+
+/**
+ * Where link codes, accounts, skins and reconnect tokens are kept. {@link com.example.loginplugin.LoginManager}
+ * only talks to this interface; the backend is picked by {@code storage.type} in config.yml.
+ *
+ * Every operation returns a future; backends with nothing to wait for complete it right away.
+ * Usernames are matched case-insensitively everywhere.
+ */
+public interface LoginStorage {
+
+	/** Short name for log messages, e.g. {@code "SQLite"}. */
+	String describe();
+
+	/**
+	 * Connects and prepares the schema. Called once before any other method.
+	 */
+	void open() throws Exception;
+
+	/**
+	 * Redeems a code for this username if it has not expired by {@code now}. A code is claimed
+	 * at most once, even by concurrent callers on several servers sharing the storage.
+	 */
+	CompletableFuture<Optional<ClaimedCode>> claimCode(String username, String code, long now);
+
+	CompletableFuture<Boolean> isRegistered(String username);
+
+	/**
+	 * Records redemptions on the players' {@code accounts} rows: UUID, last login and, when
+	 * known, the Discord id. A player without a row gets one. All links are written together.
+	 *
+	 * @return the number of links written
+	 */
+	CompletableFuture<Integer> saveAccountLinks(List<AccountLink> links);
+
+	CompletableFuture<Optional<SkinTexture>> loadSkin(String username);
+
+	// ---------------- RECONNECT TOKENS ----------------
+
+	/** Stores the token, replacing any earlier one for the same player. */
+	CompletableFuture<Void> saveReconnectToken(ReconnectToken token);
+
+	CompletableFuture<List<ReconnectToken>> liveReconnectTokens(long now);
+
+	/** @return the number of tokens deleted */
+	CompletableFuture<Integer> purgeReconnectTokens(long now);
+
+	// ---------------- LIFECYCLE ----------------
+
+	/**
+	 * Completes once the backend has answered a trivial request; used to tell when it is back.
+	 */
+	CompletableFuture<Void> ping();
+
+	/**
+	 * Opens the connections and prepares the statements of the login path ahead of the first
+	 * login. Completes right away on backends with nothing to prepare.
+	 */
+	default CompletableFuture<Void> warmUp() {
+		return CompletableFuture.completedFuture(null);
+	}
+
+	/** Reader counters, or null for backends without a connection pool. */
+	default PoolStats readStats() {
+		return null;
+	}
+
+	/** Writer counters, or null for backends without a connection pool. */
+	default PoolStats writeStats() {
+		return null;
+	}
+
+	void close();
+}
@@ -0,0 +1,148 @@
+package com.example.loginplugin.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.example.loginplugin.accounts.AccountLink;
+import com.example.loginplugin.database.ClaimedCode;
+import com.example.loginplugin.security.ReconnectToken;
+import com.example.loginplugin.skin.SkinTexture;
+
+/**
+ * Keeps everything in maps and forgets it on shutdown. Meant for tests and for trying the plugin
+ * without a database; codes and accounts are added through {@link #addCode} and
+ * {@link #addAccount}, since no Discord bot can reach them.
+ */
+public final class MemoryStorage implements LoginStorage {
+
+	private final Map<CodeKey, ClaimedCode> codes = new ConcurrentHashMap<>();
+	private final Set<String> accounts = ConcurrentHashMap.newKeySet();
+	private final Map<String, AccountLink> links = new ConcurrentHashMap<>();
+	private final Map<String, SkinTexture> skins = new ConcurrentHashMap<>();
+	private final Map<UUID, ReconnectToken> tokens = new ConcurrentHashMap<>();
+
+	@Override
+	public String describe() {
+		return "in-memory";
+	}
+
+	@Override
+	public void open() {
+	}
+
+	// ---------------- DATA ----------------
+
+	public void addCode(String code, String username, long expiresAt) {
+		codes.put(new CodeKey(code, username), new ClaimedCode(code, username, expiresAt));
+	}
+
+	public void addAccount(String username) {
+		accounts.add(username.toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * The link last saved for this account, or null.
+	 */
+	public AccountLink link(String username) {
+		return links.get(username.toLowerCase(Locale.ROOT));
+	}
+
+	public void putSkin(String username, SkinTexture texture) {
+		skins.put(username.toLowerCase(Locale.ROOT), texture);
+	}
+
+	// ---------------- LOGIN PATH ----------------
+
+	@Override
+	public CompletableFuture<Optional<ClaimedCode>> claimCode(String username, String code, long now) {
+		CodeKey key = new CodeKey(code, username);
+		ClaimedCode row = codes.get(key);
+		// remove(key, value) only succeeds for one of several concurrent claims
+		if (row == null || row.expiresAt() <= now || !codes.remove(key, row)) {
+			return CompletableFuture.completedFuture(Optional.empty());
+		}
+		return CompletableFuture.completedFuture(Optional.of(row));
+	}
+
+	@Override
+	public CompletableFuture<Boolean> isRegistered(String username) {
+		return CompletableFuture.completedFuture(accounts.contains(username.toLowerCase(Locale.ROOT)));
+	}
+
+	@Override
+	public CompletableFuture<Integer> saveAccountLinks(List<AccountLink> saved) {
+		for (AccountLink link : saved) {
+			String key = link.username().toLowerCase(Locale.ROOT);
+			accounts.add(key);
+			links.merge(key, link, (old, updated) -> updated.discordId() != null ? updated
+					: new AccountLink(updated.uuid(), updated.username(), old.discordId(), updated.lastLoginAt()));
+		}
+		return CompletableFuture.completedFuture(saved.size());
+	}
+
+	@Override
+	public CompletableFuture<Optional<SkinTexture>> loadSkin(String username) {
+		return CompletableFuture.completedFuture(Optional.ofNullable(skins.get(username.toLowerCase(Locale.ROOT))));
+	}
+
+	// ---------------- RECONNECT TOKENS ----------------
+
+	@Override
+	public CompletableFuture<Void> saveReconnectToken(ReconnectToken token) {
+		tokens.put(token.uuid(), token);
+		return CompletableFuture.completedFuture(null);
+	}
+
+	@Override
+	public CompletableFuture<List<ReconnectToken>> liveReconnectTokens(long now) {
+		List<ReconnectToken> live = new ArrayList<>();
+		for (ReconnectToken token : tokens.values()) {
+			if (!token.isExpired(now)) {
+				live.add(token);
+			}
+		}
+		return CompletableFuture.completedFuture(live);
+	}
+
+	@Override
+	public CompletableFuture<Integer> purgeReconnectTokens(long now) {
+		int purged = 0;
+		for (ReconnectToken token : tokens.values()) {
+			if (token.isExpired(now) && tokens.remove(token.uuid(), token)) {
+				purged++;
+			}
+		}
+		return CompletableFuture.completedFuture(purged);
+	}
+
+	// ---------------- LIFECYCLE ----------------
+
+	@Override
+	public CompletableFuture<Void> ping() {
+		return CompletableFuture.completedFuture(null);
+	}
+
+	@Override
+	public void close() {
+		codes.clear();
+		accounts.clear();
+		links.clear();
+		skins.clear();
+		tokens.clear();
+	}
+
+	/** The same code may be given to several players. */
+	private record CodeKey(String code, String username) {
+
+		CodeKey {
+			username = username.toLowerCase(Locale.ROOT);
+		}
+	}
+}
@@ -0,0 +1,320 @@
+package com.example.loginplugin.storage;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Logger;
+
+import com.example.loginplugin.accounts.AccountBatch;
+import com.example.loginplugin.accounts.AccountLink;
+import com.example.loginplugin.codes.CodeRow;
+import com.example.loginplugin.database.ClaimedCode;
+import com.example.loginplugin.database.DatabasePool;
+import com.example.loginplugin.database.DatabaseSettings;
+import com.example.loginplugin.database.PoolStats;
+import com.example.loginplugin.database.Queries;
+import com.example.loginplugin.database.SchemaMigrator;
+import com.example.loginplugin.security.ReconnectToken;
+import com.example.loginplugin.skin.SkinTexture;
+
+/**
+ * The local SQLite file shared with the Discord bot. Writes are serialized on one writer thread and
+ * the tables can be followed by rowid, so the in-memory mirrors work on top of it.
+ */
+public final class SqliteStorage implements LoginStorage, ChangeFeed {
+
+	private final Logger logger;
+	private final DatabaseSettings settings;
+	private volatile DatabasePool pool;
+
+	public SqliteStorage(Logger logger, DatabaseSettings settings) {
+		this.logger = logger;
+		this.settings = settings;
+	}
+
+	@Override
+	public String describe() {
+		return "SQLite";
+	}
+
+	@Override
+	public void open() throws SQLException {
+		File dbFile = new File(settings.path());
+
+		// Check if database file exists
+		if (!dbFile.exists()) {
+			throw new SQLException("Database file not found at: " + dbFile.getAbsolutePath()
+					+ ". Please initialize the database schema before starting the plugin!");
+		}
+
+		DatabasePool created = new DatabasePool(logger, dbFile, settings);
+		try {
+			// WAL so readers no longer block behind the writer
+			created.open(c -> {
+				try (Statement stmt = c.raw().createStatement()) {
+					stmt.execute("PRAGMA journal_mode=WAL");
+					stmt.execute("PRAGMA synchronous=NORMAL");
+				}
+				return null;
+			});
+		} catch (SQLException | RuntimeException e) {
+			created.shutdown();
+			throw e;
+		}
+		migrateSchema(created);
+		pool = created;
+		logger.info("SQLite database connected at: " + dbFile.getAbsolutePath() + " (WAL, "
+				+ settings.readerThreads() + " readers, 1 writer)");
+	}
+
+	/**
+	 * Runs pending schema migrations on the writer connection. A failed migration is logged and the
+	 * plugin carries on with the schema it has: the queries stay correct, only slower.
+	 */
+	private void migrateSchema(DatabasePool db) {
+		try {
+			int version = db.write(c -> new SchemaMigrator(logger).migrate(c.raw())).join();
+			logger.info("Database schema is at version " + version + ".");
+		} catch (CompletionException e) {
+			logger.severe("Database migration failed: " + e.getCause().getMessage());
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * The connection pool, or null before {@link #open()} succeeded.
+	 */
+	public DatabasePool pool() {
+		return pool;
+	}
+
+	// ---------------- LOGIN PATH ----------------
+
+	/**
+	 * Redeems a code in a single statement: the matching row is deleted and returned in the same
+	 * round trip.
+	 */
+	@Override
+	public CompletableFuture<Optional<ClaimedCode>> claimCode(String username, String code, long now) {
+		return pool.write(c -> {
+			PreparedStatement stmt = c.prepare(Queries.CLAIM_CODE);
+			stmt.setString(1, code);
+			stmt.setString(2, username);
+			stmt.setLong(3, now);
+
+			try (ResultSet rs = stmt.executeQuery()) {
+				if (!rs.next()) {
+					return Optional.<ClaimedCode>empty();
+				}
+				return Optional.of(new ClaimedCode(rs.getString(1), rs.getString(2), rs.getLong(3), rs.getString(4)));
+			}
+		});
+	}
+
+	@Override
+	public CompletableFuture<Boolean> isRegistered(String username) {
+		return pool.read(c -> {
+			PreparedStatement stmt = c.prepare(Queries.IS_REGISTERED);
+			stmt.setString(1, username);
+
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next(); // true if record exists
+			}
+		});
+	}
+
+	/**
+	 * One transaction for the whole batch, so the writer pays for a single commit.
+	 */
+	@Override
+	public CompletableFuture<Integer> saveAccountLinks(List<AccountLink> links) {
+		return pool.write(c -> {
+			c.inTransaction(() -> {
+				for (AccountLink link : links) {
+					PreparedStatement update = c.prepare(Queries.LINK_ACCOUNT);
+					update.setString(1, link.uuid().toString());
+					update.setString(2, link.discordId());
+					update.setLong(3, link.lastLoginAt());
+					update.setString(4, link.username());
+					if (update.executeUpdate() == 0) {
+						PreparedStatement insert = c.prepare(Queries.INSERT_LINKED_ACCOUNT);
+						insert.setString(1, link.username());
+						insert.setString(2, link.discordId());
+						insert.setString(3, link.uuid().toString());
+						insert.setLong(4, link.lastLoginAt());
+						insert.executeUpdate();
+					}
+				}
+			});
+			return links.size();
+		});
+	}
+
+	@Override
+	public CompletableFuture<Optional<SkinTexture>> loadSkin(String username) {
+		return pool.read(c -> {
+			PreparedStatement stmt = c.prepare(Queries.SKIN_BY_USERNAME);
+			stmt.setString(1, username);
+
+			try (ResultSet rs = stmt.executeQuery()) {
+				if (!rs.next()) {
+					return Optional.<SkinTexture>empty();
+				}
+				return Optional.of(new SkinTexture(rs.getString(1), rs.getString(2)));
+			}
+		});
+	}
+
+	// ---------------- RECONNECT TOKENS ----------------
+
+	@Override
+	public CompletableFuture<Void> saveReconnectToken(ReconnectToken token) {
+		return pool.write(c -> {
+			PreparedStatement stmt = c.prepare(Queries.SAVE_RECONNECT_TOKEN);
+			stmt.setString(1, token.uuid().toString());
+			stmt.setString(2, token.address().getHostAddress());
+			stmt.setLong(3, token.expiresAt());
+			stmt.executeUpdate();
+			return (Void) null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<List<ReconnectToken>> liveReconnectTokens(long now) {
+		return pool.read(c -> {
+			PreparedStatement stmt = c.prepare(Queries.LIVE_RECONNECT_TOKENS);
+			stmt.setLong(1, now);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return readTokens(rs, logger);
+			}
+		});
+	}
+
+	@Override
+	public CompletableFuture<Integer> purgeReconnectTokens(long now) {
+		return pool.write(c -> {
+			PreparedStatement stmt = c.prepare(Queries.PURGE_RECONNECT_TOKENS);
+			stmt.setLong(1, now);
+			return stmt.executeUpdate();
+		});
+	}
+
+	/**
+	 * Reads {@code (mc_uuid, address, expires_at)} rows, skipping malformed ones.
+	 */
+	static List<ReconnectToken> readTokens(ResultSet rs, Logger logger) throws SQLException {
+		List<ReconnectToken> tokens = new ArrayList<>();
+		while (rs.next()) {
+			try {
+				// Stored as a literal address, so this never does a DNS lookup
+				tokens.add(new ReconnectToken(UUID.fromString(rs.getString(1)), InetAddress.getByName(rs.getString(2)),
+						rs.getLong(3)));
+			} catch (IllegalArgumentException | UnknownHostException e) {
+				logger.warning("Skipping malformed reconnect token row: " + e.getMessage());
+			}
+		}
+		return tokens;
+	}
+
+	// ---------------- CHANGE FEED ----------------
+
+	@Override
+	public CompletableFuture<List<CodeRow>> codesAfter(long rowid, long now, int limit) {
+		return readCodes(Queries.CODES_AFTER_ROWID, limit, rowid, now);
+	}
+
+	/**
+	 * SQLite hands the rowid of a deleted last row out again, so new rows are not always above the
+	 * cursor.
+	 */
+	@Override
+	public CompletableFuture<List<CodeRow>> codesReused(long rowid, long expiresAfter, long now, int limit) {
+		return readCodes(Queries.CODES_REUSED_ROWID, limit, rowid, expiresAfter, now);
+	}
+
+	private CompletableFuture<List<CodeRow>> readCodes(String sql, int limit, long... bounds) {
+		return pool.read(c -> {
+			PreparedStatement stmt = c.prepare(sql);
+			for (int i = 0; i < bounds.length; i++) {
+				stmt.setLong(i + 1, bounds[i]);
+			}
+			stmt.setInt(bounds.length + 1, limit);
+
+			List<CodeRow> batch = new ArrayList<>();
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					batch.add(new CodeRow(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getLong(4)));
+				}
+			}
+			return batch;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Integer> accountsAfter(long rowid, int limit, AccountBatch into) {
+		return pool.read(c -> {
+			PreparedStatement stmt = c.prepare(Queries.ACCOUNTS_AFTER_ROWID);
+			stmt.setLong(1, rowid);
+			stmt.setInt(2, limit);
+			int n = 0;
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					into.add(rs.getLong(1), rs.getString(2));
+					n++;
+				}
+			}
+			return n;
+		});
+	}
+
+	// ---------------- LIFECYCLE ----------------
+
+	@Override
+	public CompletableFuture<Void> ping() {
+		return pool.read(c -> {
+			try (ResultSet rs = c.prepare(Queries.PING).executeQuery()) {
+				rs.next();
+			}
+			return (Void) null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Void> warmUp() {
+		return pool.warmUp(
+				List.of(Queries.IS_REGISTERED, Queries.SKIN_BY_USERNAME, Queries.LIVE_RECONNECT_TOKENS, Queries.CODES_AFTER_ROWID,
+						Queries.CODES_REUSED_ROWID, Queries.ACCOUNTS_AFTER_ROWID, Queries.PING),
+				List.of(Queries.CLAIM_CODE, Queries.LINK_ACCOUNT, Queries.INSERT_LINKED_ACCOUNT, Queries.SAVE_RECONNECT_TOKEN));
+	}
+
+	@Override
+	public PoolStats readStats() {
+		DatabasePool db = pool;
+		return db == null ? null : db.readStats();
+	}
+
+	@Override
+	public PoolStats writeStats() {
+		DatabasePool db = pool;
+		return db == null ? null : db.writeStats();
+	}
+
+	@Override
+	public void close() {
+		// A closed pool fails whatever is still submitted instead of throwing here
+		DatabasePool db = pool;
+		if (db != null) {
+			db.shutdown();
+		}
+	}
+}
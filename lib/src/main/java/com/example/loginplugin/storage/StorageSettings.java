@@ -0,0 +1,73 @@
+package com.example.loginplugin.storage;
+
+import java.util.Locale;
+import java.util.logging.Logger;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import com.example.loginplugin.database.DatabaseSettings;
+
+/**
+ * Backend choice read from the {@code storage} section of config.yml. The SQLite backend keeps
+ * using the {@code database} section.
+ */
+public record StorageSettings(Type type, DatabaseSettings sqlite, Jdbc jdbc) {
+
+	public enum Type {
+		SQLITE, JDBC, MEMORY
+	}
+
+	/**
+	 * Connection settings for a database server shared by several Paper servers.
+	 */
+	public record Jdbc(String url, String driver, String username, String password, int readerThreads,
+			int writerThreads, boolean createTables) {
+
+		public Jdbc {
+			readerThreads = Math.max(1, readerThreads);
+			writerThreads = Math.max(1, writerThreads);
+		}
+
+		static Jdbc from(ConfigurationSection section) {
+			if (section == null) {
+				return new Jdbc("", "", "", "", 4, 2, false);
+			}
+			return new Jdbc(
+					section.getString("url", ""),
+					section.getString("driver", ""),
+					section.getString("username", ""),
+					section.getString("password", ""),
+					section.getInt("reader_threads", 4),
+					section.getInt("writer_threads", 2),
+					section.getBoolean("create_tables", false));
+		}
+	}
+
+	public static StorageSettings sqlite(DatabaseSettings settings) {
+		return new StorageSettings(Type.SQLITE, settings, Jdbc.from(null));
+	}
+
+	/**
+	 * @throws IllegalArgumentException for an unknown {@code storage.type}
+	 */
+	public static StorageSettings from(ConfigurationSection storage, ConfigurationSection database) {
+		String type = storage == null ? "sqlite" : storage.getString("type", "sqlite");
+		try {
+			return new StorageSettings(Type.valueOf(type.trim().toUpperCase(Locale.ROOT)), DatabaseSettings.from(database),
+					Jdbc.from(storage == null ? null : storage.getConfigurationSection("jdbc")));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Unknown storage.type '" + type + "', expected sqlite, jdbc or memory");
+		}
+	}
+
+	/**
+	 * Creates the configured backend, not opened yet.
+	 */
+	public LoginStorage create(Logger logger) {
+		return switch (type) {
+		case SQLITE -> new SqliteStorage(logger, sqlite);
+		case JDBC -> new JdbcStorage(logger, jdbc);
+		case MEMORY -> new MemoryStorage();
+		};
+	}
+}
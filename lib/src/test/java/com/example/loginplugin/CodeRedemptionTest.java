@@ -0,0 +1,110 @@
+package com.example.loginplugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.loginplugin.database.DatabaseSettings;
+import com.example.loginplugin.metrics.LoginMetrics;
+
+class CodeRedemptionTest {
+
+	@TempDir
+	Path dir;
+
+	private Path db;
+	private LoginManager manager;
+
+	@BeforeEach
+	void open() throws Exception {
+		Logger logger = Logger.getLogger("CodeRedemptionTest");
+		logger.setLevel(Level.OFF);
+		db = Files.createFile(dir.resolve("codes.db"));
+		manager = new LoginManager(logger, new DatabaseSettings(db.toString(), 2, 5000), new LoginMetrics(), false);
+		// Long enough that the periodic poll never runs during a test
+		manager.startCodeIndex(60_000);
+		long deadline = System.nanoTime() + 5_000_000_000L;
+		while (manager.codeIndex() == null) {
+			assertTrue(System.nanoTime() < deadline, "code index did not load");
+			Thread.sleep(10);
+		}
+	}
+
+	@AfterEach
+	void close() {
+		manager.closeDatabase();
+	}
+
+	private void issue(String code, String username) throws SQLException {
+		try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + db);
+				PreparedStatement stmt = c.prepareStatement(
+						"INSERT INTO link_codes (code, mc_username, expires_at) VALUES (?, ?, ?)")) {
+			stmt.setString(1, code);
+			stmt.setString(2, username);
+			stmt.setLong(3, System.currentTimeMillis() + 60_000);
+			stmt.executeUpdate();
+		}
+	}
+
+	@Test
+	void codeIssuedSinceTheLastPollIsAccepted() throws Exception {
+		issue("123456", "Steve");
+
+		assertTrue(manager.authorizeWithCode("Steve", UUID.randomUUID(), "123456"));
+	}
+
+	@Test
+	void rejectionByTheIndexIsNotRemembered() throws Exception {
+		manager.startClaimCoalescing(60_000);
+		assertFalse(manager.authorizeWithCode("Steve", UUID.randomUUID(), "123456"));
+
+		// Submitted once before the bot's insert landed, and again once the player got the code
+		issue("123456", "Steve");
+		Thread.sleep(1_100);
+		assertTrue(manager.authorizeWithCode("Steve", UUID.randomUUID(), "123456"));
+	}
+
+	@Test
+	void concurrentWrongCodesShareOneCatchUpRead() throws Exception {
+		issue("123456", "Steve");
+		long reads = manager.readStats().submitted();
+
+		List<CompletableFuture<Boolean>> submits = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			submits.add(manager.authorizeWithCodeAsync("Player" + i, UUID.randomUUID(), "654321"));
+		}
+		for (CompletableFuture<Boolean> submit : submits) {
+			assertFalse(submit.join());
+		}
+
+		// The index was empty, so one catch-up is a single query for the rows above the cursor
+		assertEquals(1, manager.readStats().submitted() - reads);
+	}
+
+	@Test
+	void wrongCodeIsStillRejected() throws Exception {
+		issue("123456", "Steve");
+
+		assertFalse(manager.authorizeWithCode("Steve", UUID.randomUUID(), "654321"));
+		assertFalse(manager.authorizeWithCode("Alex", UUID.randomUUID(), "123456"));
+		assertTrue(manager.authorizeWithCode("Steve", UUID.randomUUID(), "123456"));
+	}
+}
@@ -0,0 +1,358 @@
+package com.example.loginplugin;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.destroystokyo.paper.profile.PlayerProfile;
+import com.example.loginplugin.database.DatabaseSettings;
+import com.example.loginplugin.dialogs.LoginDialogs;
+import com.example.loginplugin.database.SchemaMigrator;
+import com.example.loginplugin.metrics.LoginMetrics;
+import com.example.loginplugin.session.LoginSessionEngine;
+import com.example.loginplugin.session.SubmitPipeline;
+
+import io.papermc.paper.connection.PlayerConfigurationConnection;
+import io.papermc.paper.dialog.DialogResponseView;
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.dialog.DialogLike;
+import net.kyori.adventure.key.Key;
+
+/**
+ * Drives {@link ServerJoinListener} through a wave of simulated players without a server.
+ * <p>
+ * Each player arrives on a configure thread, as Paper dispatches the configure event, and is
+ * answered by a fake client that "types" for a while and then submits a right or wrong code, or
+ * drops the connection. Submits run on a small fixed pool standing in for the network threads,
+ * against a real SQLite database with extra latency injected into every redemption.
+ */
+final class JoinStormHarness {
+
+	private static final Key SUBMIT = Key.key("myplugin:submit_code");
+	private static final int MAX_ATTEMPTS = 3;
+
+	/**
+	 * @param arrivalsPerSecond how quickly players enter the configuration phase
+	 * @param meanTypingMillis mean time a player spends on a dialog before submitting
+	 * @param wrongCodeRatio chance that any single submit is wrong
+	 * @param disconnectRatio chance that a player drops the connection while on the dialog
+	 * @param dbLatencyMillis mean latency added to every code redemption
+	 * @param networkThreads threads that deliver dialog submits
+	 */
+	record Scenario(int players, int arrivalsPerSecond, long meanTypingMillis, double wrongCodeRatio,
+			double disconnectRatio, long dbLatencyMillis, long loginTimeoutMillis, int networkThreads,
+			boolean codeIndex) {
+	}
+
+	record Report(Scenario scenario, int succeeded, int abandoned, int maxAttempts, int timedOut, long wallMillis,
+			double loginsPerSecond, double p50Millis, double p99Millis, double p999Millis, double maxMillis,
+			int peakConfigureThreads, int peakJvmThreads, Map<String, Integer> leaked) {
+
+		boolean hasLeaks() {
+			return leaked.values().stream().anyMatch(size -> size != 0);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d players in %d ms (%.1f logins/s): %d ok, %d abandoned, %d max attempts, %d timed out%n"
+					+ "time in configuration: p50=%.1fms p99=%.1fms p99.9=%.1fms max=%.1fms%n"
+					+ "threads: %d configure handlers at peak, %d JVM threads at peak%n"
+					+ "entries left behind: %s",
+					scenario.players(), wallMillis, loginsPerSecond, succeeded, abandoned, maxAttempts, timedOut,
+					p50Millis, p99Millis, p999Millis, maxMillis, peakConfigureThreads, peakJvmThreads, leaked);
+		}
+	}
+
+	/**
+	 * Injects the configured latency in front of every redemption.
+	 */
+	private static final class SlowLoginManager extends LoginManager {
+
+		private final long latencyMillis;
+
+		SlowLoginManager(Logger logger, DatabaseSettings settings, long latencyMillis) {
+			super(logger, settings, new LoginMetrics(), false);
+			this.latencyMillis = latencyMillis;
+		}
+
+		@Override
+		public boolean authorizeWithCode(String username, UUID uuid, String code) {
+			if (latencyMillis > 0) {
+				sleep(ThreadLocalRandom.current().nextLong(latencyMillis * 2 + 1));
+			}
+			return super.authorizeWithCode(username, uuid, code);
+		}
+	}
+
+	/**
+	 * One simulated player and the client side of their connection.
+	 */
+	private final class Client {
+
+		final UUID uuid;
+		final String name;
+		final String code;
+		final boolean leavesMidDialog;
+		final PlayerConfigurationConnection connection;
+		final AtomicBoolean closed = new AtomicBoolean();
+		final AtomicInteger wrongSubmits = new AtomicInteger();
+		volatile boolean left;
+		volatile boolean kicked;
+
+		Client(int i) {
+			this.uuid = new UUID(0x5707L, i);
+			this.name = "Storm" + i;
+			this.code = codeFor(i);
+			this.leavesMidDialog = ThreadLocalRandom.current().nextDouble() < scenario.disconnectRatio();
+
+			PlayerProfile profile = fake(PlayerProfile.class, (method, args) -> switch (method) {
+				case "getId" -> uuid;
+				case "getName" -> name;
+				default -> null;
+			});
+			Audience audience = fake(Audience.class, (method, args) -> {
+				if (method.equals("showDialog")) {
+					onDialog();
+				}
+				return null;
+			});
+			InetSocketAddress address = new InetSocketAddress("127.0.0.1", 40000 + (i % 20000));
+			this.connection = fake(PlayerConfigurationConnection.class, (method, args) -> switch (method) {
+				case "getProfile" -> profile;
+				case "getAudience" -> audience;
+				case "getAddress", "getClientAddress" -> address;
+				case "disconnect" -> {
+					kicked = true;
+					close();
+					yield null;
+				}
+				default -> null;
+			});
+		}
+
+		/** The player looks at the dialog for a while, then submits or leaves. */
+		void onDialog() {
+			long typing = (long) (scenario.meanTypingMillis() * (0.5 + ThreadLocalRandom.current().nextDouble()));
+			network.schedule(() -> {
+				if (closed.get()) {
+					return;
+				}
+				if (leavesMidDialog) {
+					left = true;
+					close();
+					return;
+				}
+				boolean wrong = ThreadLocalRandom.current().nextDouble() < scenario.wrongCodeRatio();
+				if (wrong) {
+					wrongSubmits.incrementAndGet();
+				}
+				String submitted = wrong ? codeFor(scenario.players() + ThreadLocalRandom.current().nextInt(1000)) : code;
+				DialogResponseView view = fake(DialogResponseView.class,
+						(method, args) -> method.equals("getText") ? submitted : null);
+				listener.dialogClicked(connection, SUBMIT, view);
+			}, typing, TimeUnit.MILLISECONDS);
+		}
+
+		/** The connection goes away, which Paper reports once as a close event. */
+		void close() {
+			if (closed.compareAndSet(false, true)) {
+				network.execute(() -> listener.connectionClosed(uuid));
+			}
+		}
+	}
+
+	private Scenario scenario;
+	private ServerJoinListener listener;
+	private ScheduledExecutorService network;
+
+	Report run(Scenario scenario) throws IOException, SQLException, InterruptedException {
+		this.scenario = scenario;
+		Logger logger = Logger.getLogger("JoinStormHarness");
+		logger.setLevel(Level.SEVERE);
+
+		Path dir = Files.createTempDirectory("loginplugin-storm");
+		Path db = dir.resolve("storm.db");
+		populate(db, scenario.players());
+
+		LoginManager manager = new SlowLoginManager(logger, new DatabaseSettings(db.toString(), 4, 5000),
+				scenario.dbLatencyMillis());
+		if (scenario.codeIndex()) {
+			manager.startCodeIndex(1000);
+			while (manager.codeIndex() == null) {
+				Thread.sleep(10);
+			}
+		}
+		LoginSessionEngine sessions = new LoginSessionEngine(scenario.loginTimeoutMillis(), 1000, TimeUnit.MILLISECONDS);
+		DialogLike dialog = fake(DialogLike.class, (method, args) -> null);
+		// Codes are checked off the network threads, as on a server
+		SubmitPipeline submits = new SubmitPipeline(4, scenario.players());
+		this.listener = new ServerJoinListener.Builder()
+				.loginManager(manager)
+				.sessions(sessions)
+				.submits(submits)
+				.metrics(new LoginMetrics())
+				.dialogs(new LoginDialogs(key -> dialog, Set.of(), null))
+				.logger(logger)
+				.build();
+
+		this.network = Executors.newScheduledThreadPool(scenario.networkThreads(), named("Storm-Network-"));
+		ThreadPoolExecutor configureThreads = (ThreadPoolExecutor) Executors.newCachedThreadPool(named("Storm-Configure-"));
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		threads.resetPeakThreadCount();
+
+		long[] latencies = new long[scenario.players()];
+		CountDownLatch done = new CountDownLatch(scenario.players());
+		LongAdder succeeded = new LongAdder();
+		LongAdder abandoned = new LongAdder();
+		LongAdder maxAttempts = new LongAdder();
+		LongAdder timedOut = new LongAdder();
+
+		long start = System.nanoTime();
+		for (int i = 0; i < scenario.players(); i++) {
+			int player = i;
+			long arrival = i * 1_000_000_000L / Math.max(1, scenario.arrivalsPerSecond());
+			network.schedule(() -> configureThreads.execute(() -> {
+				Client client = new Client(player);
+				long arrived = System.nanoTime();
+				try {
+					listener.configure(client.connection);
+				} finally {
+					latencies[player] = System.nanoTime() - arrived;
+					if (client.left) {
+						abandoned.increment();
+					} else if (!client.kicked) {
+						succeeded.increment();
+					} else if (client.wrongSubmits.get() >= MAX_ATTEMPTS) {
+						maxAttempts.increment();
+					} else {
+						timedOut.increment();
+					}
+					done.countDown();
+				}
+			}), arrival, TimeUnit.NANOSECONDS);
+		}
+
+		done.await();
+		long wall = System.nanoTime() - start;
+		// Let the close events still in flight reach the listener
+		network.shutdown();
+		network.awaitTermination(30, TimeUnit.SECONDS);
+		configureThreads.shutdown();
+		submits.shutdown();
+
+		Map<String, Integer> leaked = listener.trackedEntries();
+		sessions.shutdown();
+		manager.closeDatabase();
+		deleteDirectory(dir);
+
+		Arrays.sort(latencies);
+		return new Report(scenario, succeeded.intValue(), abandoned.intValue(), maxAttempts.intValue(),
+				timedOut.intValue(), wall / 1_000_000L, succeeded.sum() * 1e9 / wall, percentile(latencies, 0.50),
+				percentile(latencies, 0.99), percentile(latencies, 0.999), latencies[latencies.length - 1] / 1e6,
+				configureThreads.getLargestPoolSize(), threads.getPeakThreadCount(), leaked);
+	}
+
+	// ---------------- HELPERS ----------------
+
+	/** Distinct six digit codes: 7919 is coprime with 10^6. */
+	private static String codeFor(int i) {
+		return String.format("%06d", (i * 7919L + 1) % 1_000_000L);
+	}
+
+	private static void populate(Path db, int players) throws SQLException {
+		long expiresAt = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+		try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + db)) {
+			new SchemaMigrator(Logger.getLogger("JoinStormHarness")).migrate(c);
+			c.setAutoCommit(false);
+			try (PreparedStatement codes = c.prepareStatement(
+					"INSERT INTO link_codes (code, mc_username, expires_at) VALUES (?, ?, ?)");
+					PreparedStatement accounts = c.prepareStatement("INSERT INTO accounts (mc_username) VALUES (?)")) {
+				for (int i = 0; i < players; i++) {
+					codes.setString(1, codeFor(i));
+					codes.setString(2, "Storm" + i);
+					codes.setLong(3, expiresAt);
+					codes.addBatch();
+					accounts.setString(1, "Storm" + i);
+					accounts.addBatch();
+				}
+				codes.executeBatch();
+				accounts.executeBatch();
+			}
+			c.commit();
+		}
+	}
+
+	private static double percentile(long[] sorted, double p) {
+		int i = (int) Math.ceil(p * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, i))] / 1e6;
+	}
+
+	private interface Answer {
+		Object answer(String method, Object[] args);
+	}
+
+	/**
+	 * Implements an API interface with just the methods the listener calls; everything else
+	 * returns null.
+	 */
+	private static <T> T fake(Class<T> type, Answer answer) {
+		Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+				(self, method, args) -> switch (method.getName()) {
+					case "equals" -> self == args[0];
+					case "hashCode" -> System.identityHashCode(self);
+					case "toString" -> "Fake" + type.getSimpleName();
+					default -> answer.answer(method.getName(), args);
+				});
+		return type.cast(proxy);
+	}
+
+	private static ThreadFactory named(String prefix) {
+		AtomicInteger n = new AtomicInteger();
+		return r -> {
+			Thread t = new Thread(r, prefix + n.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		};
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void deleteDirectory(Path dir) throws IOException {
+		try (var files = Files.list(dir)) {
+			for (Path p : (Iterable<Path>) files::iterator) {
+				Files.deleteIfExists(p);
+			}
+		}
+		Files.deleteIfExists(dir);
+	}
+}
@@ -0,0 +1,37 @@
+package com.example.loginplugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.loginplugin.JoinStormHarness.Report;
+import com.example.loginplugin.JoinStormHarness.Scenario;
+
+/**
+ * 500 players reconnecting at once, e.g. after a restart. Override any parameter with
+ * {@code -Pstorm.<name>=<value>}, e.g. {@code ./gradlew :lib:test --tests JoinStormTest -Pstorm.players=2000}.
+ */
+class JoinStormTest {
+
+	@Test
+	void reconnectWaveDrainsWithoutLeaks() throws Exception {
+		Scenario scenario = new Scenario(
+				Integer.getInteger("storm.players", 500),
+				Integer.getInteger("storm.arrivalsPerSecond", 1000),
+				Long.getLong("storm.meanTypingMillis", 200),
+				Double.parseDouble(System.getProperty("storm.wrongCodeRatio", "0.2")),
+				Double.parseDouble(System.getProperty("storm.disconnectRatio", "0.05")),
+				Long.getLong("storm.dbLatencyMillis", 5),
+				Long.getLong("storm.loginTimeoutMillis", 30_000),
+				Integer.getInteger("storm.networkThreads", 8),
+				Boolean.parseBoolean(System.getProperty("storm.codeIndex", "true")));
+
+		Report report = new JoinStormHarness().run(scenario);
+
+		assertEquals(scenario.players(),
+				report.succeeded() + report.abandoned() + report.maxAttempts() + report.timedOut(), report::toString);
+		assertEquals(0, report.timedOut(), report::toString);
+		assertFalse(report.hasLeaks(), () -> "per-player state left behind: " + report.leaked() + "\n" + report);
+	}
+}
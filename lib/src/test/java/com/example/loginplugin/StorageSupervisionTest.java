@@ -0,0 +1,144 @@
+package com.example.loginplugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.loginplugin.database.DatabaseSettings;
+import com.example.loginplugin.metrics.LoginMetrics;
+import com.example.loginplugin.storage.CircuitBreaker;
+import com.example.loginplugin.storage.HealthSettings;
+import com.example.loginplugin.storage.StorageSettings;
+
+class StorageSupervisionTest {
+
+	private static final HealthSettings FAST = new HealthSettings(3, 100, 200, 1000);
+
+	@TempDir
+	Path dir;
+
+	private final Logger logger = quiet();
+	private LoginManager manager;
+
+	private static Logger quiet() {
+		Logger logger = Logger.getLogger("StorageSupervisionTest");
+		logger.setLevel(Level.OFF);
+		return logger;
+	}
+
+	@AfterEach
+	void close() {
+		manager.closeDatabase();
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + 5_000_000_000L;
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "condition not reached in time");
+			Thread.sleep(20);
+		}
+	}
+
+	@Test
+	void opensDatabaseThatAppearsAfterStartup() throws Exception {
+		Path db = dir.resolve("late.db");
+		manager = new LoginManager(logger, new DatabaseSettings(db.toString(), 1, 5000), new LoginMetrics(), false);
+		manager.superviseStorage(FAST, () -> {
+		});
+		manager.startCodeIndex(50);
+
+		assertFalse(manager.isAvailable());
+		assertFalse(manager.isRegistered("Steve"));
+
+		Files.createFile(db);
+		await(manager::isAvailable);
+		await(() -> manager.codeIndex() != null);
+		assertEquals(CircuitBreaker.State.CLOSED, manager.breaker().state());
+		assertTrue(manager.reconnectAttempts() >= 1);
+	}
+
+	@Test
+	void opensBreakerOnRepeatedFailuresAndClosesOnProbe() throws Exception {
+		Path db = Files.createFile(dir.resolve("test.db"));
+		AtomicInteger released = new AtomicInteger();
+		manager = new LoginManager(logger, new DatabaseSettings(db.toString(), 1, 5000), new LoginMetrics(), false);
+		manager.superviseStorage(FAST, released::incrementAndGet);
+
+		try (Connection fixtures = DriverManager.getConnection("jdbc:sqlite:" + db);
+				Statement stmt = fixtures.createStatement()) {
+			stmt.execute("ALTER TABLE accounts RENAME TO accounts_gone");
+			for (int i = 0; i < 3; i++) {
+				manager.isRegistered("Steve");
+			}
+			assertEquals(CircuitBreaker.State.OPEN, manager.breaker().state());
+			assertFalse(manager.isAvailable());
+			assertEquals(1, released.get());
+
+			// Refused without reaching the database
+			manager.isRegistered("Steve");
+			assertTrue(manager.breaker().rejectedCount() >= 1);
+
+			stmt.execute("ALTER TABLE accounts_gone RENAME TO accounts");
+		}
+		await(manager::isAvailable);
+		assertNotNull(manager.storage());
+		assertEquals(1, manager.breaker().closedCount());
+	}
+
+	@Test
+	void startupOpensStorageInTheBackgroundAndWaitsForTheCaches() throws Exception {
+		Path db = Files.createFile(dir.resolve("startup.db"));
+		manager = LoginManager.unopened(logger, StorageSettings.sqlite(new DatabaseSettings(db.toString(), 2, 5000)),
+				new LoginMetrics(), false);
+		manager.superviseStorage(FAST, () -> {
+		});
+		manager.startCodeIndex(50);
+		manager.startAccountSnapshot(50, 60_000);
+
+		// Nothing opened yet, and not mistaken for a dead database
+		assertFalse(manager.isAvailable());
+		assertEquals(CircuitBreaker.State.CLOSED, manager.breaker().state());
+		assertEquals(-1, manager.readyMillis());
+
+		manager.startup(5000);
+		assertTrue(manager.awaitReady(5000));
+		assertTrue(manager.isAvailable());
+		assertNotNull(manager.codeIndex());
+		assertNotNull(manager.accountSnapshot());
+		assertTrue(manager.readyMillis() >= 0);
+	}
+
+	@Test
+	void startupHandsAMissingDatabaseToTheSupervisor() throws Exception {
+		Path db = dir.resolve("late.db");
+		manager = LoginManager.unopened(logger, StorageSettings.sqlite(new DatabaseSettings(db.toString(), 1, 5000)),
+				new LoginMetrics(), false);
+		manager.superviseStorage(FAST, () -> {
+		});
+		manager.startCodeIndex(50);
+
+		manager.startup(5000);
+		assertTrue(manager.awaitReady(5000));
+		assertFalse(manager.isAvailable());
+		assertEquals(CircuitBreaker.State.OPEN, manager.breaker().state());
+
+		Files.createFile(db);
+		await(manager::isAvailable);
+		await(() -> manager.codeIndex() != null);
+	}
+}
@@ -0,0 +1,91 @@
+package com.example.loginplugin.accounts;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Test;
+
+class AccountLinkWriterTest {
+
+	private static final Logger LOGGER = Logger.getLogger("AccountLinkWriterTest");
+
+	private final List<List<AccountLink>> batches = new CopyOnWriteArrayList<>();
+	private final AtomicBoolean failing = new AtomicBoolean();
+
+	private CompletableFuture<Integer> sink(List<AccountLink> batch) {
+		if (failing.get()) {
+			return CompletableFuture.failedFuture(new IllegalStateException("database is down"));
+		}
+		batches.add(batch);
+		return CompletableFuture.completedFuture(batch.size());
+	}
+
+	private static AccountLink link(UUID uuid, long at) {
+		return new AccountLink(uuid, "p" + at, null, at);
+	}
+
+	private void awaitBatches(int count) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (batches.size() < count && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+	}
+
+	@Test
+	void flushesAFullBatchWithoutWaitingForTheInterval() throws Exception {
+		AccountLinkWriter writer = new AccountLinkWriter(LOGGER, this::sink, () -> true, 3, 60_000);
+		for (int i = 0; i < 3; i++) {
+			writer.offer(link(UUID.randomUUID(), i));
+		}
+		awaitBatches(1);
+
+		assertEquals(1, batches.size());
+		assertEquals(3, batches.get(0).size());
+		assertEquals(3, writer.written());
+		writer.stop(1000);
+	}
+
+	@Test
+	void keepsTheLatestLinkPerPlayerAndWritesTheRestOnStop() {
+		AccountLinkWriter writer = new AccountLinkWriter(LOGGER, this::sink, () -> true, 100, 60_000);
+		UUID steve = UUID.randomUUID();
+		writer.offer(link(steve, 1));
+		writer.offer(link(steve, 2));
+		writer.offer(link(UUID.randomUUID(), 3));
+		assertEquals(2, writer.pendingCount());
+
+		writer.stop(1000);
+
+		assertEquals(1, batches.size());
+		assertTrue(batches.get(0).contains(link(steve, 2)));
+		assertEquals(2, writer.written());
+		assertEquals(0, writer.pendingCount());
+	}
+
+	@Test
+	void retriesAFailedBatchOnTheNextFlush() throws Exception {
+		AccountLinkWriter writer = new AccountLinkWriter(LOGGER, this::sink, () -> true, 100, 20);
+		failing.set(true);
+		writer.offer(link(UUID.randomUUID(), 1));
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (writer.failedBatches() == 0 && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		assertTrue(writer.failedBatches() > 0);
+		assertEquals(1, writer.pendingCount());
+
+		failing.set(false);
+		awaitBatches(1);
+		assertEquals(1, writer.written());
+		writer.stop(1000);
+	}
+}
@@ -0,0 +1,108 @@
+package com.example.loginplugin.audit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.loginplugin.audit.AuditReader.Query;
+
+class AuditLogTest {
+
+	private static final Logger LOGGER = Logger.getLogger("AuditLogTest");
+
+	@TempDir
+	Path dir;
+
+	private AuditSettings settings(int bufferSize, long flushIntervalMillis, long maxFileBytes, int maxFiles) {
+		return new AuditSettings(dir.toString(), bufferSize, flushIntervalMillis, true, maxFileBytes, maxFiles);
+	}
+
+	@Test
+	void recordsAreReadBackByPlayerAndTime() throws Exception {
+		UUID steve = UUID.randomUUID();
+		UUID alex = UUID.randomUUID();
+		InetAddress v4 = InetAddress.getByName("192.0.2.7");
+		InetAddress v6 = InetAddress.getByName("2001:db8::17");
+
+		AuditLog audit = AuditLog.start(LOGGER, settings(1024, 10, 16L << 20, 10));
+		audit.record(AuditEvent.NOT_REGISTERED, null, "Stranger", v4);
+		audit.record(AuditEvent.CODE_REJECTED, steve, "Steve", v4, 1);
+		audit.record(AuditEvent.CODE_ACCEPTED, alex, "Alex", v6);
+		Thread.sleep(20);
+		long later = System.currentTimeMillis();
+		audit.record(AuditEvent.CODE_ACCEPTED, steve, "Steve", null);
+		audit.stop();
+
+		assertEquals(4, audit.written());
+		assertEquals(0, audit.dropped());
+
+		List<AuditRecord> all = AuditReader.query(dir, Query.ALL);
+		assertEquals(4, all.size());
+		AuditRecord stranger = all.get(0);
+		assertEquals(AuditEvent.NOT_REGISTERED, stranger.event());
+		assertNull(stranger.uuid());
+		assertEquals(v4, stranger.address());
+		assertEquals(v6, all.get(2).address());
+
+		List<AuditRecord> byName = AuditReader.query(dir, new Query(null, "steve", Long.MIN_VALUE, Long.MAX_VALUE));
+		assertEquals(2, byName.size());
+		assertEquals(AuditEvent.CODE_REJECTED, byName.get(0).event());
+		assertEquals(1, byName.get(0).attempt());
+		assertNull(byName.get(1).address());
+
+		List<AuditRecord> byUuid = AuditReader.query(dir, new Query(alex, null, Long.MIN_VALUE, Long.MAX_VALUE));
+		assertEquals(1, byUuid.size());
+		assertEquals("Alex", byUuid.get(0).name());
+
+		List<AuditRecord> recent = AuditReader.query(dir, new Query(steve, null, later, Long.MAX_VALUE));
+		assertEquals(1, recent.size());
+		assertEquals(AuditEvent.CODE_ACCEPTED, recent.get(0).event());
+	}
+
+	@Test
+	void rotatesAndKeepsOnlyTheNewestFiles() throws Exception {
+		// 64 KB files hold 512 records per batch written
+		AuditLog audit = AuditLog.start(LOGGER, settings(4096, 10, 64 * 1024, 3));
+		for (int i = 0; i < 3000; i++) {
+			audit.record(AuditEvent.CODE_REJECTED, null, "p" + i, null, 1);
+		}
+		audit.stop();
+
+		assertEquals(3000, audit.written());
+		assertEquals(3, AuditReader.files(dir).size());
+
+		List<AuditRecord> kept = AuditReader.query(dir, Query.ALL);
+		assertTrue(kept.size() < 3000);
+		int first = 3000 - kept.size();
+		for (int i = 0; i < kept.size(); i++) {
+			assertEquals("p" + (first + i), kept.get(i).name());
+		}
+	}
+
+	@Test
+	void dropsInsteadOfBlockingWhenTheWriterFallsBehind() throws Exception {
+		AuditLog audit = AuditLog.start(LOGGER, settings(64, 60_000, 16L << 20, 10));
+		Thread.sleep(50);
+		int accepted = 0;
+		for (int i = 0; i < 100; i++) {
+			if (audit.record(AuditEvent.THROTTLED, null, "p" + i, null)) {
+				accepted++;
+			}
+		}
+		audit.stop();
+
+		assertTrue(audit.dropped() > 0);
+		assertEquals(100, accepted + audit.dropped());
+		assertEquals(accepted, audit.written());
+		assertEquals(accepted, AuditReader.query(dir, Query.ALL).size());
+	}
+}
@@ -0,0 +1,77 @@
+package com.example.loginplugin.codes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.loginplugin.database.ClaimedCode;
+
+class ClaimCoalescerTest {
+
+	private final AtomicInteger lookups = new AtomicInteger();
+
+	private Supplier<CompletableFuture<Optional<ClaimedCode>>> lookup(CompletableFuture<Optional<ClaimedCode>> answer) {
+		return () -> {
+			lookups.incrementAndGet();
+			return answer;
+		};
+	}
+
+	@Test
+	void concurrentClaimsShareOneLookupAndOnlyTheFirstWins() {
+		ClaimCoalescer claims = new ClaimCoalescer(2000);
+		CompletableFuture<Optional<ClaimedCode>> database = new CompletableFuture<>();
+
+		CompletableFuture<Optional<ClaimedCode>> first = claims.claim("Steve", "123456", lookup(database));
+		CompletableFuture<Optional<ClaimedCode>> second = claims.claim("steve", "123456", lookup(database));
+		CompletableFuture<Optional<ClaimedCode>> other = claims.claim("Steve", "654321", lookup(new CompletableFuture<>()));
+		assertEquals(2, lookups.get());
+		assertEquals(1, claims.coalesced());
+
+		database.complete(Optional.of(new ClaimedCode("123456", "Steve", 0L)));
+		assertTrue(first.join().isPresent());
+		assertFalse(second.join().isPresent());
+		assertFalse(other.isDone());
+	}
+
+	@Test
+	void remembersRejectionsForTheirTtl() throws Exception {
+		ClaimCoalescer claims = new ClaimCoalescer(50);
+		CompletableFuture<Optional<ClaimedCode>> wrong = CompletableFuture.completedFuture(Optional.empty());
+
+		assertFalse(claims.claim("Steve", "111111", lookup(wrong)).join().isPresent());
+		assertFalse(claims.claim("Steve", "111111", lookup(wrong)).join().isPresent());
+		assertEquals(1, lookups.get());
+		assertEquals(1, claims.negativeHits());
+
+		Thread.sleep(80);
+		claims.claim("Steve", "111111", lookup(wrong)).join();
+		assertEquals(2, lookups.get());
+	}
+
+	@Test
+	void failedLookupsAreSharedButNotRemembered() {
+		ClaimCoalescer claims = new ClaimCoalescer(2000);
+		CompletableFuture<Optional<ClaimedCode>> database = new CompletableFuture<>();
+
+		CompletableFuture<Optional<ClaimedCode>> first = claims.claim("Steve", "123456", lookup(database));
+		CompletableFuture<Optional<ClaimedCode>> second = claims.claim("Steve", "123456", lookup(database));
+		database.completeExceptionally(new IllegalStateException("database is locked"));
+
+		assertThrows(CompletionException.class, first::join);
+		assertThrows(CompletionException.class, second::join);
+
+		claims.claim("Steve", "123456", lookup(CompletableFuture.completedFuture(Optional.empty()))).join();
+		assertEquals(2, lookups.get());
+		assertEquals(0, claims.negativeHits());
+	}
+}
@@ -0,0 +1,64 @@
+package com.example.loginplugin.codes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.loginplugin.codes.CodeIndex.Verdict;
+
+class CodeIndexTest {
+
+	private static final long NOW = System.currentTimeMillis();
+
+	@Test
+	void claimedCodeIsNotBroughtBackByAPoll() {
+		CodeIndex index = new CodeIndex();
+		index.push(123456, "Steve", NOW + 60_000);
+		index.markReady();
+
+		assertNotNull(index.claim("Steve", "123456", NOW));
+		// The row is still in the table until the background delete lands
+		index.apply(List.of(new CodeRow(1, "123456", "Steve", NOW + 60_000)));
+		assertNull(index.claim("Steve", "123456", NOW));
+	}
+
+	@Test
+	void codeIssuedAgainLaterCanBeClaimed() {
+		CodeIndex index = new CodeIndex();
+		index.push(123456, "Steve", NOW + 60_000);
+		index.markReady();
+		index.claim("Steve", "123456", NOW);
+
+		index.push(123456, "Alex", NOW + 120_000);
+		assertEquals(Verdict.POSSIBLE, index.check("Alex", "123456", NOW));
+	}
+
+	@Test
+	void codeGivenToTwoPlayersIsLeftToTheDatabase() {
+		CodeIndex index = new CodeIndex();
+		index.apply(List.of(new CodeRow(1, "123456", "Steve", NOW + 60_000), new CodeRow(2, "123456", "Alex", NOW + 60_000)));
+		index.markReady();
+
+		assertTrue(index.isShared("123456"));
+		assertEquals(Verdict.POSSIBLE, index.check("Steve", "123456", NOW));
+		assertEquals(Verdict.POSSIBLE, index.check("Alex", "123456", NOW));
+		assertNull(index.claim("Steve", "123456", NOW));
+
+		// Redeemed by one of them; the other may still hold it
+		index.remove("123456");
+		assertEquals(Verdict.POSSIBLE, index.check("Alex", "123456", NOW));
+	}
+
+	@Test
+	void pushLeavesPollCursorAlone() {
+		CodeIndex index = new CodeIndex();
+		index.push(123456, "Steve", NOW + 60_000);
+		assertEquals(0, index.cursorRowid());
+		assertEquals(0, index.cursorExpiresAt());
+	}
+}
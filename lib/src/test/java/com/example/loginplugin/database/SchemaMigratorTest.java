@@ -0,0 +1,143 @@
+package com.example.loginplugin.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SchemaMigratorTest {
+
+	@TempDir
+	Path dir;
+
+	private Connection connection;
+	private final SchemaMigrator migrator = new SchemaMigrator(Logger.getLogger("SchemaMigratorTest"));
+
+	@BeforeEach
+	void open() throws SQLException {
+		connection = DriverManager.getConnection("jdbc:sqlite:" + dir.resolve("test.db"));
+	}
+
+	@AfterEach
+	void close() throws SQLException {
+		connection.close();
+	}
+
+	@Test
+	void migratesFreshDatabaseToLatestVersion() throws SQLException {
+		assertEquals(SchemaMigrator.latestVersion(), migrator.migrate(connection));
+		assertEquals(SchemaMigrator.latestVersion(), SchemaMigrator.currentVersion(connection));
+		// Running again is a no-op
+		assertEquals(SchemaMigrator.latestVersion(), migrator.migrate(connection));
+	}
+
+	@Test
+	void keepsEveryRowWhenCodesAreShared() throws SQLException {
+		try (Statement stmt = connection.createStatement()) {
+			stmt.execute("CREATE TABLE link_codes (code TEXT, mc_username TEXT, mc_uuid TEXT, discord_id TEXT, expires_at INTEGER)");
+			stmt.execute("CREATE TABLE accounts (mc_username TEXT, discord_id TEXT)");
+			stmt.execute("INSERT INTO link_codes (code, mc_username, expires_at) VALUES ('123456', 'Steve', 1)");
+			stmt.execute("INSERT INTO link_codes (code, mc_username, expires_at) VALUES ('123456', 'Alex', 2)");
+		}
+
+		migrator.migrate(connection);
+
+		assertEquals(2, countCodes("123456"));
+		// The bot keeps inserting codes that collide with existing rows
+		try (Statement stmt = connection.createStatement()) {
+			stmt.execute("INSERT INTO link_codes (code, mc_username, expires_at) VALUES ('123456', 'Herobrine', 3)");
+		}
+		assertEquals(3, countCodes("123456"));
+	}
+
+	@Test
+	void addsColumnsMissingFromAnOlderBotSchema() throws SQLException {
+		try (Statement stmt = connection.createStatement()) {
+			stmt.execute("CREATE TABLE link_codes (code TEXT, mc_username TEXT, expires_at INTEGER)");
+			stmt.execute("CREATE TABLE accounts (mc_username TEXT)");
+			stmt.execute("INSERT INTO link_codes (code, mc_username, expires_at) VALUES ('123456', 'Steve', 2)");
+			stmt.execute("INSERT INTO accounts (mc_username) VALUES ('Steve')");
+		}
+
+		migrator.migrate(connection);
+
+		try (PreparedStatement claim = connection.prepareStatement(Queries.CLAIM_CODE)) {
+			claim.setString(1, "123456");
+			claim.setString(2, "Steve");
+			claim.setLong(3, 1L);
+			try (ResultSet rs = claim.executeQuery()) {
+				assertTrue(rs.next());
+			}
+		}
+		try (PreparedStatement link = connection.prepareStatement(Queries.LINK_ACCOUNT)) {
+			link.setString(1, "069a79f4-44e9-4726-a5be-fca90e38aaf5");
+			link.setString(2, "1234");
+			link.setLong(3, 1L);
+			link.setString(4, "Steve");
+			assertEquals(1, link.executeUpdate());
+		}
+	}
+
+	private int countCodes(String code) throws SQLException {
+		try (PreparedStatement stmt = connection.prepareStatement("SELECT count(*) FROM link_codes WHERE code = ?")) {
+			stmt.setString(1, code);
+			try (ResultSet rs = stmt.executeQuery()) {
+				rs.next();
+				return rs.getInt(1);
+			}
+		}
+	}
+
+	@Test
+	void claimQueryUsesCodeIndex() throws SQLException {
+		migrator.migrate(connection);
+		String plan = queryPlan(Queries.CLAIM_CODE, "123456", "Steve", 0L);
+		assertTrue(plan.contains("USING INDEX idx_link_codes_code"), plan);
+	}
+
+	@Test
+	void registrationQueryUsesUsernameIndex() throws SQLException {
+		migrator.migrate(connection);
+		String plan = queryPlan(Queries.IS_REGISTERED, "Steve");
+		assertTrue(plan.contains("idx_accounts_username"), plan);
+		assertFalse(plan.contains("SCAN"), plan);
+	}
+
+	@Test
+	void codePollingQueriesAvoidFullScans() throws SQLException {
+		migrator.migrate(connection);
+		String afterRowid = queryPlan(Queries.CODES_AFTER_ROWID, 0L, 0L, 100);
+		assertTrue(afterRowid.contains("INTEGER PRIMARY KEY"), afterRowid);
+
+		String reused = queryPlan(Queries.CODES_REUSED_ROWID, 10L, 0L, 0L, 100);
+		assertFalse(reused.contains("SCAN"), reused);
+	}
+
+	private String queryPlan(String sql, Object... params) throws SQLException {
+		try (PreparedStatement stmt = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+			for (int i = 0; i < params.length; i++) {
+				stmt.setObject(i + 1, params[i]);
+			}
+			StringBuilder plan = new StringBuilder();
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					plan.append(rs.getString("detail")).append('\n');
+				}
+			}
+			return plan.toString();
+		}
+	}
+}
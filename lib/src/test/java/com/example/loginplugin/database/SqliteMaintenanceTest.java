@@ -0,0 +1,100 @@
+package com.example.loginplugin.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.loginplugin.storage.SqliteStorage;
+
+class SqliteMaintenanceTest {
+
+	private static final long NOW = 1_000_000L;
+
+	@TempDir
+	Path dir;
+
+	private SqliteStorage storage;
+	private Connection fixtures;
+
+	@BeforeEach
+	void open() throws Exception {
+		Path db = Files.createFile(dir.resolve("test.db"));
+		storage = new SqliteStorage(Logger.getLogger("SqliteMaintenanceTest"), new DatabaseSettings(db.toString(), 1, 5000));
+		storage.open();
+		fixtures = DriverManager.getConnection("jdbc:sqlite:" + db);
+	}
+
+	@AfterEach
+	void close() throws Exception {
+		fixtures.close();
+		storage.close();
+	}
+
+	private void addCodes(int from, int count, long expiresAt) throws Exception {
+		fixtures.setAutoCommit(false);
+		try (PreparedStatement stmt = fixtures.prepareStatement(
+				"INSERT INTO link_codes (code, mc_username, expires_at) VALUES (?, ?, ?)")) {
+			for (int i = from; i < from + count; i++) {
+				stmt.setString(1, String.format("%06d", i));
+				stmt.setString(2, "player" + i);
+				stmt.setLong(3, expiresAt);
+				stmt.addBatch();
+			}
+			stmt.executeBatch();
+		}
+		fixtures.commit();
+		fixtures.setAutoCommit(true);
+	}
+
+	private int count(String sql) throws Exception {
+		try (Statement stmt = fixtures.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+			rs.next();
+			return rs.getInt(1);
+		}
+	}
+
+	@Test
+	void purgesInBoundedBatchesAndKeepsLiveCodes() throws Exception {
+		addCodes(0, 1200, NOW - 1);
+		addCodes(5000, 10, NOW + 60_000);
+		SqliteMaintenance maintenance = new SqliteMaintenance(Logger.getLogger("SqliteMaintenanceTest"), storage.pool(),
+				new MaintenanceSettings(300, 500, 2, 0, false, 0));
+
+		assertEquals(1000, maintenance.run(NOW).purged());
+		assertEquals(200, maintenance.run(NOW).purged());
+		assertEquals(0, maintenance.run(NOW).purged());
+
+		assertEquals(1200, maintenance.purged());
+		assertEquals(3, maintenance.runs());
+		assertEquals(10, count("SELECT COUNT(*) FROM link_codes"));
+	}
+
+	@Test
+	void convertsOnceThenVacuumsFreedPages() throws Exception {
+		SqliteMaintenance maintenance = new SqliteMaintenance(Logger.getLogger("SqliteMaintenanceTest"), storage.pool(),
+				new MaintenanceSettings(300, 5000, 10, 100_000, true, 1));
+		maintenance.run(NOW);
+		assertEquals(2, count("PRAGMA auto_vacuum"));
+
+		addCodes(0, 5000, NOW - 1);
+		SqliteMaintenance.Report report = maintenance.run(NOW);
+
+		assertEquals(5000, report.purged());
+		assertTrue(report.vacuumedPages() > 0, "no pages vacuumed");
+		assertEquals(0, count("PRAGMA freelist_count"));
+		assertTrue(report.walTruncated(), "WAL not truncated");
+	}
+}
@@ -0,0 +1,65 @@
+package com.example.loginplugin.dialogs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.loginplugin.dialogs.LoginCodeDialog.Kind;
+
+import net.kyori.adventure.dialog.DialogLike;
+import net.kyori.adventure.key.Key;
+
+class LoginDialogsTest {
+
+	private final Map<Key, DialogLike> registry = new HashMap<>();
+	private final AtomicInteger lookups = new AtomicInteger();
+
+	private DialogLike register(Kind kind, String locale) {
+		DialogLike dialog = (DialogLike) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { DialogLike.class }, (proxy, method, args) -> null);
+		registry.put(LoginCodeDialog.key(kind, locale), dialog);
+		return dialog;
+	}
+
+	private LoginDialogs dialogs(Set<String> locales) {
+		return new LoginDialogs(key -> {
+			lookups.incrementAndGet();
+			return registry.get(key);
+		}, locales, null);
+	}
+
+	@Test
+	void picksExactLocaleThenLanguageThenDefault() {
+		DialogLike fallback = register(Kind.LOGIN, null);
+		DialogLike german = register(Kind.LOGIN, "de");
+		DialogLike swiss = register(Kind.LOGIN, "de_ch");
+		LoginDialogs dialogs = dialogs(Set.of("de", "de_ch"));
+
+		assertSame(swiss, dialogs.get(Kind.LOGIN, "de_CH"));
+		assertSame(german, dialogs.get(Kind.LOGIN, "de_de"));
+		assertSame(fallback, dialogs.get(Kind.LOGIN, "fr_fr"));
+		assertSame(fallback, dialogs.get(Kind.LOGIN, null));
+	}
+
+	@Test
+	void fallsBackPerKindAndNeverLooksUpAgain() {
+		DialogLike wrong = register(Kind.WRONG_CODE, null);
+		register(Kind.LOGIN, null);
+		register(Kind.LOGIN, "de");
+		LoginDialogs dialogs = dialogs(Set.of("de"));
+		int resolved = lookups.get();
+
+		// German text only exists for the first dialog
+		for (int i = 0; i < 3; i++) {
+			assertSame(wrong, dialogs.get(Kind.WRONG_CODE, "de_de"));
+		}
+		assertEquals(resolved, lookups.get());
+	}
+}
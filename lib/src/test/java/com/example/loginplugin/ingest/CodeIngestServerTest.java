@@ -0,0 +1,123 @@
+package com.example.loginplugin.ingest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.loginplugin.codes.CodeIndex;
+import com.example.loginplugin.codes.CodeIndex.Verdict;
+import com.example.loginplugin.ingest.IngestSettings.Transport;
+
+class CodeIngestServerTest {
+
+	private static final Logger LOGGER = Logger.getLogger("CodeIngestServerTest");
+
+	@TempDir
+	Path dir;
+
+	private final CodeIndex index = new CodeIndex();
+	private CodeIngestServer server;
+
+	@BeforeEach
+	void loadIndex() {
+		index.markReady();
+	}
+
+	@AfterEach
+	void stop() {
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	private CodeIngestServer tcp(String secret) throws Exception {
+		server = CodeIngestServer.start(LOGGER, new IngestSettings(Transport.TCP, null, 0, secret), index);
+		return server;
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			if (System.nanoTime() > deadline) {
+				throw new AssertionError("condition not met within 5s");
+			}
+			Thread.sleep(5);
+		}
+	}
+
+	private boolean known(String username, String code) {
+		return index.check(username, code, System.currentTimeMillis()) == Verdict.POSSIBLE;
+	}
+
+	@Test
+	void pushedCodesCanBeClaimedOverTcp() throws Exception {
+		tcp("s3cret");
+		long expiresAt = System.currentTimeMillis() + 60_000;
+		try (FakeBotClient bot = new FakeBotClient(server.address())) {
+			bot.hello("s3cret").issue(12345, "Steve", expiresAt).issue(654321, "Alex", expiresAt);
+			await(() -> server.issued() == 2);
+		}
+
+		assertNotNull(index.claim("steve", "012345", System.currentTimeMillis()));
+		assertNull(index.claim("Steve", "012345", System.currentTimeMillis()));
+		assertTrue(known("Alex", "654321"));
+	}
+
+	@Test
+	void revokedCodesAreForgotten() throws Exception {
+		tcp("");
+		try (FakeBotClient bot = new FakeBotClient(server.address())) {
+			bot.issue(111111, "Steve", System.currentTimeMillis() + 60_000).revoke(111111);
+			await(() -> server.revoked() == 1);
+		}
+		assertFalse(known("Steve", "111111"));
+	}
+
+	@Test
+	void unixSocketIsRemovedOnStop() throws Exception {
+		Path socket = dir.resolve("ingest.sock");
+		server = CodeIngestServer.start(LOGGER, new IngestSettings(Transport.UNIX, socket.toString(), 0, ""), index);
+		try (FakeBotClient bot = new FakeBotClient(server.address())) {
+			bot.issue(222222, "Steve", System.currentTimeMillis() + 60_000);
+			await(() -> known("Steve", "222222"));
+		}
+
+		server.stop();
+		server = null;
+		assertFalse(Files.exists(socket));
+	}
+
+	@Test
+	void wrongSecretClosesConnectionAndIgnoresCodes() throws Exception {
+		tcp("s3cret");
+		try (FakeBotClient bot = new FakeBotClient(server.address())) {
+			bot.hello("guess").issue(333333, "Steve", System.currentTimeMillis() + 60_000);
+			assertTrue(bot.awaitClosed(5, TimeUnit.SECONDS));
+		}
+		assertEquals(1, server.badFrames());
+		assertEquals(0, server.issued());
+	}
+
+	@Test
+	void oversizedFrameClosesConnection() throws Exception {
+		tcp("");
+		try (FakeBotClient bot = new FakeBotClient(server.address())) {
+			bot.raw((byte) 0x7f, (byte) 0xff, IngestProtocol.ISSUE);
+			assertTrue(bot.awaitClosed(5, TimeUnit.SECONDS));
+		}
+		assertEquals(1, server.badFrames());
+	}
+}
@@ -0,0 +1,84 @@
+package com.example.loginplugin.ingest;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Speaks {@link IngestProtocol} the way the Discord bot does, over a blocking channel.
+ */
+final class FakeBotClient implements AutoCloseable {
+
+	private final SocketChannel channel;
+
+	FakeBotClient(SocketAddress address) throws IOException {
+		channel = address instanceof UnixDomainSocketAddress
+				? SocketChannel.open(StandardProtocolFamily.UNIX)
+				: SocketChannel.open();
+		channel.connect(address);
+	}
+
+	FakeBotClient hello(String secret) throws IOException {
+		byte[] body = secret.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer frame = frame(IngestProtocol.HELLO, body.length);
+		frame.put(body);
+		return send(frame);
+	}
+
+	FakeBotClient issue(int code, String username, long expiresAt) throws IOException {
+		byte[] name = username.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer frame = frame(IngestProtocol.ISSUE, 12 + name.length);
+		frame.putInt(code).putLong(expiresAt).put(name);
+		return send(frame);
+	}
+
+	FakeBotClient revoke(int code) throws IOException {
+		ByteBuffer frame = frame(IngestProtocol.REVOKE, 4);
+		frame.putInt(code);
+		return send(frame);
+	}
+
+	/** Sends raw bytes, for frames the real bot would never produce. */
+	FakeBotClient raw(byte... bytes) throws IOException {
+		return send(ByteBuffer.wrap(bytes).position(bytes.length));
+	}
+
+	private static ByteBuffer frame(byte type, int bodyLength) {
+		ByteBuffer frame = ByteBuffer.allocate(3 + bodyLength);
+		frame.putShort((short) (1 + bodyLength)).put(type);
+		return frame;
+	}
+
+	private FakeBotClient send(ByteBuffer frame) throws IOException {
+		frame.flip();
+		while (frame.hasRemaining()) {
+			channel.write(frame);
+		}
+		return this;
+	}
+
+	/**
+	 * Waits for the server to hang up. The server never writes, so any read that returns is the end.
+	 */
+	boolean awaitClosed(long timeout, TimeUnit unit) throws Exception {
+		Thread reader = Thread.ofVirtual().start(() -> {
+			try {
+				channel.read(ByteBuffer.allocate(1));
+			} catch (IOException ignored) {
+				// reset by the server counts as closed too
+			}
+		});
+		reader.join(unit.toMillis(timeout));
+		return !reader.isAlive();
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
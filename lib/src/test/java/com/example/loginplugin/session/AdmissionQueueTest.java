@@ -0,0 +1,81 @@
+package com.example.loginplugin.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.loginplugin.session.AdmissionQueue.Ticket;
+
+class AdmissionQueueTest {
+
+	@Test
+	void admitsInArrivalOrderWithRegisteredFirst() {
+		AdmissionQueue queue = new AdmissionQueue(1, 0, 1000);
+		Ticket first = queue.enter(UUID.randomUUID(), false);
+		Ticket guest = queue.enter(UUID.randomUUID(), false);
+		Ticket member = queue.enter(UUID.randomUUID(), true);
+		Ticket lateGuest = queue.enter(UUID.randomUUID(), false);
+
+		assertTrue(first.isAdmitted());
+		assertEquals(1, queue.position(member));
+		assertEquals(2, queue.position(guest));
+		assertEquals(3, queue.position(lateGuest));
+
+		// A lookup later shows the late guest is registered after all
+		queue.promote(lateGuest);
+		assertEquals(2, queue.position(lateGuest));
+		assertEquals(3, queue.position(guest));
+
+		queue.release(first);
+		assertTrue(member.isAdmitted());
+		assertEquals(0, queue.position(member));
+		queue.release(member);
+		assertTrue(lateGuest.isAdmitted());
+		queue.release(lateGuest);
+		assertTrue(guest.isAdmitted());
+		assertEquals(1, queue.activeCount());
+	}
+
+	@Test
+	void leavingFreesTheSlotOrThePlaceInLine() throws InterruptedException {
+		AdmissionQueue queue = new AdmissionQueue(1, 0, 1000);
+		UUID admittedPlayer = UUID.randomUUID();
+		UUID waitingPlayer = UUID.randomUUID();
+		Ticket admitted = queue.enter(admittedPlayer, true);
+		Ticket leaving = queue.enter(waitingPlayer, true);
+		Ticket next = queue.enter(UUID.randomUUID(), true);
+
+		queue.cancel(waitingPlayer);
+		assertTrue(leaving.await(0));
+		assertFalse(leaving.isAdmitted());
+		assertEquals(1, queue.position(next));
+
+		queue.cancel(admittedPlayer);
+		assertTrue(next.await(1000));
+		assertTrue(next.isAdmitted());
+
+		// Releasing twice must not hand out a second slot
+		queue.release(admitted);
+		assertEquals(1, queue.activeCount());
+	}
+
+	@Test
+	void turnsPlayersAwayOnceTheQueueIsFull() {
+		AdmissionQueue queue = new AdmissionQueue(1, 2, 1000);
+		queue.enter(UUID.randomUUID(), true);
+		queue.enter(UUID.randomUUID(), true);
+		queue.enter(UUID.randomUUID(), false);
+
+		assertNull(queue.enter(UUID.randomUUID(), true));
+		assertEquals(2, queue.waitingCount());
+		assertEquals(1, queue.turnedAwayCount());
+
+		queue.shutdown();
+		assertEquals(0, queue.waitingCount());
+	}
+}
@@ -0,0 +1,81 @@
+package com.example.loginplugin.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.loginplugin.session.LoginSession.State;
+
+class LoginSessionEngineTest {
+
+	private final LoginSessionEngine engine = new LoginSessionEngine(60, 3600, TimeUnit.SECONDS);
+
+	@AfterEach
+	void shutdown() {
+		engine.shutdown();
+	}
+
+	@Test
+	void onlyOneConcurrentSubmitIsChecked() throws InterruptedException {
+		LoginSession session = engine.park(UUID.randomUUID(), "Racer");
+		AtomicInteger admitted = new AtomicInteger();
+		CountDownLatch go = new CountDownLatch(1);
+		ExecutorService clicks = Executors.newFixedThreadPool(8);
+		for (int i = 0; i < 8; i++) {
+			clicks.execute(() -> {
+				try {
+					go.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				if (session.beginSubmit()) {
+					admitted.incrementAndGet();
+				}
+			});
+		}
+		go.countDown();
+		clicks.shutdown();
+		assertTrue(clicks.awaitTermination(5, TimeUnit.SECONDS));
+
+		assertEquals(1, admitted.get());
+		assertEquals(State.VERIFYING, session.state());
+		assertEquals(1, session.rejectSubmit());
+		assertEquals(State.AWAITING, session.state());
+	}
+
+	@Test
+	void firstOutcomeWins() {
+		UUID uuid = UUID.randomUUID();
+		LoginSession session = engine.park(uuid, "Winner");
+
+		engine.discard(uuid);
+		assertFalse(session.succeed());
+		assertEquals(State.ABANDONED, session.state());
+		assertFalse(session.result().join());
+		assertNull(engine.session(uuid));
+	}
+
+	@Test
+	void sweepReclaimsSessionsWellPastTheirTimeout() {
+		UUID uuid = UUID.randomUUID();
+		LoginSession session = engine.park(uuid, "Stale");
+
+		assertEquals(0, engine.sweep(System.nanoTime()));
+		assertEquals(1, engine.sweep(System.nanoTime() + TimeUnit.MINUTES.toNanos(2)));
+
+		assertEquals(State.TIMED_OUT, session.state());
+		assertEquals(0, engine.parkedCount());
+		assertEquals(1, engine.sweptCount());
+	}
+}
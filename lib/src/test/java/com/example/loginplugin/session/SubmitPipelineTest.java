@@ -0,0 +1,73 @@
+package com.example.loginplugin.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+class SubmitPipelineTest {
+
+	@Test
+	void runsChecksOffTheCallingThread() throws Exception {
+		SubmitPipeline pipeline = new SubmitPipeline(2, 10);
+		AtomicReference<Thread> ranOn = new AtomicReference<>();
+		CountDownLatch done = new CountDownLatch(1);
+
+		assertTrue(pipeline.submit(() -> {
+			ranOn.set(Thread.currentThread());
+			done.countDown();
+		}));
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertNotEquals(Thread.currentThread(), ranOn.get());
+		pipeline.shutdown();
+	}
+
+	@Test
+	void refusesSubmitsOnceTheQueueIsFull() throws Exception {
+		SubmitPipeline pipeline = new SubmitPipeline(1, 2);
+		CountDownLatch slowDatabase = new CountDownLatch(1);
+		CountDownLatch started = new CountDownLatch(1);
+
+		// One check holds the only worker, two more fill the queue
+		assertTrue(pipeline.submit(() -> {
+			started.countDown();
+			try {
+				slowDatabase.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		assertTrue(pipeline.submit(() -> {
+		}));
+		assertTrue(pipeline.submit(() -> {
+		}));
+
+		assertFalse(pipeline.submit(() -> {
+		}));
+		assertEquals(1, pipeline.refusedCount());
+		assertEquals(2, pipeline.queuedCount());
+
+		slowDatabase.countDown();
+		pipeline.shutdown();
+		assertEquals(0, pipeline.queuedCount());
+	}
+
+	@Test
+	void cancelledSubmitDoesNotCountAsAttempt() {
+		LoginSession session = new LoginSession(UUID.randomUUID(), "Steve");
+		assertTrue(session.beginSubmit());
+		assertFalse(session.beginSubmit());
+
+		session.cancelSubmit();
+		assertEquals(0, session.failedAttempts());
+		assertTrue(session.beginSubmit());
+	}
+}
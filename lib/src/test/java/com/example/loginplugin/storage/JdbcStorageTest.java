@@ -0,0 +1,57 @@
+package com.example.loginplugin.storage;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.AfterEach;
+
+import com.example.loginplugin.accounts.AccountLink;
+import com.example.loginplugin.skin.SkinTexture;
+
+/**
+ * Runs the generic JDBC backend against an in-memory H2 database standing in for a database
+ * server. The fixture connection keeps the database alive for the length of a test.
+ */
+class JdbcStorageTest extends LoginStorageConformanceTest {
+
+	private Connection fixtures;
+
+	@Override
+	protected LoginStorage open() throws Exception {
+		String url = "jdbc:h2:mem:storage-" + UUID.randomUUID();
+		fixtures = DriverManager.getConnection(url);
+		JdbcStorage jdbc = new JdbcStorage(Logger.getLogger("JdbcStorageTest"),
+				new StorageSettings.Jdbc(url, "", "", "", 2, 2, true));
+		jdbc.open();
+		return jdbc;
+	}
+
+	@AfterEach
+	void closeFixtures() throws Exception {
+		fixtures.close();
+	}
+
+	@Override
+	protected void addCode(String code, String username, long expiresAt) throws Exception {
+		insert(fixtures, "INSERT INTO link_codes (code, mc_username, expires_at) VALUES (?, ?, ?)", code, username,
+				expiresAt);
+	}
+
+	@Override
+	protected void addAccount(String username) throws Exception {
+		insert(fixtures, "INSERT INTO accounts (mc_username) VALUES (?)", username);
+	}
+
+	@Override
+	protected AccountLink linkOf(String username) throws Exception {
+		return readLink(fixtures, username);
+	}
+
+	@Override
+	protected void addSkin(String username, SkinTexture texture) throws Exception {
+		insert(fixtures, "INSERT INTO account_skins (mc_username, texture_value, texture_signature) VALUES (?, ?, ?)",
+				username, texture.value(), texture.signature());
+	}
+}
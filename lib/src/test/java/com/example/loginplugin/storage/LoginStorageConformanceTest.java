@@ -0,0 +1,233 @@
+package com.example.loginplugin.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.loginplugin.accounts.AccountLink;
+import com.example.loginplugin.database.ClaimedCode;
+import com.example.loginplugin.security.ReconnectToken;
+import com.example.loginplugin.skin.SkinTexture;
+
+/**
+ * Behaviour every {@link LoginStorage} backend has to share. Subclasses open the backend and
+ * provide a way to put rows in it, the way the Discord bot would.
+ */
+abstract class LoginStorageConformanceTest {
+
+	protected static final long NOW = 1_700_000_000_000L;
+
+	protected LoginStorage storage;
+
+	/** Creates and opens the backend under test, with an empty schema. */
+	protected abstract LoginStorage open() throws Exception;
+
+	protected abstract void addCode(String code, String username, long expiresAt) throws Exception;
+
+	protected abstract void addAccount(String username) throws Exception;
+
+	protected abstract void addSkin(String username, SkinTexture texture) throws Exception;
+
+	/** The link recorded on this account, or null if it has none. */
+	protected abstract AccountLink linkOf(String username) throws Exception;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		storage = open();
+	}
+
+	@AfterEach
+	void tearDown() {
+		storage.close();
+	}
+
+	/** Inserts one row through plain JDBC, for the SQL backends. */
+	protected static void insert(Connection connection, String sql, Object... args) throws SQLException {
+		try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+			for (int i = 0; i < args.length; i++) {
+				stmt.setObject(i + 1, args[i]);
+			}
+			stmt.executeUpdate();
+		}
+	}
+
+	/** Reads the linkage columns of an account row through plain JDBC, for the SQL backends. */
+	protected static AccountLink readLink(Connection connection, String username) throws SQLException {
+		try (PreparedStatement stmt = connection.prepareStatement(
+				"SELECT mc_uuid, mc_username, discord_id, last_login_at FROM accounts WHERE LOWER(mc_username) = LOWER(?)")) {
+			stmt.setString(1, username);
+			try (ResultSet rs = stmt.executeQuery()) {
+				if (!rs.next() || rs.getString(1) == null) {
+					return null;
+				}
+				return new AccountLink(UUID.fromString(rs.getString(1)), rs.getString(2), rs.getString(3), rs.getLong(4));
+			}
+		}
+	}
+
+	// ---------------- CODES ----------------
+
+	@Test
+	void claimsLiveCodeExactlyOnce() throws Exception {
+		addCode("123456", "Steve", NOW + 60_000);
+
+		Optional<ClaimedCode> claimed = storage.claimCode("Steve", "123456", NOW).join();
+		assertTrue(claimed.isPresent());
+		assertEquals("123456", claimed.get().code());
+		assertEquals("Steve", claimed.get().username());
+		assertEquals(NOW + 60_000, claimed.get().expiresAt());
+
+		assertFalse(storage.claimCode("Steve", "123456", NOW).join().isPresent());
+	}
+
+	@Test
+	void matchesUsernameIgnoringCase() throws Exception {
+		addCode("123456", "Steve", NOW + 60_000);
+		assertTrue(storage.claimCode("sTEVE", "123456", NOW).join().isPresent());
+	}
+
+	@Test
+	void leavesCodeOfAnotherPlayerAlone() throws Exception {
+		addCode("123456", "Steve", NOW + 60_000);
+
+		assertFalse(storage.claimCode("Alex", "123456", NOW).join().isPresent());
+		assertTrue(storage.claimCode("Steve", "123456", NOW).join().isPresent());
+	}
+
+	@Test
+	void claimsSharedCodeOnlyForItsOwnPlayer() throws Exception {
+		addCode("123456", "Steve", NOW + 60_000);
+		addCode("123456", "Alex", NOW + 30_000);
+
+		Optional<ClaimedCode> steve = storage.claimCode("Steve", "123456", NOW).join();
+		assertTrue(steve.isPresent());
+		assertEquals("Steve", steve.get().username());
+		assertEquals(NOW + 60_000, steve.get().expiresAt());
+		assertFalse(storage.claimCode("Steve", "123456", NOW).join().isPresent());
+
+		Optional<ClaimedCode> alex = storage.claimCode("alex", "123456", NOW).join();
+		assertTrue(alex.isPresent());
+		assertEquals("Alex", alex.get().username());
+		assertFalse(storage.claimCode("Alex", "123456", NOW).join().isPresent());
+	}
+
+	@Test
+	void rejectsExpiredAndUnknownCodes() throws Exception {
+		addCode("123456", "Steve", NOW);
+
+		assertFalse(storage.claimCode("Steve", "123456", NOW).join().isPresent());
+		assertFalse(storage.claimCode("Steve", "654321", NOW).join().isPresent());
+	}
+
+	@Test
+	void concurrentClaimsHaveOneWinner() throws Exception {
+		addCode("123456", "Steve", NOW + 60_000);
+
+		int threads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				results.add(executor.submit(() -> {
+					start.await();
+					return storage.claimCode("Steve", "123456", NOW).join().isPresent();
+				}));
+			}
+			start.countDown();
+
+			int winners = 0;
+			for (Future<Boolean> result : results) {
+				winners += result.get() ? 1 : 0;
+			}
+			assertEquals(1, winners);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	// ---------------- ACCOUNTS AND SKINS ----------------
+
+	@Test
+	void findsRegisteredAccountsIgnoringCase() throws Exception {
+		addAccount("Steve");
+
+		assertTrue(storage.isRegistered("Steve").join());
+		assertTrue(storage.isRegistered("steve").join());
+		assertFalse(storage.isRegistered("Alex").join());
+	}
+
+	@Test
+	void savesAccountLinks() throws Exception {
+		UUID steve = UUID.randomUUID();
+		UUID alex = UUID.randomUUID();
+		addAccount("Steve");
+		assertNull(linkOf("Steve"));
+
+		assertEquals(2, storage.saveAccountLinks(List.of(
+				new AccountLink(steve, "Steve", "42", NOW),
+				new AccountLink(alex, "Alex", null, NOW))).join());
+		assertEquals(new AccountLink(steve, "Steve", "42", NOW), linkOf("steve"));
+		// A player without a row gets one, and counts as registered from then on
+		assertEquals(new AccountLink(alex, "Alex", null, NOW), linkOf("Alex"));
+		assertTrue(storage.isRegistered("alex").join());
+
+		// An unknown Discord id leaves the stored one alone
+		storage.saveAccountLinks(List.of(new AccountLink(steve, "Steve", null, NOW + 1))).join();
+		assertEquals(new AccountLink(steve, "Steve", "42", NOW + 1), linkOf("Steve"));
+	}
+
+	@Test
+	void loadsStoredSkin() throws Exception {
+		SkinTexture texture = new SkinTexture("dGV4dHVyZQ==", "c2lnbmF0dXJl");
+		addSkin("Steve", texture);
+
+		assertEquals(Optional.of(texture), storage.loadSkin("STEVE").join());
+		assertEquals(Optional.empty(), storage.loadSkin("Alex").join());
+	}
+
+	@Test
+	void answersPing() {
+		storage.ping().join();
+	}
+
+	// ---------------- RECONNECT TOKENS ----------------
+
+	@Test
+	void replacesAndPurgesReconnectTokens() throws Exception {
+		UUID steve = UUID.randomUUID();
+		UUID alex = UUID.randomUUID();
+		InetAddress first = InetAddress.getByName("10.0.0.1");
+		InetAddress second = InetAddress.getByName("10.0.0.2");
+
+		CompletableFuture.allOf(
+				storage.saveReconnectToken(new ReconnectToken(steve, first, NOW + 1_000)),
+				storage.saveReconnectToken(new ReconnectToken(alex, first, NOW - 1_000))).join();
+		storage.saveReconnectToken(new ReconnectToken(steve, second, NOW + 5_000)).join();
+
+		assertEquals(List.of(new ReconnectToken(steve, second, NOW + 5_000)), storage.liveReconnectTokens(NOW).join());
+		assertEquals(1, storage.purgeReconnectTokens(NOW).join());
+		assertEquals(0, storage.purgeReconnectTokens(NOW).join());
+		assertEquals(1, storage.liveReconnectTokens(NOW).join().size());
+	}
+}
@@ -0,0 +1,36 @@
+package com.example.loginplugin.storage;
+
+import com.example.loginplugin.accounts.AccountLink;
+import com.example.loginplugin.skin.SkinTexture;
+
+class MemoryStorageTest extends LoginStorageConformanceTest {
+
+	private MemoryStorage memory;
+
+	@Override
+	protected LoginStorage open() {
+		memory = new MemoryStorage();
+		memory.open();
+		return memory;
+	}
+
+	@Override
+	protected void addCode(String code, String username, long expiresAt) {
+		memory.addCode(code, username, expiresAt);
+	}
+
+	@Override
+	protected void addAccount(String username) {
+		memory.addAccount(username);
+	}
+
+	@Override
+	protected AccountLink linkOf(String username) {
+		return memory.link(username);
+	}
+
+	@Override
+	protected void addSkin(String username, SkinTexture texture) {
+		memory.putSkin(username, texture);
+	}
+}
@@ -0,0 +1,59 @@
+package com.example.loginplugin.storage;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.loginplugin.database.DatabaseSettings;
+import com.example.loginplugin.accounts.AccountLink;
+import com.example.loginplugin.skin.SkinTexture;
+
+class SqliteStorageTest extends LoginStorageConformanceTest {
+
+	@TempDir
+	Path dir;
+
+	private Connection fixtures;
+
+	@Override
+	protected LoginStorage open() throws Exception {
+		Path db = Files.createFile(dir.resolve("test.db"));
+		SqliteStorage sqlite = new SqliteStorage(Logger.getLogger("SqliteStorageTest"),
+				new DatabaseSettings(db.toString(), 2, 5000));
+		sqlite.open();
+		fixtures = DriverManager.getConnection("jdbc:sqlite:" + db);
+		return sqlite;
+	}
+
+	@AfterEach
+	void closeFixtures() throws Exception {
+		fixtures.close();
+	}
+
+	@Override
+	protected void addCode(String code, String username, long expiresAt) throws Exception {
+		insert(fixtures, "INSERT INTO link_codes (code, mc_username, expires_at) VALUES (?, ?, ?)", code, username,
+				expiresAt);
+	}
+
+	@Override
+	protected void addAccount(String username) throws Exception {
+		insert(fixtures, "INSERT INTO accounts (mc_username) VALUES (?)", username);
+	}
+
+	@Override
+	protected AccountLink linkOf(String username) throws Exception {
+		return readLink(fixtures, username);
+	}
+
+	@Override
+	protected void addSkin(String username, SkinTexture texture) throws Exception {
+		insert(fixtures, "INSERT INTO account_skins (mc_username, texture_value, texture_signature) VALUES (?, ?, ?)",
+				username, texture.value(), texture.signature());
+	}
+}